@@ -0,0 +1,159 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A small benchmark harness in the spirit of JMH: every benchmark runs timed
+ * warmup iterations and then measured iterations, and reports the average
+ * time per operation with its 99.9% confidence error and the bytes allocated
+ * per operation. Results are printed and written as JSON in the layout of JMH
+ * result files, so existing tooling can compare runs.
+ */
+public class BenchmarkHarness {
+
+  /**
+   * An operation under test
+   */
+  public interface Operation {
+
+    /**
+     * @return a result the harness consumes so the JIT cannot drop the work
+     */
+    long run();
+  }
+
+  /**
+   * Number of warmup iterations
+   */
+  private final int warmupIterations;
+
+  /**
+   * Number of measured iterations
+   */
+  private final int iterations;
+
+  /**
+   * Minimum duration of an iteration in nanoseconds
+   */
+  private final long iterationNanos;
+
+  /**
+   * JSON objects of the finished benchmarks
+   */
+  private final List<String> results = new ArrayList<>();
+
+  /**
+   * Keeps the results alive so the JIT cannot drop the operations
+   */
+  private long sink;
+
+  /**
+   * Initialize the harness
+   *
+   * @param warmupIterations - number of warmup iterations
+   * @param iterations       - number of measured iterations
+   * @param iterationMillis  - minimum duration of an iteration
+   */
+  public BenchmarkHarness(int warmupIterations, int iterations, long iterationMillis) {
+    this.warmupIterations = warmupIterations;
+    this.iterations = iterations;
+    this.iterationNanos = iterationMillis * 1_000_000L;
+  }
+
+  /**
+   * This method runs a benchmark
+   *
+   * @param name      - name of the benchmark
+   * @param rows      - ledger size parameter, or -1 if the benchmark has none
+   * @param setup     - run before every iteration, outside the timing, may be
+   *                  null
+   * @param operation - the operation under test
+   */
+  public void run(String name, int rows, Runnable setup, Operation operation) {
+    double[] scores = new double[iterations];
+    double bytesPerOp = 0;
+    for (int iteration = -warmupIterations; iteration < iterations; iteration++) {
+      if (setup != null) {
+        setup.run();
+      }
+      long operations = 0;
+      long result = 0;
+      long allocatedBefore = allocatedBytes();
+      long start = System.nanoTime();
+      long elapsed;
+      do {
+        result += operation.run();
+        operations++;
+        elapsed = System.nanoTime() - start;
+      } while (elapsed < iterationNanos);
+      long allocated = allocatedBytes() - allocatedBefore;
+      sink += result;
+      if (iteration >= 0) {
+        scores[iteration] = elapsed / (double) operations;
+        bytesPerOp += allocated / (double) operations / iterations;
+      }
+    }
+    double mean = 0;
+    for (double score : scores) {
+      mean += score / iterations;
+    }
+    double variance = 0;
+    for (double score : scores) {
+      variance += (score - mean) * (score - mean) / Math.max(1, iterations - 1);
+    }
+    // Normal approximation of the 99.9% confidence interval
+    double error = 3.29 * Math.sqrt(variance / iterations);
+    System.out.printf(Locale.ROOT, "%-40s %10s %14.1f +- %10.1f ns/op %12.1f B/op%n", name,
+        rows < 0 ? "" : "rows=" + rows, mean, error, bytesPerOp);
+    StringBuilder json = new StringBuilder();
+    json.append("  {\n    \"benchmark\": \"").append(name).append("\",\n    \"mode\": \"avgt\",\n");
+    json.append("    \"warmupIterations\": ").append(warmupIterations).append(",\n");
+    json.append("    \"measurementIterations\": ").append(iterations).append(",\n");
+    if (rows >= 0) {
+      json.append("    \"params\": { \"rows\": \"").append(rows).append("\" },\n");
+    }
+    json.append(String.format(Locale.ROOT,
+        "    \"primaryMetric\": { \"score\": %.3f, \"scoreError\": %.3f, \"scoreUnit\": \"ns/op\" },%n", mean,
+        error));
+    json.append(String.format(Locale.ROOT,
+        "    \"secondaryMetrics\": { \"gc.alloc.rate.norm\": { \"score\": %.3f, \"scoreUnit\": \"B/op\" } }%n",
+        bytesPerOp));
+    json.append("  }");
+    results.add(json.toString());
+  }
+
+  /**
+   * This method writes the results of all benchmarks run so far as a JSON
+   * array
+   *
+   * @param file - the results file
+   * @throws IOException if the file cannot be written
+   */
+  public void writeResults(Path file) throws IOException {
+    try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      writer.write("[\n");
+      writer.write(String.join(",\n", results));
+      writer.write("\n]\n");
+    }
+    if (sink == 42) {
+      System.out.println();
+    }
+  }
+
+  /**
+   * This method returns the bytes allocated by the current thread so far
+   *
+   * @return allocated bytes
+   */
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+}
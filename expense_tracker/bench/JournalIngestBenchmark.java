@@ -0,0 +1,83 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import model.ExpenseTrackerModel;
+import model.Transaction;
+import model.Persistence.FsyncPolicy;
+import model.Persistence.TransactionJournal;
+import model.Storage.ColumnarTransactionStore;
+
+/**
+ * Reports the sustained ingest rate of a journaled model and the time it
+ * takes to recover it.
+ *
+ * Run with: ant bench -Dbench.rows=1000000
+ */
+public class JournalIngestBenchmark {
+
+  /**
+   * Categories cycled through by the generated rows
+   */
+  private static final String[] CATEGORIES = { "food", "travel", "bills", "entertainment", "other" };
+
+  /**
+   * Entry point of the benchmark
+   *
+   * @param args - optional number of rows, defaults to 1000000
+   * @throws IOException if the journal cannot be written
+   */
+  public static void main(String[] args) throws IOException {
+    int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    Path directory = Files.createTempDirectory("journal-bench");
+    try {
+      for (FsyncPolicy policy : FsyncPolicy.values()) {
+        Transaction[] transactions = new Transaction[rows];
+        for (int i = 0; i < rows; i++) {
+          transactions[i] = new Transaction(1 + (i % 999), CATEGORIES[i % CATEGORIES.length]);
+        }
+
+        long start = System.nanoTime();
+        try (ExpenseTrackerModel model = new ExpenseTrackerModel(new ColumnarTransactionStore(),
+            new TransactionJournal(directory, policy))) {
+          for (Transaction t : transactions) {
+            model.addTransaction(t);
+          }
+        }
+        double ingestSeconds = (System.nanoTime() - start) / 1e9;
+
+        start = System.nanoTime();
+        try (ExpenseTrackerModel model = new ExpenseTrackerModel(new ColumnarTransactionStore(),
+            new TransactionJournal(directory, policy))) {
+          if (model.getTransactions().size() != rows) {
+            throw new IllegalStateException("Row count mismatch");
+          }
+        }
+        double recoverySeconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%-8s ingest %10.0f transactions/sec, recovery %6.2f sec%n", policy,
+            rows / ingestSeconds, recoverySeconds);
+        clear(directory);
+      }
+    } finally {
+      clear(directory);
+      Files.delete(directory);
+    }
+  }
+
+  /**
+   * This method deletes the files of the journal directory
+   *
+   * @param directory - journal directory
+   * @throws IOException if a file cannot be deleted
+   */
+  private static void clear(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Files.delete(file);
+      }
+    }
+  }
+
+}
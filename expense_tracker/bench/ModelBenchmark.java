@@ -0,0 +1,120 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+import controller.ExpenseEngine;
+import controller.InputValidation;
+import model.ExpenseTrackerModel;
+import model.Transaction;
+import model.Filter.AmountFilter;
+import model.Filter.CategoryFilter;
+import model.Index.RowBitmap;
+import model.Storage.TransactionSnapshot;
+import view.TransactionTableModel;
+
+/**
+ * Benchmarks the model, the filters, the validation, transaction construction
+ * and the headless refresh and filter paths of the controller, for every
+ * ledger size. The results are written as JSON for comparing releases.
+ *
+ * Run with: ant bench.model -Dbench.sizes=1000,100000,10000000
+ * -Dbench.results=bench-results.json
+ */
+public class ModelBenchmark {
+
+  /**
+   * Categories cycled through by the generated rows
+   */
+  private static final String[] CATEGORIES = { "food", "travel", "bills", "entertainment", "other" };
+
+  /**
+   * Number of rows the table shows at once, read by the refresh benchmark
+   */
+  private static final int VISIBLE_ROWS = 40;
+
+  /**
+   * Entry point of the benchmark
+   *
+   * @param args - comma separated ledger sizes, defaults to
+   *             1000,10000,100000,1000000, and the results file, defaults to
+   *             bench-results.json
+   * @throws IOException if the results cannot be written
+   */
+  public static void main(String[] args) throws IOException {
+    String sizes = args.length > 0 ? args[0] : "1000,10000,100000,1000000";
+    String results = args.length > 1 ? args[1] : "bench-results.json";
+    BenchmarkHarness harness = new BenchmarkHarness(3, 5, 500);
+
+    // Size independent
+    String[] categories = new String[CATEGORIES.length * 2];
+    for (int i = 0; i < categories.length; i++) {
+      // Own copies in mixed case, as if read from a file
+      String category = CATEGORIES[i % CATEGORIES.length];
+      categories[i] = i < CATEGORIES.length ? new String(category) : category.toUpperCase();
+    }
+    int[] next = new int[1];
+    harness.run("InputValidation.isValidCategory", -1, null,
+        () -> InputValidation.isValidCategory(categories[next[0]++ % categories.length]) ? 1 : 0);
+    harness.run("InputValidation.isValidAmount", -1, null,
+        () -> InputValidation.isValidAmount((next[0]++ % 120000) / 100.0) ? 1 : 0);
+    harness.run("Transaction.new", -1, null,
+        () -> new Transaction(1 + next[0] % 999, categories[next[0]++ % categories.length]).getCategoryCode());
+
+    for (String size : sizes.split(",")) {
+      int rows = Integer.parseInt(size.trim());
+      ExpenseTrackerModel model = new ExpenseTrackerModel();
+      for (int i = 0; i < rows; i++) {
+        model.addTransaction(row(i));
+      }
+      List<Transaction> transactions = model.getTransactions();
+      AmountFilter amountFilter = new AmountFilter(50.0);
+      CategoryFilter categoryFilter = new CategoryFilter("travel");
+
+      harness.run("ExpenseTrackerModel.getTransactions", rows, null, () -> model.getTransactions().size());
+      harness.run("AmountFilter.filter", rows, null, () -> amountFilter.filter(transactions).size());
+      harness.run("CategoryFilter.filter", rows, null, () -> categoryFilter.filter(transactions).size());
+      harness.run("ExpenseTrackerModel.select", rows, null, () -> model.select(categoryFilter).size());
+      // What ExpenseTrackerController.applyFilter does besides painting
+      harness.run("applyFilter.headless", rows, null, () -> {
+        int[] selected = model.select(categoryFilter).getRows();
+        return RowBitmap.of(selected).cardinality();
+      });
+      // The same filter through the headless engine, without any view
+      ExpenseEngine engine = new ExpenseEngine(model);
+      harness.run("ExpenseEngine.applyFilter", rows, null, () -> engine.applyFilter(categoryFilter).size());
+      // What ExpenseTrackerView.refreshTable does besides painting: the table
+      // reads the cells of the visible rows
+      TransactionTableModel table = new TransactionTableModel();
+      harness.run("refreshTable.headless", rows, null, () -> {
+        TransactionSnapshot snapshot = model.getSnapshot();
+        table.setTransactions(snapshot, model.getAggregates().getTotal().getSum());
+        long cells = 0;
+        for (int row = 0; row < Math.min(VISIBLE_ROWS, table.getRowCount()); row++) {
+          for (int column = 0; column < table.getColumnCount(); column++) {
+            cells += table.getValueAt(row, column) == null ? 0 : 1;
+          }
+        }
+        return cells;
+      });
+      // Last, since it grows the model
+      int[] added = { rows };
+      harness.run("ExpenseTrackerModel.addTransaction", rows, null, () -> {
+        model.addTransaction(row(added[0]++));
+        return 1;
+      });
+    }
+    harness.writeResults(Paths.get(results));
+    System.out.println("Results written to " + results);
+  }
+
+  /**
+   * This method generates a row of the ledger
+   *
+   * @param i - row number
+   * @return the transaction
+   */
+  private static Transaction row(int i) {
+    return Transaction.ofCents(1 + (i * 7919L) % 100000, CATEGORIES[i % CATEGORIES.length], i * 60_000L);
+  }
+
+}
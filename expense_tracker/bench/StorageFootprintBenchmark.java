@@ -0,0 +1,70 @@
+import model.Transaction;
+import model.Storage.ColumnarTransactionStore;
+import model.Storage.ListTransactionStore;
+import model.Storage.TransactionStore;
+
+/**
+ * Reports the retained heap per transaction row of each storage backend.
+ *
+ * Run with: ant bench -Dbench.rows=1000000
+ */
+public class StorageFootprintBenchmark {
+
+  /**
+   * Categories cycled through by the generated rows
+   */
+  private static final String[] CATEGORIES = { "food", "travel", "bills", "entertainment", "other" };
+
+  /**
+   * Entry point of the benchmark
+   *
+   * @param args - optional number of rows, defaults to 1000000
+   */
+  public static void main(String[] args) {
+    int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+    System.out.println("Rows: " + rows);
+    report("ListTransactionStore (before)", new ListTransactionStore(), rows);
+    report("ColumnarTransactionStore (after)", new ColumnarTransactionStore(), rows);
+  }
+
+  /**
+   * This method fills the store and prints the retained bytes per row
+   *
+   * @param name  - label of the store
+   * @param store - an empty store
+   * @param rows  - number of rows to add
+   */
+  private static void report(String name, TransactionStore store, int rows) {
+    long before = usedHeap();
+    for (int i = 0; i < rows; i++) {
+      // new String() so that every row owns its category, like text field input
+      store.add(new Transaction(1 + (i % 999), new String(CATEGORIES[i % CATEGORIES.length])));
+    }
+    long after = usedHeap();
+    System.out.printf("%-36s %8.1f bytes/row%n", name, (after - before) / (double) rows);
+    // Keep the store reachable until it has been measured
+    if (store.size() != rows) {
+      throw new IllegalStateException("Row count mismatch");
+    }
+  }
+
+  /**
+   * This method returns the used heap after a few garbage collections
+   *
+   * @return used heap in bytes
+   */
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 4; i++) {
+      System.gc();
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+}
@@ -0,0 +1,126 @@
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import controller.InputValidation;
+
+/**
+ * Reports the time and heap allocation per call of the category validation,
+ * compared with the regex based validation it replaced.
+ *
+ * Run with: ant bench -Dbench.rows=1000000
+ */
+public class ValidationBenchmark {
+
+  /**
+   * Categories cycled through by the benchmark, valid and invalid ones in the
+   * mix of cases a bulk import sees
+   */
+  private static final String[] INPUTS = { "food", "Travel", "BILLS", "entertainment", "other", "groceries",
+      "f00d", "", "Food", "travel" };
+
+  /**
+   * The valid categories of the regex based validation
+   */
+  private static final String[] LEGACY_CATEGORIES = { "food", "travel", "bills", "entertainment", "other" };
+
+  /**
+   * Number of timed rounds per validation, the first ones warm up the JIT
+   */
+  private static final int ROUNDS = 5;
+
+  /**
+   * Keeps the results alive so the JIT cannot drop the calls
+   */
+  private static long sink;
+
+  /**
+   * A validation under test
+   */
+  private interface Validation {
+
+    /**
+     * @param category - the category to validate
+     * @return a result the benchmark consumes
+     */
+    int run(String category);
+  }
+
+  /**
+   * Entry point of the benchmark
+   *
+   * @param args - optional number of calls per round, defaults to 1000000
+   */
+  public static void main(String[] args) {
+    int calls = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    // Own copies, as if read from a file
+    String[] inputs = new String[INPUTS.length];
+    for (int i = 0; i < inputs.length; i++) {
+      inputs[i] = new String(INPUTS[i]);
+    }
+
+    System.out.println("Calls per round: " + calls);
+    report("regex isValidCategory (before)", c -> legacyIsValidCategory(c) ? 1 : 0, inputs, calls);
+    report("InputValidation.isValidCategory", c -> InputValidation.isValidCategory(c) ? 1 : 0, inputs, calls);
+    report("InputValidation.getCategoryCode", InputValidation::getCategoryCode, inputs, calls);
+    if (sink == 42) {
+      System.out.println();
+    }
+  }
+
+  /**
+   * This method times a validation and prints the time and allocated bytes
+   * per call of its last round
+   *
+   * @param name       - label of the validation
+   * @param validation - the validation
+   * @param inputs     - categories to validate
+   * @param calls      - number of calls per round
+   */
+  private static void report(String name, Validation validation, String[] inputs, int calls) {
+    long nanos = 0;
+    long bytes = 0;
+    for (int round = 0; round < ROUNDS; round++) {
+      long allocatedBefore = allocatedBytes();
+      long start = System.nanoTime();
+      long result = 0;
+      for (int i = 0; i < calls; i++) {
+        result += validation.run(inputs[i % inputs.length]);
+      }
+      nanos = System.nanoTime() - start;
+      bytes = allocatedBytes() - allocatedBefore;
+      sink += result;
+    }
+    System.out.printf("%-36s %8.1f ns/call %8.1f bytes/call%n", name, nanos / (double) calls,
+        bytes / (double) calls);
+  }
+
+  /**
+   * The category validation before the perfect hash lookup
+   *
+   * @param category - the category to validate
+   * @return whether the category is valid
+   */
+  private static boolean legacyIsValidCategory(String category) {
+    if (category == null) {
+      return false;
+    }
+    if (category.trim().isEmpty()) {
+      return false;
+    }
+    if (!category.matches("[a-zA-Z]+")) {
+      return false;
+    }
+    return Arrays.asList(LEGACY_CATEGORIES).contains(category.toLowerCase());
+  }
+
+  /**
+   * This method returns the bytes allocated by the current thread so far
+   *
+   * @return allocated bytes
+   */
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+}
@@ -1,17 +1,34 @@
 import javax.swing.JButton;
+import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 import javax.swing.JTable;
+import javax.swing.SwingUtilities;
 
+import controller.ExpenseEngine;
 import controller.ExpenseTrackerController;
+import controller.ImportResult;
+import metrics.Metrics;
+import model.CategoryRegistry;
 import model.ExpenseTrackerModel;
 import view.ExpenseTrackerView;
 import model.Filter.AmountFilter;
 import model.Filter.CategoryFilter;
+import model.Persistence.FsyncPolicy;
+import model.Persistence.TransactionJournal;
+import model.Storage.ColumnarTransactionStore;
+import model.Storage.MappedTransactionStore;
+import server.ExpenseServer;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
 
 /**
  * Entry point of the app.
@@ -19,18 +36,49 @@ import java.awt.event.MouseEvent;
  */
 public class ExpenseTrackerApp {
 
+  /**
+   * Directory the transactions are persisted to unless another one is given
+   */
+  private static final String DEFAULT_DATA_DIRECTORY = "data";
+
+  /**
+   * File extension of memory-mapped ledger files
+   */
+  private static final String LEDGER_EXTENSION = ".ledger";
+
+  /**
+   * Runs the completion of background operations on the Event Dispatch Thread
+   */
+  private static final Executor EDT = SwingUtilities::invokeLater;
+
   /**
    * This class bundles MVC together
    * 
-   * @param args - Command line arguments - array of strings
+   * @param args - Command line arguments - array of strings. The first
+   *             argument is the directory the transactions are persisted to,
+   *             or a memory-mapped ledger file ending in .ledger.
    */
   public static void main(String[] args) {
 
+    // Expose the operation latencies through JMX
+    Metrics.registerMBean();
+
     // Create MVC components
-    ExpenseTrackerModel model = new ExpenseTrackerModel();
+    ExpenseTrackerModel model = openModel(args.length > 0 ? args[0] : DEFAULT_DATA_DIRECTORY);
     ExpenseTrackerView view = new ExpenseTrackerView();
     ExpenseTrackerController controller = new ExpenseTrackerController(model, view);
 
+    // Serve the transactions to other local processes
+    String port = System.getProperty(ExpenseServer.PORT_PROPERTY);
+    if (port != null) {
+      startServer(controller.getEngine(), Integer.parseInt(port));
+    }
+
+    // Show the recovered transactions
+    if (!model.getTransactions().isEmpty()) {
+      controller.refresh();
+    }
+
     JTable transactionsTableRef = view.getTransactionsTable();
     JButton deleteTransactionButton = view.getDeleteTransactionBtn();
 
@@ -43,41 +91,102 @@ public class ExpenseTrackerApp {
       double amount = view.getAmountField();
       String category = view.getCategoryField();
 
-      // Call controller to add transaction
-      boolean added = controller.addTransaction(amount, category);
-
-      if (!added) {
-        JOptionPane.showMessageDialog(view, "Invalid amount or category entered");
-        view.toFront();
-      }
+      // Call controller to add transaction off the EDT
+      controller.addTransactionAsync(amount, category).thenAcceptAsync(added -> {
+        if (!added) {
+          JOptionPane.showMessageDialog(view, "Invalid amount or category entered");
+          view.toFront();
+        }
+      }, EDT);
     });
 
     view.getDeleteTransactionBtn().addActionListener(new ActionListener() {
       @Override
       public void actionPerformed(ActionEvent e) {
-        int selectedRow = view.getTransactionsTable().getSelectedRow();
-        int tableRows = view.getTransactionsTable().getRowCount();
+        JTable table = view.getTransactionsTable();
+        int[] selectedRows = table.getSelectedRows();
+        int tableRows = table.getRowCount();
+        int totalRow = view.getTableModel().getRowCount() - 1;
+        // Ids of the selected transactions, the total row left out. The rows
+        // of the model differ from the rows a sorted table shows.
+        long[] ids = new long[selectedRows.length];
+        int count = 0;
+        for (int selectedRow : selectedRows) {
+          int modelRow = table.convertRowIndexToModel(selectedRow);
+          if (modelRow != totalRow) {
+            ids[count++] = view.getTableModel().getId(modelRow);
+          }
+        }
         if (tableRows == 0) {
           JOptionPane.showMessageDialog(view, "Nothing to delete!");
-        } else if (selectedRow == -1) {
+        } else if (selectedRows.length == 0) {
           JOptionPane.showMessageDialog(view, "Select a row to delete");
-        } else if (selectedRow != -1 && selectedRow != tableRows - 1) {
-          controller.deleteRow(selectedRow);
+        } else if (count == 1) {
+          // Delete by id, which a concurrent change cannot shift
+          controller.deleteTransactionAsync(ids[0]);
+        } else if (count > 1) {
+          // All selected rows in one change and one repaint
+          controller.deleteTransactionsAsync(Arrays.copyOf(ids, count));
         } else {
           JOptionPane.showMessageDialog(view, "Cannot delete total amount row");
         }
       }
     });
 
+    // Handle import transactions button clicks
+    view.getImportTransactionsBtn().addActionListener(e -> {
+      JFileChooser chooser = new JFileChooser();
+      if (chooser.showOpenDialog(view) != JFileChooser.APPROVE_OPTION) {
+        return;
+      }
+      controller.importTransactionsAsync(chooser.getSelectedFile().toPath()).whenCompleteAsync((result, failure) -> {
+        if (failure != null) {
+          // CompletionException of an UncheckedIOException of the IOException
+          Throwable cause = failure;
+          while (cause.getCause() != null) {
+            cause = cause.getCause();
+          }
+          JOptionPane.showMessageDialog(view, "Could not import transactions: " + cause.getMessage());
+        } else {
+          StringBuilder message = new StringBuilder();
+          message.append("Imported ").append(result.getImported()).append(" transactions, rejected ")
+              .append(result.getRejectedCount()).append(" rows.");
+          for (ImportResult.Rejection rejection : result.getRejections().subList(0,
+              Math.min(10, result.getRejections().size()))) {
+            message.append('\n').append(rejection);
+          }
+          JOptionPane.showMessageDialog(view, message.toString());
+        }
+        view.toFront();
+      }, EDT);
+    });
+
+    // Handle add category button clicks
+    view.getAddCategoryBtn().addActionListener(e -> {
+      String name = view.getNewCategoryInput();
+      if (name == null) {
+        return;
+      }
+      try {
+        if (!controller.addCategory(name.trim())) {
+          JOptionPane.showMessageDialog(view, "A category must be 1 to " + CategoryRegistry.MAX_NAME_LENGTH
+              + " letters, and at most " + CategoryRegistry.MAX_CATEGORIES + " categories can exist");
+        }
+      } catch (IOException exception) {
+        JOptionPane.showMessageDialog(view, "Could not save the category: " + exception.getMessage());
+      }
+      view.toFront();
+    });
+
     // Add action listener to the "Apply Category Filter" button
     view.addApplyCategoryFilterListener(e -> {
       try {
         String categoryFilterInput = view.getCategoryFilterInput();
-        CategoryFilter categoryFilter = new CategoryFilter(categoryFilterInput);
+        CategoryFilter categoryFilter = new CategoryFilter(categoryFilterInput, model.getCategories());
         if (categoryFilterInput != null) {
           // controller.applyCategoryFilter(categoryFilterInput);
           controller.setFilter(categoryFilter);
-          controller.applyFilter();
+          controller.applyFilterAsync();
         }
       } catch (IllegalArgumentException exception) {
         JOptionPane.showMessageDialog(view, exception.getMessage());
@@ -92,7 +201,7 @@ public class ExpenseTrackerApp {
         AmountFilter amountFilter = new AmountFilter(amountFilterInput);
         if (amountFilterInput != 0.0) {
           controller.setFilter(amountFilter);
-          controller.applyFilter();
+          controller.applyFilterAsync();
         }
       } catch (IllegalArgumentException exception) {
         JOptionPane.showMessageDialog(view, exception.getMessage());
@@ -101,4 +210,55 @@ public class ExpenseTrackerApp {
     });
 
   }
+
+  /**
+   * This method serves the transactions over HTTP on the loopback interface.
+   * Changes made through the server are shown in the view.
+   *
+   * @param engine - the engine of the controller
+   * @param port   - the port to listen on
+   */
+  private static void startServer(ExpenseEngine engine, int port) {
+    try {
+      ExpenseServer server = new ExpenseServer(engine, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+      server.start();
+      Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+    } catch (IOException e) {
+      System.err.println("Could not start the server: " + e.getMessage());
+    }
+  }
+
+  /**
+   * This method opens the persistent model, either a memory-mapped ledger file
+   * or a journal in a data directory, and registers a shutdown hook which
+   * saves it on exit. If it cannot be opened, the transactions are only kept
+   * in memory.
+   * 
+   * @param location - ledger file or directory the transactions are persisted
+   *                 to
+   * @return the model
+   */
+  private static ExpenseTrackerModel openModel(String location) {
+    try {
+      // The store and the journal load the categories saved next to them
+      ExpenseTrackerModel model;
+      if (location.endsWith(LEDGER_EXTENSION)) {
+        model = new ExpenseTrackerModel(new MappedTransactionStore(Paths.get(location)));
+      } else {
+        TransactionJournal journal = new TransactionJournal(Paths.get(location), FsyncPolicy.INTERVAL);
+        model = new ExpenseTrackerModel(new ColumnarTransactionStore(), journal);
+      }
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        try {
+          model.close();
+        } catch (IOException e) {
+          System.err.println("Could not save transactions: " + e.getMessage());
+        }
+      }));
+      return model;
+    } catch (IOException | IllegalArgumentException e) {
+      JOptionPane.showMessageDialog(null, "Could not open saved transactions: " + e.getMessage());
+      return new ExpenseTrackerModel();
+    }
+  }
 }
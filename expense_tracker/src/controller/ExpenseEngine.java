@@ -0,0 +1,396 @@
+package controller;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import model.CategoryRegistry;
+import model.ExpenseTrackerModel;
+import model.Money;
+import model.Selection;
+import model.Transaction;
+import model.Aggregate.Aggregates;
+import model.Aggregate.Bucket;
+import model.Aggregate.Granularity;
+import model.Filter.TransactionFilter;
+import model.Index.RowBitmap;
+import model.Storage.TransactionSnapshot;
+
+/**
+ * ExpenseEngine adds, imports, filters, deletes and reports transactions
+ * without a user interface, so the same operations run in the app, in a
+ * server, in batch jobs and in tests.
+ *
+ * It owns the model and tells its ExpenseListeners about every change. It is
+ * safe to use from several threads.
+ */
+public class ExpenseEngine {
+
+  /**
+   * The data model
+   */
+  private final ExpenseTrackerModel model;
+
+  /**
+   * The listeners, notified in the order they were added
+   */
+  private final List<ExpenseListener> listeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Constructor to initialize the engine with an empty model
+   */
+  public ExpenseEngine() {
+    this(new ExpenseTrackerModel());
+  }
+
+  /**
+   * Constructor to initialize the engine
+   *
+   * @param model - The transaction model
+   */
+  public ExpenseEngine(ExpenseTrackerModel model) {
+    this.model = model;
+  }
+
+  /**
+   * This method returns the model of the engine
+   *
+   * @return the model
+   */
+  public ExpenseTrackerModel getModel() {
+    return model;
+  }
+
+  /**
+   * This method subscribes a listener to the changes of the engine
+   *
+   * @param listener - the listener to notify
+   */
+  public void addListener(ExpenseListener listener) {
+    if (listener == null) {
+      throw new IllegalArgumentException("The listener must not be null.");
+    }
+    listeners.add(listener);
+  }
+
+  /**
+   * This method unsubscribes a listener
+   *
+   * @param listener - the listener to remove
+   */
+  public void removeListener(ExpenseListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * This method checks if a transaction is valid.
+   * If valid, it adds a transaction to the model.
+   *
+   * @param amount   - amount field of a transaction
+   * @param category - category field of a transaction
+   * @return the added transaction, null if it is not valid
+   */
+  public Transaction addTransaction(double amount, String category) {
+    if (!InputValidation.isValidAmount(amount)) {
+      return null;
+    }
+    if (!InputValidation.isValidCategory(category, model.getCategories())) {
+      return null;
+    }
+
+    Transaction t = Transaction.ofCents(Money.toCents(amount), category, Transaction.getClock().millis(),
+        model.getCategories());
+    model.addTransaction(t);
+    fireTransactionsAdded(model.getSnapshot());
+    return t;
+  }
+
+  /**
+   * This method registers a custom category, which is valid for new
+   * transactions and filters right away
+   *
+   * @param name - the category name, letters only
+   * @return the category code, the existing one if the category is known
+   * @throws IllegalArgumentException if the name is not valid or there are
+   *                                  too many categories
+   * @throws IOException              if the category cannot be saved
+   */
+  public int addCategory(String name) throws IOException {
+    return model.getCategories().register(name);
+  }
+
+  /**
+   * This method returns the names of all categories in code order
+   *
+   * @return the category names
+   */
+  public List<String> getCategories() {
+    CategoryRegistry categories = model.getCategories();
+    List<String> names = new ArrayList<>(categories.size());
+    for (int code = 0; code < categories.size(); code++) {
+      names.add(categories.getName(code));
+    }
+    return names;
+  }
+
+  /**
+   * This method adds a batch of transactions as one change, and notifies the
+   * listeners once
+   *
+   * @param batch - the transactions to add
+   * @throws IllegalArgumentException if a transaction is null, in which case
+   *                                  none is added
+   */
+  public void addAll(List<Transaction> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    model.addAll(batch);
+    fireTransactionsAdded(model.getSnapshot());
+  }
+
+  /**
+   * This method imports a CSV or JSON Lines file into the model. The rows are
+   * parsed and validated in parallel, and the listeners are notified once per
+   * batch of rows instead of once per row.
+   *
+   * @param file - the file to import
+   * @return the number of imported rows and the rejected rows
+   * @throws IOException if the file cannot be read
+   */
+  public ImportResult importTransactions(Path file) throws IOException {
+    TransactionImporter importer = new TransactionImporter(model);
+    return importer.importFile(file, this::fireTransactionsAdded);
+  }
+
+  /**
+   * This method returns the rows which pass a filter without notifying the
+   * listeners
+   *
+   * @param filter - the filter to apply
+   * @return ascending row indexes in the current snapshot of the model
+   */
+  public int[] select(TransactionFilter filter) {
+    return model.select(filter).getRows();
+  }
+
+  /**
+   * This method returns the rows which pass a filter together with the
+   * snapshot they refer to, without notifying the listeners. The rows can be
+   * read from the snapshot while the model keeps changing.
+   *
+   * @param filter - the filter to apply
+   * @return the selected rows and their snapshot
+   */
+  public Selection query(TransactionFilter filter) {
+    // The QueryPlanner answers indexed filters from the model indexes and
+    // evaluates the rest in one pass, against the snapshot it returns
+    return model.select(filter);
+  }
+
+  /**
+   * This method applies a filter and tells the listeners which rows pass it,
+   * e.g. to highlight them
+   *
+   * @param filter - the filter to apply
+   * @return the filtered transactions
+   * @throws IllegalArgumentException if the filter is null
+   */
+  public List<Transaction> applyFilter(TransactionFilter filter) {
+    if (filter == null) {
+      throw new IllegalArgumentException("The filter must not be null.");
+    }
+    Selection selection = query(filter);
+    int[] rows = selection.getRows();
+    if (!listeners.isEmpty()) {
+      RowBitmap bitmap = RowBitmap.of(rows);
+      for (ExpenseListener listener : listeners) {
+        listener.filterApplied(bitmap);
+      }
+    }
+    // The filter returns row positions, so no row has to be looked up
+    TransactionSnapshot transactions = selection.getTransactions();
+    List<Transaction> filteredTransactions = new ArrayList<>(rows.length);
+    for (int row : rows) {
+      filteredTransactions.add(transactions.get(row));
+    }
+    return filteredTransactions;
+  }
+
+  /**
+   * This method removes the transaction of a row from the model
+   *
+   * @param row - the row index of the transaction to be removed
+   * @return removed transaction
+   * @throws IndexOutOfBoundsException if the row does not exist
+   */
+  public Transaction deleteRow(int row) {
+    TransactionSnapshot transactions = model.getSnapshot();
+    if (transactions.size() == 0) {
+      throw new IndexOutOfBoundsException("Table is empty, cannot perform undo");
+    }
+    return deleteTransaction(transactions.getId(row));
+  }
+
+  /**
+   * This method removes the transaction with the given id from the model. The
+   * id does not depend on the row a sorted or filtered view shows the
+   * transaction in.
+   *
+   * @param id - the id of the transaction to be removed
+   * @return removed transaction
+   * @throws NoSuchElementException if no transaction has the id
+   */
+  public Transaction deleteTransaction(long id) {
+    // Transactions never change, so the published one is the one removed
+    TransactionSnapshot transactions = model.getSnapshot();
+    int known = transactions.indexOf(id);
+    if (known == -1) {
+      throw new NoSuchElementException("No transaction with id " + id);
+    }
+    Transaction t = transactions.get(known);
+    int row = model.removeTransaction(id);
+    if (row == -1) {
+      throw new NoSuchElementException("No transaction with id " + id);
+    }
+    if (!listeners.isEmpty()) {
+      TransactionSnapshot remaining = model.getSnapshot();
+      Aggregates aggregates = model.getAggregates();
+      for (ExpenseListener listener : listeners) {
+        listener.transactionRemoved(remaining, row, aggregates);
+      }
+    }
+    return t;
+  }
+
+  /**
+   * This method removes the transactions with the given ids as one change,
+   * and notifies the listeners once
+   *
+   * @param ids - the ids of the transactions to be removed
+   * @return the number of removed transactions
+   * @throws NoSuchElementException if no transaction has one of the ids, in
+   *                                which case none is removed
+   */
+  public int removeAll(long[] ids) {
+    int[] rows = model.removeAll(ids);
+    fireTransactionsRemoved(rows);
+    return rows.length;
+  }
+
+  /**
+   * This method removes every transaction which passes a filter as one
+   * change, and notifies the listeners once
+   *
+   * @param filter - the filter selecting the transactions to be removed
+   * @return the number of removed transactions
+   * @throws IllegalArgumentException if filter is null
+   */
+  public int removeWhere(TransactionFilter filter) {
+    int[] rows = model.removeWhere(filter);
+    fireTransactionsRemoved(rows);
+    return rows.length;
+  }
+
+  /**
+   * This method returns an immutable snapshot of the transactions
+   *
+   * @return the current snapshot of the model
+   */
+  public TransactionSnapshot getSnapshot() {
+    return model.getSnapshot();
+  }
+
+  /**
+   * This method returns the count, sum, minimum and maximum of the amounts,
+   * overall and per category
+   *
+   * @return the current aggregates of the model
+   */
+  public Aggregates getAggregates() {
+    return model.getAggregates();
+  }
+
+  /**
+   * This method returns the spending of a time range for a report, e.g. the
+   * travel spending of a quarter. It is answered from the time buckets of the
+   * model without reading the transactions.
+   *
+   * @param category - category to report, or null for all categories
+   * @param from     - start of the range, epoch milliseconds, inclusive
+   * @param to       - end of the range, epoch milliseconds, exclusive
+   * @return number and sum of the transactions of the range
+   * @throws IllegalArgumentException if the category is not valid
+   */
+  public Bucket getSpending(String category, long from, long to) {
+    return model.getSpending(reportCategoryCode(category), from, to);
+  }
+
+  /**
+   * This method returns the minutes, days or months of a time range which
+   * hold any transaction, e.g. for a report panel drawing daily spending
+   *
+   * @param granularity - size of the buckets
+   * @param category    - category to report, or null for all categories
+   * @param from        - start of the range, epoch milliseconds, inclusive
+   * @param to          - end of the range, epoch milliseconds, exclusive
+   * @return the buckets in time order
+   * @throws IllegalArgumentException if the category is not valid
+   */
+  public List<Bucket> getRollup(Granularity granularity, String category, long from, long to) {
+    return model.getRollup(granularity, reportCategoryCode(category), from, to);
+  }
+
+  /**
+   * This method returns the category code of a reported category
+   *
+   * @param category - category to report, or null for all categories
+   * @return category code, -1 for all categories
+   * @throws IllegalArgumentException if the category is not valid
+   */
+  private int reportCategoryCode(String category) {
+    if (category == null) {
+      return -1;
+    }
+    int categoryCode = model.getCategories().getCode(category);
+    if (categoryCode == -1) {
+      throw new IllegalArgumentException("The category is not valid.");
+    }
+    return categoryCode;
+  }
+
+  /**
+   * This method tells the listeners about appended rows
+   *
+   * @param transactions - snapshot of the model including the new rows
+   */
+  private void fireTransactionsAdded(TransactionSnapshot transactions) {
+    // Without listeners the aggregates are not needed
+    if (listeners.isEmpty()) {
+      return;
+    }
+    Aggregates aggregates = model.getAggregates();
+    for (ExpenseListener listener : listeners) {
+      listener.transactionsAdded(transactions, aggregates);
+    }
+  }
+
+  /**
+   * This method notifies the listeners of a batch of removed rows
+   *
+   * @param rows - ascending row indexes the removed transactions had
+   */
+  private void fireTransactionsRemoved(int[] rows) {
+    if (rows.length == 0 || listeners.isEmpty()) {
+      return;
+    }
+    TransactionSnapshot remaining = model.getSnapshot();
+    Aggregates aggregates = model.getAggregates();
+    for (ExpenseListener listener : listeners) {
+      listener.transactionsRemoved(remaining, rows, aggregates);
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package controller;
+
+import model.Aggregate.Aggregates;
+import model.Index.RowBitmap;
+import model.Storage.TransactionSnapshot;
+
+/**
+ * ExpenseListener is notified of the changes an ExpenseEngine makes, e.g. to
+ * show them in a view.
+ *
+ * The events are delivered on the thread which made the change, after the
+ * model has changed. A listener which updates a user interface has to hand
+ * them over to its own thread.
+ */
+public interface ExpenseListener {
+
+  /**
+   * This method is called when transactions were appended to the model
+   *
+   * @param transactions - snapshot of the model including the new rows
+   * @param aggregates   - aggregates of the model including the new rows
+   */
+  default void transactionsAdded(TransactionSnapshot transactions, Aggregates aggregates) {
+  }
+
+  /**
+   * This method is called when a transaction was removed from the model
+   *
+   * @param transactions - snapshot of the model without the removed row
+   * @param row          - row index the removed transaction had
+   * @param aggregates   - aggregates of the model without the removed row
+   */
+  default void transactionRemoved(TransactionSnapshot transactions, int row, Aggregates aggregates) {
+  }
+
+  /**
+   * This method is called once when a batch of transactions was removed from
+   * the model
+   *
+   * @param transactions - snapshot of the model without the removed rows
+   * @param rows         - ascending row indexes the removed transactions had
+   * @param aggregates   - aggregates of the model without the removed rows
+   */
+  default void transactionsRemoved(TransactionSnapshot transactions, int[] rows, Aggregates aggregates) {
+  }
+
+  /**
+   * This method is called when a filter was applied
+   *
+   * @param rows - the rows which pass the filter
+   */
+  default void filterApplied(RowBitmap rows) {
+  }
+}
@@ -2,27 +2,74 @@ package controller;
 
 import view.ExpenseTrackerView;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.swing.JButton;
 import javax.swing.JOptionPane;
 
+import metrics.Metrics;
+import metrics.Timer;
+
+import model.CategoryRegistry;
 import model.ExpenseTrackerModel;
 import model.Transaction;
+import model.Aggregate.Aggregates;
+import model.Aggregate.Bucket;
+import model.Aggregate.Granularity;
+import model.Storage.TransactionSnapshot;
 import model.Filter.TransactionFilter;
+import model.Index.RowBitmap;
 
 /**
  * ExpenseTrackerController defines controller which makes facilitates
  * communication between the model and the view. Adds methods to add, delete and
  * filter transactions
+ *
+ * The operations are run by a headless ExpenseEngine, which the view follows
+ * as an ExpenseListener. Every operation has a synchronous version, which
+ * updates the view before it returns, and an asynchronous version for the
+ * Event Dispatch Thread, which runs on a background thread and hands its view
+ * updates to a ViewPublisher. Changes made through the engine by anyone else
+ * are handed to the ViewPublisher as well.
  */
 public class ExpenseTrackerController {
 
   /**
-   * The data model
+   * Latency of adding a transaction, synchronously or not
    */
-  private ExpenseTrackerModel model;
+  private static final Timer ADD_TIMER = Metrics.timer("controller.addTransaction");
+
+  /**
+   * Latency of importing a file, synchronously or not
+   */
+  private static final Timer IMPORT_TIMER = Metrics.timer("controller.importTransactions");
+
+  /**
+   * Latency of applying the filter, synchronously or not
+   */
+  private static final Timer FILTER_TIMER = Metrics.timer("controller.applyFilter");
+
+  /**
+   * Latency of refreshing the view
+   */
+  private static final Timer REFRESH_TIMER = Metrics.timer("controller.refresh");
+
+  /**
+   * Latency of deleting a row, synchronously or not
+   */
+  private static final Timer DELETE_TIMER = Metrics.timer("controller.deleteRow");
+
+  /**
+   * Adds, filters and deletes the transactions of the model
+   */
+  private final ExpenseEngine engine;
 
   /**
    * The UI of the app
@@ -34,7 +81,33 @@ public class ExpenseTrackerController {
    * This is the has-a relationship with the Strategy class
    * being used in the applyFilter method.
    */
-  private TransactionFilter filter;
+  private volatile TransactionFilter filter;
+
+  /**
+   * The model version the view was last refreshed with
+   */
+  private volatile long refreshedVersion = -1;
+
+  /**
+   * Set while a synchronous operation runs on the current thread, whose
+   * changes are shown right away instead of on the EDT
+   */
+  private final ThreadLocal<Boolean> updatingView = new ThreadLocal<>();
+
+  /**
+   * Runs the asynchronous operations one at a time, in the order they were
+   * started
+   */
+  private final ExecutorService background = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "expense-tracker-controller");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Shows the results of the asynchronous operations on the EDT
+   */
+  private final ViewPublisher publisher;
 
   /**
    * Constructor to initialize the model and the view
@@ -44,14 +117,37 @@ public class ExpenseTrackerController {
    * 
    */
   public ExpenseTrackerController(ExpenseTrackerModel model, ExpenseTrackerView view) {
-    this.model = model;
+    this(new ExpenseEngine(model), view);
+  }
+
+  /**
+   * Constructor to initialize the engine and the view. The view follows every
+   * change of the engine.
+   *
+   * @param engine - The engine owning the transaction model
+   * @param view   - The view
+   */
+  public ExpenseTrackerController(ExpenseEngine engine, ExpenseTrackerView view) {
+    this.engine = engine;
     this.view = view;
+    this.publisher = new ViewPublisher(view);
+    engine.addListener(new ViewUpdater());
+  }
+
+  /**
+   * This method returns the engine running the operations of the controller
+   *
+   * @return the engine
+   */
+  public ExpenseEngine getEngine() {
+    return engine;
   }
 
   /**
    * This method sets the filter based on user selection
    * 
-   * @param filter - Sets the filter to either amount or category filter.
+   * @param filter - Sets the filter to an amount, category, range or date
+   *               filter, or a combination of them.
    */
   public void setFilter(TransactionFilter filter) {
     // Sets the Strategy class being used in the applyFilter method.
@@ -62,11 +158,28 @@ public class ExpenseTrackerController {
    * This method refreshes the view to display the changes
    */
   public void refresh() {
-    List<Transaction> transactions = model.getTransactions();
-    view.refreshTable(transactions);
+    long start = Metrics.start();
+    try {
+      // Nothing changed since the last refresh
+      if (engine.getModel().getVersion() == refreshedVersion) {
+        return;
+      }
+      TransactionSnapshot transactions = engine.getSnapshot();
+      refreshedVersion = transactions.getVersion();
+      view.refreshTable(transactions, engine.getAggregates().getTotal().getSum());
+      updateDeleteButton(transactions.size());
+    } finally {
+      REFRESH_TIMER.stop(start);
+    }
+  }
 
+  /**
+   * This method enables the delete button only if there are transactions
+   * 
+   * @param transactionsSize - number of transactions
+   */
+  private void updateDeleteButton(int transactionsSize) {
     JButton deleteTransactionBtn = view.getDeleteTransactionBtn();
-    int transactionsSize = transactions.size();
     if (transactionsSize <= 0) {
       deleteTransactionBtn.setEnabled(false);
     }
@@ -86,18 +199,75 @@ public class ExpenseTrackerController {
    * @return boolean - whether the transaction was added or not
    */
   public boolean addTransaction(double amount, String category) {
-    if (!InputValidation.isValidAmount(amount)) {
-      return false;
+    long start = Metrics.start();
+    updatingView.set(Boolean.TRUE);
+    try {
+      return engine.addTransaction(amount, category) != null;
+    } finally {
+      updatingView.remove();
+      ADD_TIMER.stop(start);
     }
-    if (!InputValidation.isValidCategory(category)) {
-      return false;
+  }
+
+  /**
+   * This method adds a transaction like addTransaction, but on a background
+   * thread. The view is updated on the EDT.
+   * 
+   * @param amount   - amount field of a transaction
+   * @param category - category field of a transaction
+   * @return completes with whether the transaction was added or not
+   */
+  public CompletableFuture<Boolean> addTransactionAsync(double amount, String category) {
+    return CompletableFuture.supplyAsync(() -> {
+      long start = Metrics.start();
+      try {
+        return engine.addTransaction(amount, category) != null;
+      } finally {
+        ADD_TIMER.stop(start);
+      }
+    }, background);
+  }
+
+  /**
+   * This method imports a CSV or JSON Lines file into the model. The rows are
+   * parsed and validated in parallel, and the table is updated once per batch
+   * of rows instead of once per row.
+   *
+   * @param file - the file to import
+   * @return the number of imported rows and the rejected rows
+   * @throws IOException if the file cannot be read
+   */
+  public ImportResult importTransactions(Path file) throws IOException {
+    long start = Metrics.start();
+    updatingView.set(Boolean.TRUE);
+    try {
+      return engine.importTransactions(file);
+    } finally {
+      updatingView.remove();
+      IMPORT_TIMER.stop(start);
     }
+  }
 
-    Transaction t = new Transaction(amount, category);
-    model.addTransaction(t);
-    view.getTableModel().addRow(new Object[] { t.getAmount(), t.getCategory(), t.getTimestamp() });
-    refresh();
-    return true;
+  /**
+   * This method imports a file like importTransactions, but on a background
+   * thread. Batches which finish within one frame are shown by one update of
+   * the table.
+   *
+   * @param file - the file to import
+   * @return completes with the number of imported rows and the rejected rows,
+   *         or exceptionally if the file cannot be read
+   */
+  public CompletableFuture<ImportResult> importTransactionsAsync(Path file) {
+    return CompletableFuture.supplyAsync(() -> {
+      long start = Metrics.start();
+      try {
+        return engine.importTransactions(file);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } finally {
+        IMPORT_TIMER.stop(start);
+      }
+    }, background);
   }
 
   /**
@@ -107,26 +277,76 @@ public class ExpenseTrackerController {
    * If no filter is applied, it displays message dialog with the said error.
    */
   public List<Transaction> applyFilter() {
-    // null check for filter
-    List<Transaction> transactions = model.getTransactions();
-    if (filter != null) {
-      // Use the Strategy class to perform the desired filtering
-      List<Transaction> filteredTransactions = filter.filter(transactions);
-      List<Integer> rowIndexes = new ArrayList<>();
-      for (Transaction t : filteredTransactions) {
-        int rowIndex = transactions.indexOf(t);
-        if (rowIndex != -1) {
-          rowIndexes.add(rowIndex);
-        }
+    long start = Metrics.start();
+    updatingView.set(Boolean.TRUE);
+    try {
+      // null check for filter
+      TransactionFilter filter = this.filter;
+      if (filter != null) {
+        return engine.applyFilter(filter);
+      } else {
+        JOptionPane.showMessageDialog(view, "No filter applied");
+        view.toFront();
+        return engine.getModel().getTransactions();
       }
-      view.highlightRows(rowIndexes);
-      return filteredTransactions;
-    } else {
-      JOptionPane.showMessageDialog(view, "No filter applied");
-      view.toFront();
-      return transactions;
+    } finally {
+      updatingView.remove();
+      FILTER_TIMER.stop(start);
+    }
+  }
+
+  /**
+   * This method applies the selected filter like applyFilter, but on a
+   * background thread. The rows are highlighted on the EDT.
+   *
+   * @return completes with the filtered transactions, or exceptionally with an
+   *         IllegalStateException if no filter is applied
+   */
+  public CompletableFuture<List<Transaction>> applyFilterAsync() {
+    TransactionFilter filter = this.filter;
+    if (filter == null) {
+      CompletableFuture<List<Transaction>> failed = new CompletableFuture<>();
+      failed.completeExceptionally(new IllegalStateException("No filter applied"));
+      return failed;
     }
+    return CompletableFuture.supplyAsync(() -> {
+      long start = Metrics.start();
+      try {
+        return engine.applyFilter(filter);
+      } finally {
+        FILTER_TIMER.stop(start);
+      }
+    }, background);
+  }
 
+  /**
+   * This method returns the spending of a time range for a report, e.g. the
+   * travel spending of a quarter. It is answered from the time buckets of the
+   * model without reading the transactions.
+   *
+   * @param category - category to report, or null for all categories
+   * @param from     - start of the range, epoch milliseconds, inclusive
+   * @param to       - end of the range, epoch milliseconds, exclusive
+   * @return number and sum of the transactions of the range
+   * @throws IllegalArgumentException if the category is not valid
+   */
+  public Bucket getSpending(String category, long from, long to) {
+    return engine.getSpending(category, from, to);
+  }
+
+  /**
+   * This method returns the minutes, days or months of a time range which
+   * hold any transaction, e.g. for a report panel drawing daily spending
+   *
+   * @param granularity - size of the buckets
+   * @param category    - category to report, or null for all categories
+   * @param from        - start of the range, epoch milliseconds, inclusive
+   * @param to          - end of the range, epoch milliseconds, exclusive
+   * @return the buckets in time order
+   * @throws IllegalArgumentException if the category is not valid
+   */
+  public List<Bucket> getRollup(Granularity granularity, String category, long from, long to) {
+    return engine.getRollup(granularity, category, from, to);
   }
 
   /**
@@ -139,14 +359,227 @@ public class ExpenseTrackerController {
    *                                   a transaction
    */
   public Transaction deleteRow(int selectedRow) {
-    List<Transaction> transactions = model.getTransactions();
-    if (transactions.size() == 0) {
-      throw new IndexOutOfBoundsException("Table is empty, cannot perform undo");
+    long start = Metrics.start();
+    updatingView.set(Boolean.TRUE);
+    try {
+      return engine.deleteRow(selectedRow);
+    } finally {
+      updatingView.remove();
+      DELETE_TIMER.stop(start);
+    }
+  }
+
+  /**
+   * This method deletes a transaction like deleteRow, but on a background
+   * thread. The view is updated on the EDT.
+   *
+   * @param selectedRow - the row index in the transactions table to be removed
+   * @return completes with the deleted transaction, or exceptionally with an
+   *         IndexOutOfBoundsException if the row does not exist
+   */
+  public CompletableFuture<Transaction> deleteRowAsync(int selectedRow) {
+    return CompletableFuture.supplyAsync(() -> {
+      long start = Metrics.start();
+      try {
+        return engine.deleteRow(selectedRow);
+      } finally {
+        DELETE_TIMER.stop(start);
+      }
+    }, background);
+  }
+
+  /**
+   * This method deletes the transaction with the given id from the model and
+   * the view. Unlike the row, the id stays the same while the table is sorted
+   * or filtered.
+   *
+   * @param id - the id of the transaction to be removed
+   * @return deleted transaction
+   * @throws NoSuchElementException if no transaction has the id
+   */
+  public Transaction deleteTransaction(long id) {
+    long start = Metrics.start();
+    updatingView.set(Boolean.TRUE);
+    try {
+      return engine.deleteTransaction(id);
+    } finally {
+      updatingView.remove();
+      DELETE_TIMER.stop(start);
+    }
+  }
+
+  /**
+   * This method deletes a transaction like deleteTransaction, but on a
+   * background thread. The view is updated on the EDT.
+   *
+   * @param id - the id of the transaction to be removed
+   * @return completes with the deleted transaction, or exceptionally with a
+   *         NoSuchElementException if no transaction has the id
+   */
+  public CompletableFuture<Transaction> deleteTransactionAsync(long id) {
+    return CompletableFuture.supplyAsync(() -> {
+      long start = Metrics.start();
+      try {
+        return engine.deleteTransaction(id);
+      } finally {
+        DELETE_TIMER.stop(start);
+      }
+    }, background);
+  }
+
+  /**
+   * This method registers a custom category entered by the user
+   *
+   * @param name - the category name
+   * @return whether the name is a valid category name; a known category is
+   *         valid and not registered again
+   * @throws IOException if the category cannot be saved
+   */
+  public boolean addCategory(String name) throws IOException {
+    if (!CategoryRegistry.isValidName(name)) {
+      return false;
+    }
+    try {
+      engine.addCategory(name);
+      return true;
+    } catch (IllegalArgumentException e) {
+      // Too many categories
+      return false;
+    }
+  }
+
+  /**
+   * This method adds a batch of transactions to the model as one change and
+   * shows them in the view with one update
+   *
+   * @param batch - the transactions to add
+   * @throws IllegalArgumentException if a transaction is null, in which case
+   *                                  none is added
+   */
+  public void addAll(List<Transaction> batch) {
+    long start = Metrics.start();
+    updatingView.set(Boolean.TRUE);
+    try {
+      engine.addAll(batch);
+    } finally {
+      updatingView.remove();
+      ADD_TIMER.stop(start);
+    }
+  }
+
+  /**
+   * This method deletes the transactions with the given ids from the model as
+   * one change, e.g. the selected rows of the table, and repaints the view
+   * once
+   *
+   * @param ids - the ids of the transactions to be removed
+   * @return the number of deleted transactions
+   * @throws NoSuchElementException if no transaction has one of the ids, in
+   *                                which case none is deleted
+   */
+  public int deleteTransactions(long[] ids) {
+    long start = Metrics.start();
+    updatingView.set(Boolean.TRUE);
+    try {
+      return engine.removeAll(ids);
+    } finally {
+      updatingView.remove();
+      DELETE_TIMER.stop(start);
+    }
+  }
+
+  /**
+   * This method deletes transactions like deleteTransactions, but on a
+   * background thread. The view is updated on the EDT.
+   *
+   * @param ids - the ids of the transactions to be removed
+   * @return completes with the number of deleted transactions, or
+   *         exceptionally with a NoSuchElementException if no transaction has
+   *         one of the ids
+   */
+  public CompletableFuture<Integer> deleteTransactionsAsync(long[] ids) {
+    return CompletableFuture.supplyAsync(() -> {
+      long start = Metrics.start();
+      try {
+        return engine.removeAll(ids);
+      } finally {
+        DELETE_TIMER.stop(start);
+      }
+    }, background);
+  }
+
+  /**
+   * This method deletes every transaction which passes a filter as one
+   * change, e.g. a batch of mis-imported rows, and repaints the view once
+   *
+   * @param filter - the filter selecting the transactions to be removed
+   * @return the number of deleted transactions
+   * @throws IllegalArgumentException if filter is null
+   */
+  public int deleteWhere(TransactionFilter filter) {
+    long start = Metrics.start();
+    updatingView.set(Boolean.TRUE);
+    try {
+      return engine.removeWhere(filter);
+    } finally {
+      updatingView.remove();
+      DELETE_TIMER.stop(start);
+    }
+  }
+
+  /**
+   * ViewUpdater shows the changes of the engine in the view: right away if
+   * they were made by a synchronous operation of the controller, otherwise
+   * through the ViewPublisher on the EDT.
+   */
+  private final class ViewUpdater implements ExpenseListener {
+
+    @Override
+    public void transactionsAdded(TransactionSnapshot transactions, Aggregates aggregates) {
+      refreshedVersion = transactions.getVersion();
+      double totalCost = aggregates.getTotal().getSum();
+      if (updatingView.get() != null) {
+        // Only the new rows changed, the view does not need a full refresh
+        view.addTableRow(transactions, totalCost);
+        updateDeleteButton(transactions.size());
+      } else {
+        publisher.rowsAdded(transactions, totalCost);
+      }
+    }
+
+    @Override
+    public void transactionRemoved(TransactionSnapshot transactions, int row, Aggregates aggregates) {
+      refreshedVersion = transactions.getVersion();
+      double totalCost = aggregates.getTotal().getSum();
+      if (updatingView.get() != null) {
+        // Only the removed row changed, the view does not need a full refresh
+        view.removeTableRow(transactions, row, totalCost);
+        updateDeleteButton(transactions.size());
+      } else {
+        publisher.rowRemoved(transactions, row, totalCost);
+      }
+    }
+
+    @Override
+    public void transactionsRemoved(TransactionSnapshot transactions, int[] rows, Aggregates aggregates) {
+      refreshedVersion = transactions.getVersion();
+      double totalCost = aggregates.getTotal().getSum();
+      if (updatingView.get() != null) {
+        // One repaint of the table for the whole batch
+        view.refreshTable(transactions, totalCost);
+        updateDeleteButton(transactions.size());
+      } else {
+        publisher.rowsRemoved(transactions, rows, totalCost);
+      }
+    }
+
+    @Override
+    public void filterApplied(RowBitmap rows) {
+      if (updatingView.get() != null) {
+        view.highlightRows(rows);
+      } else {
+        publisher.highlight(rows);
+      }
     }
-    view.removeTableRow(selectedRow);
-    Transaction t = transactions.get(selectedRow);
-    model.removeTransaction(t);
-    refresh();
-    return t;
   }
-}
\ No newline at end of file
+}
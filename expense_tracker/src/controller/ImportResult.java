@@ -0,0 +1,149 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ImportResult reports the outcome of a bulk import: how many rows were
+ * imported and which rows were rejected and why.
+ */
+public class ImportResult {
+
+  /**
+   * Only the first rejected rows are kept, so a file of bad rows cannot use up
+   * the memory. All of them are counted.
+   */
+  static final int MAX_REPORTED_REJECTIONS = 1000;
+
+  /**
+   * Number of imported rows
+   */
+  private long imported;
+
+  /**
+   * Number of rejected rows
+   */
+  private long rejectedCount;
+
+  /**
+   * The first rejected rows, in file order
+   */
+  private final List<Rejection> rejections = new ArrayList<>();
+
+  /**
+   * This method returns the number of imported rows
+   *
+   * @return number of imported rows
+   */
+  public long getImported() {
+    return imported;
+  }
+
+  /**
+   * This method returns the number of rejected rows
+   *
+   * @return number of rejected rows
+   */
+  public long getRejectedCount() {
+    return rejectedCount;
+  }
+
+  /**
+   * This method returns the first rejected rows in file order, at most
+   * MAX_REPORTED_REJECTIONS of them
+   *
+   * @return rejected rows
+   */
+  public List<Rejection> getRejections() {
+    return Collections.unmodifiableList(rejections);
+  }
+
+  /**
+   * This method counts imported rows
+   *
+   * @param rows - number of imported rows
+   */
+  void addImported(int rows) {
+    imported += rows;
+  }
+
+  /**
+   * This method records a rejected row
+   *
+   * @param rejection - the rejected row
+   */
+  void addRejection(Rejection rejection) {
+    rejectedCount++;
+    if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+      rejections.add(rejection);
+    }
+  }
+
+  /**
+   * A row of the imported file which did not pass validation
+   */
+  public static class Rejection {
+
+    /**
+     * Line number of the row, starting at 1
+     */
+    private final long line;
+
+    /**
+     * The row as read from the file
+     */
+    private final String text;
+
+    /**
+     * Why the row was rejected
+     */
+    private final String reason;
+
+    /**
+     * Initialize the rejected row
+     *
+     * @param line   - line number of the row, starting at 1
+     * @param text   - the row as read from the file
+     * @param reason - why the row was rejected
+     */
+    public Rejection(long line, String text, String reason) {
+      this.line = line;
+      this.text = text;
+      this.reason = reason;
+    }
+
+    /**
+     * This method returns the line number of the row
+     *
+     * @return line number, starting at 1
+     */
+    public long getLine() {
+      return line;
+    }
+
+    /**
+     * This method returns the row as read from the file
+     *
+     * @return the row
+     */
+    public String getText() {
+      return text;
+    }
+
+    /**
+     * This method returns why the row was rejected
+     *
+     * @return the reason
+     */
+    public String getReason() {
+      return reason;
+    }
+
+    @Override
+    public String toString() {
+      return "line " + line + ": " + reason + " (" + text + ")";
+    }
+  }
+
+}
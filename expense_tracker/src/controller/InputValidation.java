@@ -1,65 +1,110 @@
 package controller;
 
-import java.util.Arrays;
+import model.CategoryRegistry;
+import model.Money;
 
 /**
  * InputValidation class defines methods to validate user enetered amount and category
  */
 public class InputValidation {
 
+  /**
+   * Largest valid amount in cents
+   */
+  private static final long MAX_AMOUNT_CENTS = 1000L * Money.CENTS_PER_UNIT;
+
+  /**
+   * Largest distance in cents from a whole number of cents which an amount
+   * may have, for the error of decimal fractions stored as a double
+   */
+  private static final double CENTS_TOLERANCE = 1e-6;
+
   /**
    * This method validates the transaction amount.
-   * Returns true only if amount is greater than 0 and less than 1000 else false
+   * Returns true only if amount is greater than 0 and at most 1000, in whole
+   * cents, else false. An amount with a fraction of a cent is not valid, so
+   * rounding it to the stored cents never moves it into or out of the range.
    * 
    * @param amount - the amount field of a transaction
    * @return boolean value - whether amount is valid or not
    */
   public static boolean isValidAmount(double amount) {
-
-    // Check range
-    if (amount > 1000) {
-      return false;
-    }
-    if (amount < 0) {
+    // Written so that NaN fails the check
+    if (!(amount > 0 && amount <= 1000)) {
       return false;
     }
-    if (amount == 0) {
-      return false;
-    }
-    return true;
+    double cents = amount * Money.CENTS_PER_UNIT;
+    return Math.abs(cents - Math.rint(cents)) < CENTS_TOLERANCE;
+  }
+
+  /**
+   * This method validates a transaction amount in cents.
+   * Returns true only if amount is greater than 0 and at most 1000 else false
+   * 
+   * @param cents - the amount of a transaction in cents
+   * @return boolean value - whether amount is valid or not
+   */
+  public static boolean isValidCents(long cents) {
+    // One unsigned comparison checks both ends of the range
+    return Long.compareUnsigned(cents - 1, MAX_AMOUNT_CENTS) < 0;
   }
 
   /**
    * This method validates the transaction category.
-   * Returns true if the category is in one of the validWords defined below else
-   * false
+   * Returns true if the category is one of the built-in categories else false
    * 
    * @param category - the category field of a transaction
    * @return boolean value - whether category is valid or not
    */
   public static boolean isValidCategory(String category) {
+    return isValidCategory(category, CategoryRegistry.BUILT_IN);
+  }
 
-    if (category == null) {
-      return false;
-    }
-
-    if (category.trim().isEmpty()) {
-      return false;
-    }
-
-    if (!category.matches("[a-zA-Z]+")) {
-      return false;
-    }
-
-    String[] validWords = { "food", "travel", "bills", "entertainment", "other" };
+  /**
+   * This method validates the transaction category.
+   * Returns true if the category is one of the built-in or registered
+   * categories of the registry else false
+   * 
+   * @param category   - the category field of a transaction
+   * @param categories - the registry of the model, so custom categories are
+   *                   valid as soon as they are registered
+   * @return boolean value - whether category is valid or not
+   */
+  public static boolean isValidCategory(String category, CategoryRegistry categories) {
+    // null, empty, non-letter and unknown categories have no code
+    return categories.getCode(category) != -1;
+  }
 
-    if (!Arrays.asList(validWords).contains(category.toLowerCase())) {
-      // invalid word
-      return false;
-    }
+  /**
+   * This method returns the category code of a built-in category.
+   * Categories are matched ignoring case. The lookup does not allocate.
+   * 
+   * @param category - the category field of a transaction
+   * @return category code, or -1 if the category is not valid
+   */
+  public static int getCategoryCode(String category) {
+    return CategoryRegistry.BUILT_IN.getCode(category);
+  }
 
-    return true;
+  /**
+   * This method returns the canonical name of a built-in category code
+   * 
+   * @param code - a category code
+   * @return category name
+   * @throws IndexOutOfBoundsException if the code is not valid
+   */
+  public static String getCategoryName(int code) {
+    return CategoryRegistry.BUILT_IN.getName(code);
+  }
 
+  /**
+   * This method returns the number of built-in categories. Their codes are
+   * between 0 and this number.
+   * 
+   * @return number of categories
+   */
+  public static int getCategoryCount() {
+    return CategoryRegistry.BUILT_IN.size();
   }
 
-}
\ No newline at end of file
+}
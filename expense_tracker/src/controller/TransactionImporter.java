@@ -0,0 +1,463 @@
+package controller;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import model.ExpenseTrackerModel;
+import model.Money;
+import model.Transaction;
+import model.Storage.TransactionSnapshot;
+
+/**
+ * TransactionImporter loads a CSV or JSON Lines file into the model.
+ *
+ * The file is streamed in three stages: the calling thread reads batches of
+ * lines, a pool of worker threads parses and validates the batches, and the
+ * calling thread adds the valid transactions of every batch to the model in
+ * file order. Reading runs ahead of publishing by a bounded number of
+ * batches, so the whole file is never held in memory.
+ *
+ * CSV rows are amount,category[,timestamp] with an optional header row. JSON
+ * Lines rows are objects with the keys amount, category and optionally
+ * timestamp. Rows without a timestamp get the time the import started.
+ * Amounts are decimal numbers with at most two decimals.
+ */
+public class TransactionImporter {
+
+  /**
+   * Default number of rows per batch
+   */
+  public static final int DEFAULT_BATCH_SIZE = 8192;
+
+  /**
+   * The model the rows are imported into
+   */
+  private final ExpenseTrackerModel model;
+
+  /**
+   * Number of parse and validate threads
+   */
+  private final int threads;
+
+  /**
+   * Number of rows per batch
+   */
+  private final int batchSize;
+
+  /**
+   * Initialize an importer with one worker per processor and the default
+   * batch size
+   *
+   * @param model - the model the rows are imported into
+   */
+  public TransactionImporter(ExpenseTrackerModel model) {
+    this(model, Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Initialize an importer
+   *
+   * @param model     - the model the rows are imported into
+   * @param threads   - number of parse and validate threads
+   * @param batchSize - number of rows per batch
+   * @throws IllegalArgumentException if threads or batchSize is not positive
+   */
+  public TransactionImporter(ExpenseTrackerModel model, int threads, int batchSize) {
+    if (threads <= 0 || batchSize <= 0) {
+      throw new IllegalArgumentException("The number of threads and the batch size must be positive.");
+    }
+    this.model = model;
+    this.threads = threads;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * This method imports a file. Files ending in .jsonl or .json are read as
+   * JSON Lines, all others as CSV.
+   *
+   * @param file     - the file to import
+   * @param listener - called on the calling thread with a snapshot of the
+   *                 model after every batch added to it
+   * @return the number of imported rows and the rejected rows
+   * @throws IOException if the file cannot be read
+   */
+  public ImportResult importFile(Path file, Consumer<TransactionSnapshot> listener) throws IOException {
+    String name = file.getFileName().toString().toLowerCase();
+    boolean jsonLines = name.endsWith(".jsonl") || name.endsWith(".json");
+    // Rows without a timestamp share one reading of the clock
+    long importTime = Transaction.getClock().millis();
+
+    ImportResult result = new ImportResult();
+    ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "transaction-import");
+      thread.setDaemon(true);
+      return thread;
+    });
+    // Batches being parsed, in file order
+    ArrayDeque<Future<ParsedBatch>> pending = new ArrayDeque<>();
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      long firstLine = 1;
+      String[] lines = new String[batchSize];
+      int count = 0;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lines[count++] = line;
+        if (count == batchSize) {
+          pending.add(submit(workers, lines, count, firstLine, jsonLines, importTime));
+          firstLine += count;
+          lines = new String[batchSize];
+          count = 0;
+          // Keep every worker busy without reading too far ahead
+          if (pending.size() >= 2 * threads) {
+            publish(pending.poll(), result, listener);
+          }
+        }
+      }
+      if (count > 0) {
+        pending.add(submit(workers, lines, count, firstLine, jsonLines, importTime));
+      }
+      while (!pending.isEmpty()) {
+        publish(pending.poll(), result, listener);
+      }
+    } finally {
+      workers.shutdownNow();
+    }
+    return result;
+  }
+
+  /**
+   * This method hands a batch of lines to the workers
+   *
+   * @param workers    - the worker pool
+   * @param lines      - the lines
+   * @param count      - number of used entries of lines
+   * @param firstLine  - line number of the first line
+   * @param jsonLines  - whether the lines are JSON Lines rather than CSV
+   * @param importTime - time of rows without a timestamp, epoch milliseconds
+   * @return the parsed batch, once parsed
+   */
+  private Future<ParsedBatch> submit(ExecutorService workers, String[] lines, int count, long firstLine,
+      boolean jsonLines, long importTime) {
+    return workers.submit(() -> parse(lines, count, firstLine, jsonLines, importTime));
+  }
+
+  /**
+   * This method adds a parsed batch to the model and notifies the listener
+   *
+   * @param batch    - the batch, once parsed
+   * @param result   - collects the result
+   * @param listener - notified with a snapshot of the model
+   * @throws IOException if the thread was interrupted
+   */
+  private void publish(Future<ParsedBatch> batch, ImportResult result, Consumer<TransactionSnapshot> listener)
+      throws IOException {
+    ParsedBatch parsed;
+    try {
+      parsed = batch.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("The import was interrupted.");
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Could not parse the import file.", e.getCause());
+    }
+    for (ImportResult.Rejection rejection : parsed.rejections) {
+      result.addRejection(rejection);
+    }
+    if (!parsed.transactions.isEmpty()) {
+      model.addAll(parsed.transactions);
+      result.addImported(parsed.transactions.size());
+      listener.accept(model.getSnapshot());
+    }
+  }
+
+  /**
+   * This method parses and validates a batch of lines. It runs on a worker
+   * thread.
+   *
+   * @param lines      - the lines
+   * @param count      - number of used entries of lines
+   * @param firstLine  - line number of the first line
+   * @param jsonLines  - whether the lines are JSON Lines rather than CSV
+   * @param importTime - time of rows without a timestamp, epoch milliseconds
+   * @return the valid transactions and the rejected rows
+   */
+  private ParsedBatch parse(String[] lines, int count, long firstLine, boolean jsonLines, long importTime) {
+    ParsedBatch batch = new ParsedBatch(count);
+    for (int i = 0; i < count; i++) {
+      String line = lines[i];
+      long lineNumber = firstLine + i;
+      if (line.trim().isEmpty()) {
+        continue;
+      }
+      if (lineNumber == 1 && !jsonLines && line.trim().toLowerCase().startsWith("amount")) {
+        // CSV header row
+        continue;
+      }
+      try {
+        String[] fields = jsonLines ? parseJsonLine(line) : parseCsvLine(line);
+        batch.transactions.add(toTransaction(fields, importTime));
+      } catch (IllegalArgumentException e) {
+        batch.rejections.add(new ImportResult.Rejection(lineNumber, line, e.getMessage()));
+      }
+    }
+    return batch;
+  }
+
+  /**
+   * This method validates the fields of a row and creates its transaction
+   *
+   * @param fields     - amount, category and timestamp, the timestamp may be
+   *                   null
+   * @param importTime - time of rows without a timestamp, epoch milliseconds
+   * @return the transaction
+   * @throws IllegalArgumentException if a field is not valid
+   */
+  private Transaction toTransaction(String[] fields, long importTime) {
+    if (fields[0] == null) {
+      throw new IllegalArgumentException("The amount is not a number.");
+    }
+    // Parsed straight into cents, so amounts are exact
+    long cents = Money.parseCents(fields[0]);
+    if (!InputValidation.isValidCents(cents)) {
+      throw new IllegalArgumentException("The amount is not valid.");
+    }
+    int categoryCode = model.getCategories().getCode(fields[1]);
+    if (categoryCode == -1) {
+      throw new IllegalArgumentException("The category is not valid.");
+    }
+    long time = importTime;
+    if (fields[2] != null && !fields[2].isEmpty()) {
+      time = Transaction.parseTimestamp(fields[2]);
+    }
+    return Transaction.ofCode(cents, categoryCode, time, model.getCategories());
+  }
+
+  /**
+   * This method splits a CSV row into amount, category and timestamp. Fields
+   * may be enclosed in double quotes.
+   *
+   * @param line - the row
+   * @return amount, category and timestamp, the timestamp may be null
+   * @throws IllegalArgumentException if the row does not have 2 or 3 fields
+   */
+  static String[] parseCsvLine(String line) {
+    String[] fields = line.split(",", -1);
+    if (fields.length < 2 || fields.length > 3) {
+      throw new IllegalArgumentException("Expected amount,category[,timestamp].");
+    }
+    String[] row = new String[3];
+    for (int i = 0; i < fields.length; i++) {
+      String field = fields[i].trim();
+      if (field.length() >= 2 && field.charAt(0) == '"' && field.charAt(field.length() - 1) == '"') {
+        field = field.substring(1, field.length() - 1).trim();
+      }
+      row[i] = field;
+    }
+    return row;
+  }
+
+  /**
+   * This method reads amount, category and timestamp from a JSON object on a
+   * single line. Other keys are ignored.
+   *
+   * @param line - the row
+   * @return amount, category and timestamp, any of them may be null
+   * @throws IllegalArgumentException if the row is not a flat JSON object
+   */
+  public static String[] parseJsonLine(String line) {
+    String[] row = new String[3];
+    JsonScanner scanner = new JsonScanner(line);
+    scanner.expect('{');
+    if (!scanner.skip('}')) {
+      do {
+        String key = scanner.readString();
+        scanner.expect(':');
+        String value = scanner.readValue();
+        if (key.equals("amount")) {
+          row[0] = value;
+        } else if (key.equals("category")) {
+          row[1] = value;
+        } else if (key.equals("timestamp")) {
+          row[2] = value;
+        }
+      } while (scanner.skip(','));
+      scanner.expect('}');
+    }
+    scanner.expectEnd();
+    return row;
+  }
+
+  /**
+   * The valid transactions and the rejected rows of a batch
+   */
+  private static class ParsedBatch {
+
+    /**
+     * The valid transactions in file order
+     */
+    final List<Transaction> transactions;
+
+    /**
+     * The rejected rows in file order
+     */
+    final List<ImportResult.Rejection> rejections = new ArrayList<>();
+
+    /**
+     * Initialize an empty batch
+     *
+     * @param rows - number of rows of the batch
+     */
+    ParsedBatch(int rows) {
+      transactions = new ArrayList<>(rows);
+    }
+  }
+
+  /**
+   * Reads the tokens of a flat JSON object
+   */
+  private static class JsonScanner {
+
+    /**
+     * The text
+     */
+    private final String text;
+
+    /**
+     * Position of the next character
+     */
+    private int position;
+
+    /**
+     * Initialize the scanner
+     *
+     * @param text - the text
+     */
+    JsonScanner(String text) {
+      this.text = text;
+    }
+
+    /**
+     * This method skips white space and then the given character if it is next
+     *
+     * @param c - the character
+     * @return whether the character was skipped
+     */
+    boolean skip(char c) {
+      skipWhitespace();
+      if (position < text.length() && text.charAt(position) == c) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    /**
+     * This method skips white space and then the given character
+     *
+     * @param c - the character
+     * @throws IllegalArgumentException if the character is not next
+     */
+    void expect(char c) {
+      if (!skip(c)) {
+        throw new IllegalArgumentException("Expected '" + c + "' at column " + (position + 1) + ".");
+      }
+    }
+
+    /**
+     * This method checks that only white space is left
+     *
+     * @throws IllegalArgumentException if there is more
+     */
+    void expectEnd() {
+      skipWhitespace();
+      if (position != text.length()) {
+        throw new IllegalArgumentException("Unexpected text at column " + (position + 1) + ".");
+      }
+    }
+
+    /**
+     * This method reads a string value or a number, true, false or null
+     *
+     * @return the value, null for JSON null
+     * @throws IllegalArgumentException if there is no value
+     */
+    String readValue() {
+      skipWhitespace();
+      if (position < text.length() && text.charAt(position) == '"') {
+        return readString();
+      }
+      int start = position;
+      while (position < text.length() && ",}".indexOf(text.charAt(position)) == -1
+          && !Character.isWhitespace(text.charAt(position))) {
+        position++;
+      }
+      if (start == position) {
+        throw new IllegalArgumentException("Expected a value at column " + (position + 1) + ".");
+      }
+      String value = text.substring(start, position);
+      return value.equals("null") ? null : value;
+    }
+
+    /**
+     * This method reads a string
+     *
+     * @return the string without quotes, escapes resolved
+     * @throws IllegalArgumentException if there is no string
+     */
+    String readString() {
+      expect('"');
+      StringBuilder value = new StringBuilder();
+      while (position < text.length()) {
+        char c = text.charAt(position++);
+        if (c == '"') {
+          return value.toString();
+        }
+        if (c == '\\' && position < text.length()) {
+          char escaped = text.charAt(position++);
+          switch (escaped) {
+            case 'n':
+              value.append('\n');
+              break;
+            case 't':
+              value.append('\t');
+              break;
+            case 'u':
+              if (position + 4 > text.length()) {
+                throw new IllegalArgumentException("Invalid escape at column " + position + ".");
+              }
+              value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+              position += 4;
+              break;
+            default:
+              value.append(escaped);
+          }
+        } else {
+          value.append(c);
+        }
+      }
+      throw new IllegalArgumentException("Unterminated string.");
+    }
+
+    /**
+     * This method skips white space
+     */
+    private void skipWhitespace() {
+      while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+        position++;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,188 @@
+package controller;
+
+import javax.swing.SwingUtilities;
+
+import model.Index.RowBitmap;
+import model.Storage.TransactionSnapshot;
+import view.ExpenseTrackerView;
+
+/**
+ * ViewPublisher hands the results of background work to the view on the
+ * Event Dispatch Thread.
+ *
+ * Updates are coalesced: any number of changes published before the EDT gets
+ * to them are shown by a single update of the table, so a burst of model
+ * changes repaints the table once.
+ *
+ * Listeners of concurrent writers may be called out of order, so only a
+ * snapshot with a higher version than the one held is kept, and the table is
+ * only updated to a version above the one it shows. The versions also tell
+ * whether the table can be updated by appending or removing a row: every add
+ * grows the version by one, and so does every removal.
+ */
+class ViewPublisher {
+
+  /**
+   * The view, only touched on the EDT
+   */
+  private final ExpenseTrackerView view;
+
+  /**
+   * The newest snapshot to show, null if the table is up to date
+   */
+  private TransactionSnapshot latest;
+
+  /**
+   * Total amount of the newest snapshot
+   */
+  private double latestTotal;
+
+  /**
+   * Row index of the removed row, if the newest snapshot is the one of a
+   * single removal
+   */
+  private int removedRow;
+
+  /**
+   * The rows to highlight, null if the highlight is up to date
+   */
+  private RowBitmap highlight;
+
+  /**
+   * Whether an update is scheduled on the EDT
+   */
+  private boolean scheduled;
+
+  /**
+   * Initialize the publisher
+   *
+   * @param view - the view to update
+   */
+  ViewPublisher(ExpenseTrackerView view) {
+    this.view = view;
+  }
+
+  /**
+   * This method shows rows appended to the model
+   *
+   * @param transactions - snapshot including the new rows
+   * @param totalCost    - total amount of the snapshot
+   */
+  synchronized void rowsAdded(TransactionSnapshot transactions, double totalCost) {
+    if (isNewer(transactions)) {
+      latest = transactions;
+      latestTotal = totalCost;
+      schedule();
+    }
+  }
+
+  /**
+   * This method shows a row removed from the model
+   *
+   * @param transactions - snapshot without the removed row
+   * @param row          - row index of the removed row
+   * @param totalCost    - total amount of the snapshot
+   */
+  synchronized void rowRemoved(TransactionSnapshot transactions, int row, double totalCost) {
+    if (isNewer(transactions)) {
+      latest = transactions;
+      latestTotal = totalCost;
+      removedRow = row;
+      schedule();
+    }
+  }
+
+  /**
+   * This method shows a batch of rows removed from the model
+   *
+   * @param transactions - snapshot without the removed rows
+   * @param rows         - ascending row indexes of the removed rows
+   * @param totalCost    - total amount of the snapshot
+   */
+  synchronized void rowsRemoved(TransactionSnapshot transactions, int[] rows, double totalCost) {
+    if (rows.length == 1) {
+      rowRemoved(transactions, rows[0], totalCost);
+    } else if (isNewer(transactions)) {
+      // More than one removal, so the update refreshes the whole table once
+      latest = transactions;
+      latestTotal = totalCost;
+      schedule();
+    }
+  }
+
+  /**
+   * This method checks whether a snapshot is newer than the one to show.
+   * Only the caller holding the lock calls it.
+   *
+   * @param transactions - a published snapshot
+   * @return whether no newer snapshot is held
+   */
+  private boolean isNewer(TransactionSnapshot transactions) {
+    return latest == null || transactions.getVersion() > latest.getVersion();
+  }
+
+  /**
+   * This method highlights rows of the table
+   *
+   * @param rows - the rows to highlight
+   */
+  synchronized void highlight(RowBitmap rows) {
+    highlight = rows;
+    schedule();
+  }
+
+  /**
+   * This method schedules one update on the EDT for everything published
+   * until it runs
+   */
+  private void schedule() {
+    if (!scheduled) {
+      scheduled = true;
+      SwingUtilities.invokeLater(this::update);
+    }
+  }
+
+  /**
+   * This method shows everything published since the last update. It runs on
+   * the EDT.
+   */
+  private void update() {
+    TransactionSnapshot transactions;
+    int row;
+    double totalCost;
+    RowBitmap rows;
+    synchronized (this) {
+      transactions = latest;
+      row = removedRow;
+      totalCost = latestTotal;
+      rows = highlight;
+      latest = null;
+      highlight = null;
+      scheduled = false;
+    }
+    if (transactions != null) {
+      TransactionSnapshot shown = view.getTableModel().getTransactions();
+      if (shown == null) {
+        view.refreshTable(transactions, totalCost);
+      } else if (transactions.getVersion() > shown.getVersion()) {
+        long changes = transactions.getVersion() - shown.getVersion();
+        int added = transactions.size() - shown.size();
+        if (added == changes) {
+          // Only appends since the table was updated
+          view.addTableRow(transactions, totalCost);
+        } else if (changes == 1 && added == -1) {
+          // Exactly the one removed row is missing
+          view.removeTableRow(transactions, row, totalCost);
+        } else {
+          view.refreshTable(transactions, totalCost);
+        }
+      }
+      // Otherwise a synchronous update already showed a newer version
+      view.getDeleteTransactionBtn().setEnabled(view.getTableModel().getTransactions().size() > 0);
+    }
+    if (rows != null) {
+      view.highlightRows(rows);
+    }
+  }
+
+}
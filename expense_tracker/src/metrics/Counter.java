@@ -0,0 +1,77 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counter counts events, e.g. how often an operation ran. It is lock-free:
+ * concurrent threads increment separate cells which are added up when the
+ * count is read.
+ */
+public final class Counter {
+
+  /**
+   * Name of the counter in reports
+   */
+  private final String name;
+
+  /**
+   * The count
+   */
+  private final LongAdder count = new LongAdder();
+
+  /**
+   * Initialize the counter, see Metrics.counter
+   *
+   * @param name - name of the counter in reports
+   */
+  Counter(String name) {
+    this.name = name;
+  }
+
+  /**
+   * This method counts one event. It does nothing if metrics are disabled.
+   */
+  public void increment() {
+    if (Metrics.ENABLED) {
+      count.increment();
+    }
+  }
+
+  /**
+   * This method counts a number of events. It does nothing if metrics are
+   * disabled.
+   *
+   * @param events - number of events
+   */
+  public void add(long events) {
+    if (Metrics.ENABLED) {
+      count.add(events);
+    }
+  }
+
+  /**
+   * This method returns the name of the counter
+   *
+   * @return name in reports
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * This method returns the number of counted events
+   *
+   * @return the count
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * This method sets the count back to 0
+   */
+  void reset() {
+    count.reset();
+  }
+
+}
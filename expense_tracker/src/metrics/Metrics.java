@@ -0,0 +1,198 @@
+package metrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Metrics is the registry of the counters and timers of the app, e.g. how
+ * often and how long the controller operations run.
+ *
+ * Hot paths time themselves with
+ *
+ * <pre>
+ * long start = Metrics.start();
+ * ...
+ * TIMER.stop(start);
+ * </pre>
+ *
+ * Metrics are switched off with -Dexpensetracker.metrics=false. ENABLED is a
+ * constant then, so the JIT removes the checks and the calls cost nothing.
+ *
+ * The report can be written to a file, through JMX (see registerMBean) or on
+ * exit with -Dexpensetracker.metrics.file=path.
+ */
+public final class Metrics {
+
+  /**
+   * Whether metrics are recorded
+   */
+  public static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("expensetracker.metrics"));
+
+  /**
+   * JMX name of the metrics
+   */
+  public static final String MBEAN_NAME = "expensetracker:type=Metrics";
+
+  /**
+   * Counters by name
+   */
+  private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+
+  /**
+   * Timers by name
+   */
+  private static final Map<String, Timer> TIMERS = new ConcurrentHashMap<>();
+
+  /**
+   * Metrics only has static methods
+   */
+  private Metrics() {
+  }
+
+  /**
+   * This method returns the counter with the given name, creating it on first
+   * use. Callers keep it in a static final field.
+   *
+   * @param name - name of the counter, e.g. "model.writes.passes"
+   * @return the counter
+   */
+  public static Counter counter(String name) {
+    return COUNTERS.computeIfAbsent(name, Counter::new);
+  }
+
+  /**
+   * This method returns the timer with the given name, creating it on first
+   * use. Callers keep it in a static final field.
+   *
+   * @param name - name of the timer, e.g. "controller.addTransaction"
+   * @return the timer
+   */
+  public static Timer timer(String name) {
+    return TIMERS.computeIfAbsent(name, Timer::new);
+  }
+
+  /**
+   * This method returns the start time of an operation to hand to
+   * Timer.stop
+   *
+   * @return System.nanoTime(), or 0 if metrics are disabled
+   */
+  public static long start() {
+    return ENABLED ? System.nanoTime() : 0;
+  }
+
+  /**
+   * This method returns the report of all counters and timers, sorted by
+   * name. Latencies are in microseconds.
+   *
+   * @return one line per metric
+   */
+  public static String report() {
+    StringBuilder report = new StringBuilder();
+    for (Counter counter : new ConcurrentSkipListMap<>(COUNTERS).values()) {
+      report.append(String.format(Locale.ROOT, "%-40s count=%d%n", counter.getName(), counter.getCount()));
+    }
+    for (Timer timer : new ConcurrentSkipListMap<>(TIMERS).values()) {
+      report.append(String.format(Locale.ROOT,
+          "%-40s count=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p999=%.1fus max=%.1fus%n",
+          timer.getName(), timer.getCount(), timer.getMean() / 1000, timer.getPercentile(50) / 1000.0,
+          timer.getPercentile(90) / 1000.0, timer.getPercentile(99) / 1000.0,
+          timer.getPercentile(99.9) / 1000.0, timer.getMax() / 1000.0));
+    }
+    return report.toString();
+  }
+
+  /**
+   * This method writes the report to a file
+   *
+   * @param file - the file
+   * @throws IOException if the file cannot be written
+   */
+  public static void dump(Path file) throws IOException {
+    Files.write(file, report().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * This method clears all counters and timers
+   */
+  public static void reset() {
+    for (Counter counter : COUNTERS.values()) {
+      counter.reset();
+    }
+    for (Timer timer : TIMERS.values()) {
+      timer.reset();
+    }
+  }
+
+  /**
+   * This method exposes the metrics through JMX, and writes the report on
+   * exit if -Dexpensetracker.metrics.file is set. It does nothing if metrics
+   * are disabled or the metrics are already registered.
+   *
+   * @throws IllegalStateException if the metrics cannot be registered
+   */
+  public static synchronized void registerMBean() {
+    if (!ENABLED) {
+      return;
+    }
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(MBEAN_NAME);
+      if (server.isRegistered(name)) {
+        return;
+      }
+      server.registerMBean(new MetricsBean(), name);
+    } catch (JMException e) {
+      throw new IllegalStateException("The metrics cannot be registered.", e);
+    }
+    String file = System.getProperty("expensetracker.metrics.file");
+    if (file != null) {
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        try {
+          dump(Paths.get(file));
+        } catch (IOException e) {
+          System.err.println("The metrics cannot be written: " + e.getMessage());
+        }
+      }, "metrics-dump"));
+    }
+  }
+
+  /**
+   * The JMX view of the registry
+   */
+  private static final class MetricsBean implements MetricsMXBean {
+
+    @Override
+    public boolean isEnabled() {
+      return ENABLED;
+    }
+
+    @Override
+    public String getReport() {
+      return report();
+    }
+
+    @Override
+    public void dump(String file) throws IOException {
+      Metrics.dump(Paths.get(file));
+    }
+
+    @Override
+    public void reset() {
+      Metrics.reset();
+    }
+  }
+
+}
@@ -0,0 +1,38 @@
+package metrics;
+
+import java.io.IOException;
+
+/**
+ * MetricsMXBean exposes the metrics through JMX, e.g. to JConsole, under the
+ * name expensetracker:type=Metrics
+ */
+public interface MetricsMXBean {
+
+  /**
+   * This method returns whether metrics are recorded
+   *
+   * @return whether metrics are enabled
+   */
+  boolean isEnabled();
+
+  /**
+   * This method returns the report of all counters and timers
+   *
+   * @return one line per metric
+   */
+  String getReport();
+
+  /**
+   * This method writes the report to a file
+   *
+   * @param file - path of the file
+   * @throws IOException if the file cannot be written
+   */
+  void dump(String file) throws IOException;
+
+  /**
+   * This method clears all counters and timers
+   */
+  void reset();
+
+}
@@ -0,0 +1,204 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timer records how often an operation ran and how long it took, in a
+ * histogram in the style of HdrHistogram.
+ *
+ * Latencies are kept in log-linear buckets: every power of two is split into
+ * 16 linear sub-buckets, so a recorded latency is off by at most 1/16 (6.25%)
+ * and 960 buckets cover every long value. Recording is lock-free and does not
+ * allocate: it computes the bucket with a few bit operations and increments
+ * it atomically.
+ */
+public final class Timer {
+
+  /**
+   * Number of linear sub-buckets per power of two is 2^SUB_BUCKET_BITS
+   */
+  private static final int SUB_BUCKET_BITS = 4;
+
+  /**
+   * Number of linear sub-buckets per power of two
+   */
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * Number of buckets covering every non-negative long
+   */
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  /**
+   * Name of the timer in reports
+   */
+  private final String name;
+
+  /**
+   * Number of recorded latencies of every bucket
+   */
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+  /**
+   * Number of recorded latencies
+   */
+  private final LongAdder count = new LongAdder();
+
+  /**
+   * Sum of the recorded latencies in nanoseconds
+   */
+  private final LongAdder total = new LongAdder();
+
+  /**
+   * Largest recorded latency in nanoseconds
+   */
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Initialize the timer, see Metrics.timer
+   *
+   * @param name - name of the timer in reports
+   */
+  Timer(String name) {
+    this.name = name;
+  }
+
+  /**
+   * This method records the latency of an operation which started at the
+   * given time. It does nothing if metrics are disabled.
+   *
+   * @param start - System.nanoTime() when the operation started, see
+   *              Metrics.start
+   */
+  public void stop(long start) {
+    if (Metrics.ENABLED) {
+      record(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * This method records a latency. It does nothing if metrics are disabled.
+   *
+   * @param nanos - the latency in nanoseconds
+   */
+  public void record(long nanos) {
+    if (Metrics.ENABLED) {
+      long latency = Math.max(0, nanos);
+      buckets.incrementAndGet(bucketOf(latency));
+      count.increment();
+      total.add(latency);
+      max.accumulate(latency);
+    }
+  }
+
+  /**
+   * This method returns the name of the timer
+   *
+   * @return name in reports
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * This method returns the number of recorded latencies
+   *
+   * @return the count
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * This method returns the mean recorded latency
+   *
+   * @return mean latency in nanoseconds, 0 if none was recorded
+   */
+  public double getMean() {
+    long recorded = count.sum();
+    return recorded == 0 ? 0 : total.sum() / (double) recorded;
+  }
+
+  /**
+   * This method returns the largest recorded latency
+   *
+   * @return largest latency in nanoseconds, 0 if none was recorded
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * This method returns a percentile of the recorded latencies, e.g. 99 for
+   * the latency 99% of the operations stayed within. It is the upper end of
+   * the bucket holding the percentile, and at most the largest latency.
+   *
+   * @param percentile - between 0 and 100
+   * @return latency in nanoseconds, 0 if none was recorded
+   */
+  public long getPercentile(double percentile) {
+    long[] counts = new long[BUCKETS];
+    long recorded = 0;
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      counts[bucket] = buckets.get(bucket);
+      recorded += counts[bucket];
+    }
+    if (recorded == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * recorded));
+    long seen = 0;
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      seen += counts[bucket];
+      if (seen >= rank) {
+        return Math.min(highestValueOf(bucket), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  /**
+   * This method clears the recorded latencies
+   */
+  void reset() {
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      buckets.set(bucket, 0);
+    }
+    count.reset();
+    total.reset();
+    max.reset();
+  }
+
+  /**
+   * This method returns the bucket of a latency
+   *
+   * @param latency - non-negative latency
+   * @return bucket index
+   */
+  static int bucketOf(long latency) {
+    if (latency < SUB_BUCKETS) {
+      return (int) latency;
+    }
+    int magnitude = 63 - Long.numberOfLeadingZeros(latency);
+    int subBucket = (int) (latency >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * This method returns the largest latency of a bucket
+   *
+   * @param bucket - bucket index
+   * @return largest latency in the bucket
+   */
+  static long highestValueOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    long subBucket = SUB_BUCKETS + bucket % SUB_BUCKETS;
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+}
@@ -0,0 +1,126 @@
+package model.Aggregate;
+
+import model.Money;
+
+/**
+ * Aggregate holds the count, sum, minimum and maximum of the amounts of a
+ * group of transactions at one version of the model. It is immutable.
+ *
+ * The values are exact whole cents; the amount getters convert them for
+ * display.
+ */
+public final class Aggregate {
+
+  /**
+   * The aggregate of no transactions
+   */
+  public static final Aggregate EMPTY = new Aggregate(0, 0, 0, 0);
+
+  /**
+   * Number of transactions
+   */
+  private final long count;
+
+  /**
+   * Sum of the amounts in cents
+   */
+  private final long sumCents;
+
+  /**
+   * Smallest amount in cents, 0 if there are no transactions
+   */
+  private final long minCents;
+
+  /**
+   * Largest amount in cents, 0 if there are no transactions
+   */
+  private final long maxCents;
+
+  /**
+   * Initialize the aggregate
+   *
+   * @param count    number of transactions
+   * @param sumCents sum of the amounts in cents
+   * @param minCents smallest amount in cents
+   * @param maxCents largest amount in cents
+   */
+  Aggregate(long count, long sumCents, long minCents, long maxCents) {
+    this.count = count;
+    this.sumCents = sumCents;
+    this.minCents = minCents;
+    this.maxCents = maxCents;
+  }
+
+  /**
+   * This method returns the number of transactions
+   *
+   * @return number of transactions
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * This method returns the sum of the amounts in cents
+   *
+   * @return sum in cents, 0 if there are no transactions
+   */
+  public long getSumCents() {
+    return sumCents;
+  }
+
+  /**
+   * This method returns the smallest amount in cents
+   *
+   * @return smallest amount in cents, 0 if there are no transactions
+   */
+  public long getMinCents() {
+    return minCents;
+  }
+
+  /**
+   * This method returns the largest amount in cents
+   *
+   * @return largest amount in cents, 0 if there are no transactions
+   */
+  public long getMaxCents() {
+    return maxCents;
+  }
+
+  /**
+   * This method returns the sum of the amounts
+   *
+   * @return sum of the amounts, 0 if there are no transactions
+   */
+  public double getSum() {
+    return Money.toAmount(sumCents);
+  }
+
+  /**
+   * This method returns the smallest amount
+   *
+   * @return smallest amount, NaN if there are no transactions
+   */
+  public double getMin() {
+    return count == 0 ? Double.NaN : Money.toAmount(minCents);
+  }
+
+  /**
+   * This method returns the largest amount
+   *
+   * @return largest amount, NaN if there are no transactions
+   */
+  public double getMax() {
+    return count == 0 ? Double.NaN : Money.toAmount(maxCents);
+  }
+
+  /**
+   * This method returns the average amount
+   *
+   * @return average amount, NaN if there are no transactions
+   */
+  public double getAverage() {
+    return count == 0 ? Double.NaN : (double) sumCents / count / Money.CENTS_PER_UNIT;
+  }
+
+}
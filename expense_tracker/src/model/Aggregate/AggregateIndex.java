@@ -0,0 +1,67 @@
+package model.Aggregate;
+
+import java.util.Arrays;
+
+/**
+ * AggregateIndex keeps a RunningAggregate of all transactions and one of every
+ * category code. The model updates it on every add and remove, so totals never
+ * scan the transactions.
+ */
+public class AggregateIndex {
+
+  /**
+   * Aggregate of all transactions
+   */
+  private final RunningAggregate total = new RunningAggregate();
+
+  /**
+   * Aggregates by category code
+   */
+  private RunningAggregate[] categories = new RunningAggregate[0];
+
+  /**
+   * This method adds a transaction
+   *
+   * @param amount       transaction amount in cents
+   * @param categoryCode category code of the transaction
+   */
+  public void add(long amount, int categoryCode) {
+    if (categoryCode >= categories.length) {
+      int length = categories.length;
+      categories = Arrays.copyOf(categories, categoryCode + 1);
+      for (int code = length; code < categories.length; code++) {
+        categories[code] = new RunningAggregate();
+      }
+    }
+    total.add(amount);
+    categories[categoryCode].add(amount);
+  }
+
+  /**
+   * This method removes a transaction
+   *
+   * @param amount       transaction amount in cents
+   * @param categoryCode category code of the transaction
+   */
+  public void remove(long amount, int categoryCode) {
+    if (categoryCode < categories.length) {
+      total.remove(amount);
+      categories[categoryCode].remove(amount);
+    }
+  }
+
+  /**
+   * This method returns the current aggregates as an immutable snapshot
+   *
+   * @param version version of the model the aggregates belong to
+   * @return the aggregates
+   */
+  public Aggregates snapshot(long version) {
+    Aggregate[] byCategory = new Aggregate[categories.length];
+    for (int code = 0; code < categories.length; code++) {
+      byCategory[code] = categories[code].toAggregate();
+    }
+    return new Aggregates(version, total.toAggregate(), byCategory);
+  }
+
+}
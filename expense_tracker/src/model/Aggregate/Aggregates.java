@@ -0,0 +1,65 @@
+package model.Aggregate;
+
+/**
+ * Aggregates holds the aggregate of all transactions and of every category at
+ * one version of the model. It is immutable.
+ */
+public final class Aggregates {
+
+  /**
+   * Version of the model the aggregates belong to
+   */
+  private final long version;
+
+  /**
+   * Aggregate of all transactions
+   */
+  private final Aggregate total;
+
+  /**
+   * Aggregates by category code
+   */
+  private final Aggregate[] categories;
+
+  /**
+   * Initialize the aggregates
+   *
+   * @param version    version of the model
+   * @param total      aggregate of all transactions
+   * @param categories aggregates by category code
+   */
+  Aggregates(long version, Aggregate total, Aggregate[] categories) {
+    this.version = version;
+    this.total = total;
+    this.categories = categories;
+  }
+
+  /**
+   * This method returns the version of the model the aggregates belong to
+   *
+   * @return model version
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * This method returns the aggregate of all transactions
+   *
+   * @return the aggregate
+   */
+  public Aggregate getTotal() {
+    return total;
+  }
+
+  /**
+   * This method returns the aggregate of one category
+   *
+   * @param categoryCode category code
+   * @return the aggregate, Aggregate.EMPTY if the category has no transactions
+   */
+  public Aggregate getCategory(int categoryCode) {
+    return categoryCode < 0 || categoryCode >= categories.length ? Aggregate.EMPTY : categories[categoryCode];
+  }
+
+}
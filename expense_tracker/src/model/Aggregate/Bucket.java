@@ -0,0 +1,91 @@
+package model.Aggregate;
+
+import model.Money;
+
+/**
+ * Bucket holds the number and the total amount of the transactions of a time
+ * range, e.g. one day of a TimeRollup. It is immutable.
+ */
+public final class Bucket {
+
+  /**
+   * Start of the range, epoch milliseconds, inclusive
+   */
+  private final long start;
+
+  /**
+   * End of the range, epoch milliseconds, exclusive
+   */
+  private final long end;
+
+  /**
+   * Number of transactions
+   */
+  private final long count;
+
+  /**
+   * Sum of the amounts in cents
+   */
+  private final long sumCents;
+
+  /**
+   * Initialize the bucket
+   *
+   * @param start    start of the range, inclusive
+   * @param end      end of the range, exclusive
+   * @param count    number of transactions
+   * @param sumCents sum of the amounts in cents
+   */
+  Bucket(long start, long end, long count, long sumCents) {
+    this.start = start;
+    this.end = end;
+    this.count = count;
+    this.sumCents = sumCents;
+  }
+
+  /**
+   * This method returns the start of the range
+   *
+   * @return epoch milliseconds, inclusive
+   */
+  public long getStart() {
+    return start;
+  }
+
+  /**
+   * This method returns the end of the range
+   *
+   * @return epoch milliseconds, exclusive
+   */
+  public long getEnd() {
+    return end;
+  }
+
+  /**
+   * This method returns the number of transactions
+   *
+   * @return number of transactions
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * This method returns the sum of the amounts in cents
+   *
+   * @return sum in cents
+   */
+  public long getSumCents() {
+    return sumCents;
+  }
+
+  /**
+   * This method returns the sum of the amounts
+   *
+   * @return sum of the amounts
+   */
+  public double getSum() {
+    return Money.toAmount(sumCents);
+  }
+
+}
@@ -0,0 +1,157 @@
+package model.Aggregate;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * BucketSeries keeps the count and the sum of the amounts of every non-empty
+ * time bucket of one granularity.
+ *
+ * The buckets are kept in a sorted map, so transactions may arrive in any
+ * time order. Range sums are answered from two Fenwick trees (binary indexed
+ * trees) over the sorted buckets in O(log b) for b buckets. The trees are
+ * built in O(b) when a range is first asked for after a new bucket was
+ * created; changes to existing buckets update them in O(log b).
+ */
+class BucketSeries {
+
+  /**
+   * Sum in cents and count of every bucket, by bucket number
+   */
+  private final TreeMap<Long, long[]> buckets = new TreeMap<>();
+
+  /**
+   * Bucket numbers in ascending order, the positions of the Fenwick trees
+   */
+  private long[] keys = new long[0];
+
+  /**
+   * Fenwick tree of the sums, 1-based
+   */
+  private long[] sums = new long[1];
+
+  /**
+   * Fenwick tree of the counts, 1-based
+   */
+  private long[] counts = new long[1];
+
+  /**
+   * Whether the Fenwick trees hold every bucket
+   */
+  private boolean indexed = true;
+
+  /**
+   * This method adds to a bucket
+   *
+   * @param bucket bucket number
+   * @param cents  amount to add, in cents
+   * @param count  number of transactions to add
+   */
+  void add(long bucket, long cents, int count) {
+    long[] values = buckets.get(bucket);
+    if (values == null) {
+      values = new long[2];
+      buckets.put(bucket, values);
+      // The trees have no position for the new bucket
+      indexed = false;
+    }
+    values[0] += cents;
+    values[1] += count;
+    if (indexed) {
+      for (int i = Arrays.binarySearch(keys, bucket) + 1; i <= keys.length; i += i & -i) {
+        sums[i] += cents;
+        counts[i] += count;
+      }
+    }
+  }
+
+  /**
+   * This method returns the count and the sum of the buckets between two
+   * bucket numbers
+   *
+   * @param from first bucket number, inclusive
+   * @param to   last bucket number, inclusive
+   * @return count and sum in cents
+   */
+  long[] range(long from, long to) {
+    index();
+    int low = position(from, false);
+    int high = position(to, true);
+    if (high <= low) {
+      return new long[2];
+    }
+    return new long[] { prefix(counts, high) - prefix(counts, low), prefix(sums, high) - prefix(sums, low) };
+  }
+
+  /**
+   * This method returns the buckets between two bucket numbers which hold any
+   * transaction
+   *
+   * @param from first bucket number, inclusive
+   * @param to   last bucket number, inclusive
+   * @return sum in cents and count by bucket number, in ascending order
+   */
+  Map<Long, long[]> buckets(long from, long to) {
+    return buckets.subMap(from, true, to, true);
+  }
+
+  /**
+   * This method builds the Fenwick trees over the current buckets in O(b)
+   */
+  private void index() {
+    if (indexed) {
+      return;
+    }
+    int size = buckets.size();
+    keys = new long[size];
+    sums = new long[size + 1];
+    counts = new long[size + 1];
+    int i = 0;
+    for (Map.Entry<Long, long[]> entry : buckets.entrySet()) {
+      keys[i] = entry.getKey();
+      sums[i + 1] = entry.getValue()[0];
+      counts[i + 1] = entry.getValue()[1];
+      i++;
+    }
+    for (int node = 1; node <= size; node++) {
+      int parent = node + (node & -node);
+      if (parent <= size) {
+        sums[parent] += sums[node];
+        counts[parent] += counts[node];
+      }
+    }
+    indexed = true;
+  }
+
+  /**
+   * This method returns the number of buckets before a bucket number
+   *
+   * @param bucket    bucket number
+   * @param inclusive whether to count the bucket itself
+   * @return number of buckets
+   */
+  private int position(long bucket, boolean inclusive) {
+    int found = Arrays.binarySearch(keys, bucket);
+    if (found < 0) {
+      return -found - 1;
+    }
+    return inclusive ? found + 1 : found;
+  }
+
+  /**
+   * This method returns the sum of the first positions of a Fenwick tree
+   *
+   * @param tree  the Fenwick tree
+   * @param count number of positions
+   * @return the sum
+   */
+  private static long prefix(long[] tree, int count) {
+    long sum = 0;
+    for (int i = count; i > 0; i -= i & -i) {
+      sum += tree[i];
+    }
+    return sum;
+  }
+
+}
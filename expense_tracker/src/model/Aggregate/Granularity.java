@@ -0,0 +1,80 @@
+package model.Aggregate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Granularity is the size of the time buckets of a TimeRollup. Days and
+ * months follow the calendar of a time zone.
+ */
+public enum Granularity {
+
+  /**
+   * One bucket per minute
+   */
+  MINUTE {
+    @Override
+    public long bucketOf(long time, ZoneId zone) {
+      return Math.floorDiv(time, 60_000L);
+    }
+
+    @Override
+    public long startOf(long bucket, ZoneId zone) {
+      return bucket * 60_000L;
+    }
+  },
+
+  /**
+   * One bucket per calendar day
+   */
+  DAY {
+    @Override
+    public long bucketOf(long time, ZoneId zone) {
+      return Instant.ofEpochMilli(time).atZone(zone).toLocalDate().toEpochDay();
+    }
+
+    @Override
+    public long startOf(long bucket, ZoneId zone) {
+      return LocalDate.ofEpochDay(bucket).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+  },
+
+  /**
+   * One bucket per calendar month
+   */
+  MONTH {
+    @Override
+    public long bucketOf(long time, ZoneId zone) {
+      LocalDate date = Instant.ofEpochMilli(time).atZone(zone).toLocalDate();
+      return date.getYear() * 12L + date.getMonthValue() - 1;
+    }
+
+    @Override
+    public long startOf(long bucket, ZoneId zone) {
+      LocalDate first = LocalDate.of((int) Math.floorDiv(bucket, 12), Math.floorMod(bucket, 12) + 1, 1);
+      return first.atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+  };
+
+  /**
+   * This method returns the number of the bucket holding a time. Buckets are
+   * numbered consecutively.
+   *
+   * @param time epoch milliseconds
+   * @param zone time zone of the calendar
+   * @return bucket number
+   */
+  public abstract long bucketOf(long time, ZoneId zone);
+
+  /**
+   * This method returns the time a bucket starts at. A bucket ends where the
+   * next one starts.
+   *
+   * @param bucket bucket number
+   * @param zone   time zone of the calendar
+   * @return epoch milliseconds
+   */
+  public abstract long startOf(long bucket, ZoneId zone);
+
+}
@@ -0,0 +1,131 @@
+package model.Aggregate;
+
+import java.util.Arrays;
+
+import model.Index.RowBitmap;
+
+/**
+ * RunningAggregate keeps the count, sum, minimum and maximum of a group of
+ * transactions up to date as transactions are added and removed.
+ *
+ * Amounts are whole cents, so the sum is exact however many amounts are added
+ * and removed. Count and sum are updated in O(1). The number of transactions
+ * of every amount is kept in pages of primitive counts, with a bitmap of the
+ * amounts that have any, so nothing is boxed. Minimum and maximum are cached
+ * and only searched for in the bitmap when the last transaction of the
+ * current one is removed.
+ */
+class RunningAggregate {
+
+  /**
+   * Amounts per page of counts, as a power of two
+   */
+  private static final int PAGE_BITS = 10;
+
+  /**
+   * Number of transactions
+   */
+  private long count;
+
+  /**
+   * Sum of the amounts in cents
+   */
+  private long sum;
+
+  /**
+   * Smallest amount in cents, valid while count is not 0
+   */
+  private int min;
+
+  /**
+   * Largest amount in cents, valid while count is not 0
+   */
+  private int max;
+
+  /**
+   * Number of transactions of every amount in cents, a page is allocated the
+   * first time one of its amounts is added
+   */
+  private int[][] counts = new int[0][];
+
+  /**
+   * Amounts in cents with at least one transaction
+   */
+  private final RowBitmap amounts = new RowBitmap();
+
+  /**
+   * This method adds an amount
+   *
+   * @param amount transaction amount in cents
+   */
+  void add(long amount) {
+    if (amount < 0 || amount > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Amount out of range: " + amount);
+    }
+    int cents = (int) amount;
+    int page = cents >>> PAGE_BITS;
+    if (page >= counts.length) {
+      counts = Arrays.copyOf(counts, Math.max(page + 1, counts.length * 2));
+    }
+    if (counts[page] == null) {
+      counts[page] = new int[1 << PAGE_BITS];
+    }
+    if (counts[page][cents & ((1 << PAGE_BITS) - 1)]++ == 0) {
+      amounts.set(cents);
+    }
+    if (count == 0 || cents < min) {
+      min = cents;
+    }
+    if (count == 0 || cents > max) {
+      max = cents;
+    }
+    count++;
+    sum += amount;
+  }
+
+  /**
+   * This method removes an amount which was added before
+   *
+   * @param amount transaction amount in cents
+   */
+  void remove(long amount) {
+    if (amount < 0 || amount > Integer.MAX_VALUE) {
+      return;
+    }
+    int cents = (int) amount;
+    int page = cents >>> PAGE_BITS;
+    if (page >= counts.length || counts[page] == null
+        || counts[page][cents & ((1 << PAGE_BITS) - 1)] == 0) {
+      return;
+    }
+    count--;
+    sum -= amount;
+    if (--counts[page][cents & ((1 << PAGE_BITS) - 1)] > 0) {
+      return;
+    }
+    amounts.clear(cents);
+    if (count == 0) {
+      return;
+    }
+    // Only the last transaction of an extreme moves it
+    if (cents == min) {
+      min = amounts.nextSetBit(cents);
+    }
+    if (cents == max) {
+      max = amounts.previousSetBit(cents);
+    }
+  }
+
+  /**
+   * This method returns the current values as an immutable aggregate
+   *
+   * @return the aggregate
+   */
+  Aggregate toAggregate() {
+    if (count == 0) {
+      return Aggregate.EMPTY;
+    }
+    return new Aggregate(count, sum, min, max);
+  }
+
+}
@@ -0,0 +1,188 @@
+package model.Aggregate;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TimeRollup keeps the count and the sum of the amounts of the transactions
+ * in time buckets of every Granularity, overall and per category code. The
+ * model updates it on every add and remove, so time based reports never scan
+ * or parse the transactions.
+ *
+ * The spending of any time range is answered from the minute buckets in
+ * O(log b) for b buckets; listing the buckets of a range is O(buckets).
+ */
+public class TimeRollup {
+
+  /**
+   * Time zone of the calendar days and months
+   */
+  private final ZoneId zone;
+
+  /**
+   * Series by granularity and category code plus one, position 0 holds all
+   * transactions
+   */
+  private final BucketSeries[][] series = new BucketSeries[Granularity.values().length][1];
+
+  /**
+   * Start of the last bucket of every granularity a time was looked up in
+   */
+  private final long[] cachedStart = new long[Granularity.values().length];
+
+  /**
+   * End of the last bucket of every granularity a time was looked up in
+   */
+  private final long[] cachedEnd = new long[Granularity.values().length];
+
+  /**
+   * Number of the last bucket of every granularity a time was looked up in
+   */
+  private final long[] cachedBucket = new long[Granularity.values().length];
+
+  /**
+   * Initialize an empty rollup
+   *
+   * @param zone time zone of the calendar days and months
+   */
+  public TimeRollup(ZoneId zone) {
+    this.zone = zone;
+  }
+
+  /**
+   * This method adds a transaction
+   *
+   * @param time         epoch milliseconds
+   * @param cents        transaction amount in cents
+   * @param categoryCode category code of the transaction
+   */
+  public void add(long time, long cents, int categoryCode) {
+    update(time, cents, 1, categoryCode);
+  }
+
+  /**
+   * This method removes a transaction
+   *
+   * @param time         epoch milliseconds
+   * @param cents        transaction amount in cents
+   * @param categoryCode category code of the transaction
+   */
+  public void remove(long time, long cents, int categoryCode) {
+    update(time, -cents, -1, categoryCode);
+  }
+
+  /**
+   * This method returns the spending of a time range, to the minute: the
+   * minutes holding from and to - 1 are included
+   *
+   * @param categoryCode category code, or -1 for all categories
+   * @param from         start of the range, epoch milliseconds, inclusive
+   * @param to           end of the range, epoch milliseconds, exclusive
+   * @return number and sum of the transactions of the range
+   */
+  public Bucket spending(int categoryCode, long from, long to) {
+    if (to <= from) {
+      return new Bucket(from, to, 0, 0);
+    }
+    BucketSeries minutes = series(Granularity.MINUTE, categoryCode, false);
+    if (minutes == null) {
+      return new Bucket(from, to, 0, 0);
+    }
+    long[] values = minutes.range(Granularity.MINUTE.bucketOf(from, zone),
+        Granularity.MINUTE.bucketOf(to - 1, zone));
+    return new Bucket(from, to, values[0], values[1]);
+  }
+
+  /**
+   * This method returns the buckets of a time range which hold any
+   * transaction, e.g. the days of a month to draw a chart from
+   *
+   * @param granularity  size of the buckets
+   * @param categoryCode category code, or -1 for all categories
+   * @param from         start of the range, epoch milliseconds, inclusive
+   * @param to           end of the range, epoch milliseconds, exclusive
+   * @return the buckets in time order
+   */
+  public List<Bucket> buckets(Granularity granularity, int categoryCode, long from, long to) {
+    List<Bucket> buckets = new ArrayList<>();
+    BucketSeries bucketSeries = series(granularity, categoryCode, false);
+    if (bucketSeries == null || to <= from) {
+      return buckets;
+    }
+    long first = granularity.bucketOf(from, zone);
+    long last = granularity.bucketOf(to - 1, zone);
+    for (Map.Entry<Long, long[]> entry : bucketSeries.buckets(first, last).entrySet()) {
+      long[] values = entry.getValue();
+      if (values[1] != 0) {
+        long bucket = entry.getKey();
+        buckets.add(new Bucket(granularity.startOf(bucket, zone), granularity.startOf(bucket + 1, zone), values[1],
+            values[0]));
+      }
+    }
+    return buckets;
+  }
+
+  /**
+   * This method adds to the buckets holding a time
+   *
+   * @param time         epoch milliseconds
+   * @param cents        amount to add, in cents
+   * @param count        number of transactions to add
+   * @param categoryCode category code of the transaction
+   */
+  private void update(long time, long cents, int count, int categoryCode) {
+    for (Granularity granularity : Granularity.values()) {
+      long bucket = bucketOf(granularity, time);
+      series(granularity, -1, true).add(bucket, cents, count);
+      series(granularity, categoryCode, true).add(bucket, cents, count);
+    }
+  }
+
+  /**
+   * This method returns the bucket holding a time. Transactions mostly
+   * arrive in time order, so the last bucket of every granularity is cached
+   * and the calendar is only consulted when a time leaves it.
+   *
+   * @param granularity size of the buckets
+   * @param time        epoch milliseconds
+   * @return bucket number
+   */
+  private long bucketOf(Granularity granularity, long time) {
+    int g = granularity.ordinal();
+    if (time < cachedStart[g] || time >= cachedEnd[g]) {
+      long bucket = granularity.bucketOf(time, zone);
+      cachedBucket[g] = bucket;
+      cachedStart[g] = granularity.startOf(bucket, zone);
+      cachedEnd[g] = granularity.startOf(bucket + 1, zone);
+    }
+    return cachedBucket[g];
+  }
+
+  /**
+   * This method returns the series of a granularity and category
+   *
+   * @param granularity  size of the buckets
+   * @param categoryCode category code, or -1 for all categories
+   * @param create       whether to create a missing series
+   * @return the series, null if it is missing and not created
+   */
+  private BucketSeries series(Granularity granularity, int categoryCode, boolean create) {
+    BucketSeries[] byCategory = series[granularity.ordinal()];
+    int slot = categoryCode + 1;
+    if (slot >= byCategory.length) {
+      if (!create) {
+        return null;
+      }
+      byCategory = Arrays.copyOf(byCategory, slot + 1);
+      series[granularity.ordinal()] = byCategory;
+    }
+    if (byCategory[slot] == null && create) {
+      byCategory[slot] = new BucketSeries();
+    }
+    return byCategory[slot];
+  }
+
+}
@@ -0,0 +1,287 @@
+package model;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * CategoryRegistry dictionary-encodes the transaction categories: every
+ * category has a small integer code, and transactions, stores, indexes,
+ * filters and aggregates only keep and compare the code. The canonical name
+ * of a code is interned once, in lower case.
+ *
+ * The built-in categories have the codes 0 to 4 in every registry. Users can
+ * register custom categories at runtime, which get the next free code. Codes
+ * are never reused or changed, so stored codes stay valid; a registry backed
+ * by a file appends every new category to it before the code is handed out.
+ *
+ * Stored codes only mean something together with their registry, so every
+ * store has its own, saved next to its data and loaded before the data is
+ * read, and every transaction keeps the registry its code refers to. There is
+ * no registry of the application: BUILT_IN holds only the built-in categories
+ * and cannot be changed.
+ *
+ * Lookups do not lock or allocate: they read an immutable dictionary which is
+ * replaced whenever a category is registered.
+ */
+public final class CategoryRegistry {
+
+  /**
+   * Most categories a registry holds. Stores keep a code in one byte.
+   */
+  public static final int MAX_CATEGORIES = 128;
+
+  /**
+   * Longest category name
+   */
+  public static final int MAX_NAME_LENGTH = 32;
+
+  /**
+   * The categories every registry starts with, in code order
+   */
+  private static final String[] BUILT_IN_NAMES = { "food", "travel", "bills", "entertainment", "other" };
+
+  /**
+   * The registry of the built-in categories only, e.g. for transactions
+   * created by category name without a registry. It cannot be changed.
+   */
+  public static final CategoryRegistry BUILT_IN = new CategoryRegistry(true);
+
+  /**
+   * The current dictionary, replaced on every registration
+   */
+  private volatile Dictionary dictionary = new Dictionary(BUILT_IN_NAMES);
+
+  /**
+   * Whether categories cannot be registered
+   */
+  private final boolean fixed;
+
+  /**
+   * The file new categories are appended to, null if the registry is only in
+   * memory
+   */
+  private Path file;
+
+  /**
+   * Initialize a registry holding the built-in categories
+   */
+  public CategoryRegistry() {
+    this(false);
+  }
+
+  /**
+   * Initialize a registry holding the built-in categories
+   *
+   * @param fixed - whether categories cannot be registered
+   */
+  private CategoryRegistry(boolean fixed) {
+    this.fixed = fixed;
+  }
+
+  /**
+   * This method returns the code of a category, matched ignoring case
+   *
+   * @param category - the category
+   * @return category code, or -1 if the category is not registered
+   */
+  public int getCode(String category) {
+    return dictionary.getCode(category);
+  }
+
+  /**
+   * This method returns the canonical name of a code
+   *
+   * @param code - a category code
+   * @return interned lower case category name
+   * @throws IndexOutOfBoundsException if the code is not registered
+   */
+  public String getName(int code) {
+    return dictionary.names[code];
+  }
+
+  /**
+   * This method returns the number of registered categories. Category codes
+   * are between 0 and this number.
+   *
+   * @return number of categories
+   */
+  public int size() {
+    return dictionary.names.length;
+  }
+
+  /**
+   * This method returns whether a name can be registered as a category: 1 to
+   * MAX_NAME_LENGTH ASCII letters
+   *
+   * @param name - the name
+   * @return whether the name is valid
+   */
+  public static boolean isValidName(String name) {
+    return name != null && name.length() <= MAX_NAME_LENGTH && hashLetters(name) != -1;
+  }
+
+  /**
+   * This method registers a custom category. Registering a category which
+   * exists, in any case, returns its code.
+   *
+   * @param name - the category name
+   * @return code of the category
+   * @throws IllegalArgumentException if the name is not valid or the registry
+   *                                  is full
+   * @throws IllegalStateException    if the registry is BUILT_IN
+   * @throws IOException              if the category cannot be saved
+   */
+  public synchronized int register(String name) throws IOException {
+    if (fixed) {
+      throw new IllegalStateException("The built-in categories cannot be changed.");
+    }
+    if (!isValidName(name)) {
+      throw new IllegalArgumentException("A category must be 1 to " + MAX_NAME_LENGTH + " letters.");
+    }
+    int code = getCode(name);
+    if (code != -1) {
+      return code;
+    }
+    String[] names = dictionary.names;
+    if (names.length == MAX_CATEGORIES) {
+      throw new IllegalArgumentException("No more than " + MAX_CATEGORIES + " categories can be registered.");
+    }
+    String canonical = name.toLowerCase(Locale.ROOT).intern();
+    if (file != null) {
+      // Saved before any transaction can be stored with the code
+      try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII,
+          StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC)) {
+        writer.write(canonical);
+        writer.newLine();
+      }
+    }
+    String[] registered = Arrays.copyOf(names, names.length + 1);
+    registered[names.length] = canonical;
+    dictionary = new Dictionary(registered);
+    return names.length;
+  }
+
+  /**
+   * This method registers the categories saved in a file, one per line in
+   * code order, and saves every category registered later to the same file.
+   * A missing file is created on the first registration.
+   *
+   * @param file - the category file
+   * @throws IOException              if the file cannot be read
+   * @throws IllegalArgumentException if the file holds an invalid category,
+   *                                  or categories in another order than
+   *                                  this registry
+   * @throws IllegalStateException    if the registry is BUILT_IN
+   */
+  public synchronized void load(Path file) throws IOException {
+    if (fixed) {
+      throw new IllegalStateException("The built-in categories cannot be changed.");
+    }
+    if (Files.exists(file)) {
+      int code = BUILT_IN_NAMES.length;
+      for (String line : Files.readAllLines(file, StandardCharsets.US_ASCII)) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        // Stored codes refer to this order
+        if (register(line) != code++) {
+          throw new IllegalArgumentException("Category " + line + " has another code in " + file);
+        }
+      }
+    }
+    this.file = file;
+  }
+
+  /**
+   * This method hashes a category ignoring case
+   *
+   * @param category - a category
+   * @return non-negative hash, or -1 if the category is empty or has a
+   *         character which is not an ASCII letter
+   */
+  private static int hashLetters(String category) {
+    int length = category.length();
+    if (length == 0) {
+      return -1;
+    }
+    int hash = 0;
+    for (int i = 0; i < length; i++) {
+      char c = category.charAt(i);
+      if ((c < 'a' || c > 'z') && (c < 'A' || c > 'Z')) {
+        return -1;
+      }
+      // Setting bit 5 folds upper case letters onto lower case
+      hash = hash * 31 + (c | 0x20);
+    }
+    // Spread the high bits into the low bits the table is indexed by
+    return (hash ^ (hash >>> 16)) & 0x7fffffff;
+  }
+
+  /**
+   * An immutable set of categories with a hash table from name to code
+   */
+  private static final class Dictionary {
+
+    /**
+     * The canonical names, the index of a name is its code
+     */
+    final String[] names;
+
+    /**
+     * Open addressing hash table from the case-insensitive hash of a name to
+     * its code plus one, 0 for an empty slot. It is at most a quarter full,
+     * so a lookup rarely probes more than one slot.
+     */
+    private final int[] table;
+
+    /**
+     * Initialize the dictionary
+     *
+     * @param names - the canonical names in code order
+     */
+    Dictionary(String[] names) {
+      this.names = names;
+      table = new int[Integer.highestOneBit(names.length) * 8];
+      for (int code = 0; code < names.length; code++) {
+        int slot = hashLetters(names[code]) & (table.length - 1);
+        while (table[slot] != 0) {
+          slot = (slot + 1) & (table.length - 1);
+        }
+        table[slot] = code + 1;
+      }
+    }
+
+    /**
+     * This method returns the code of a name, matched ignoring case
+     *
+     * @param category - the name
+     * @return category code, or -1 if the name is not in the dictionary
+     */
+    int getCode(String category) {
+      if (category == null) {
+        return -1;
+      }
+      int hash = hashLetters(category);
+      if (hash == -1) {
+        return -1;
+      }
+      for (int slot = hash & (table.length - 1);; slot = (slot + 1) & (table.length - 1)) {
+        int code = table[slot] - 1;
+        if (code == -1) {
+          return -1;
+        }
+        if (names[code].length() == category.length()
+            && names[code].regionMatches(true, 0, category, 0, category.length())) {
+          return code;
+        }
+      }
+    }
+  }
+
+}
@@ -1,33 +1,274 @@
 package model;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import metrics.Metrics;
+import metrics.Timer;
+import model.Aggregate.AggregateIndex;
+import model.Aggregate.Aggregates;
+import model.Aggregate.Bucket;
+import model.Aggregate.Granularity;
+import model.Aggregate.TimeRollup;
+import model.Filter.QueryPlanner;
+import model.Filter.TransactionFilter;
+import model.Index.TransactionIndex;
+import model.Persistence.TransactionJournal;
+import model.Storage.ColumnarTransactionStore;
+import model.Storage.Compaction;
+import model.Storage.TransactionSnapshot;
+import model.Storage.TransactionStore;
 
 /**
- * Model stores transactions in a list and defines methods to add, remove and
- * fetch transactions
+ * Model stores transactions in a storage backend and defines methods to add,
+ * remove and fetch transactions
+ *
+ * The model is thread-safe. Changes of concurrent threads are applied one at a
+ * time by a WriteCombiner, which publishes a snapshot after each pass of
+ * changes. Readers get the last published snapshot without locking and never
+ * block the writers.
+ *
+ * Every transaction gets an id which does not change while the model is open,
+ * so a transaction can be removed by id whatever row a sorted or filtered view
+ * shows it in. A remove only records a tombstone in the store; once enough
+ * transactions were removed the store is compacted in the background.
  */
-public class ExpenseTrackerModel {
+public class ExpenseTrackerModel implements Closeable {
+
+  /**
+   * Latency of adding a transaction, waiting for the combiner included
+   */
+  private static final Timer ADD_TIMER = Metrics.timer("model.addTransaction");
+
+  /**
+   * Latency of adding a batch of transactions
+   */
+  private static final Timer ADD_ALL_TIMER = Metrics.timer("model.addAll");
+
+  /**
+   * Latency of removing a transaction
+   */
+  private static final Timer REMOVE_TIMER = Metrics.timer("model.removeTransaction");
+
+  /**
+   * Latency of removing a batch of transactions
+   */
+  private static final Timer REMOVE_ALL_TIMER = Metrics.timer("model.removeAll");
+
+  /**
+   * Largest batch whose slots are removed from the indexes one at a time.
+   * After a larger batch the indexes are built again on the next query, which
+   * reads every row once instead of shifting posting lists for every slot.
+   */
+  private static final int INDEXED_BATCH = 4096;
+
+  /**
+   * Latency of a query
+   */
+  private static final Timer SELECT_TIMER = Metrics.timer("model.select");
+
+  /**
+   * Latency of compacting the store, waiting for the combiner included
+   */
+  private static final Timer COMPACT_TIMER = Metrics.timer("model.compact");
+
+  /**
+   * Runs the compactions of all models, off the threads of the callers
+   */
+  private static final Executor COMPACTOR = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "transaction-compaction");
+    thread.setDaemon(true);
+    return thread;
+  });
 
   // encapsulation - data integrity
   /**
-   * A list of transactions to hold transaction objects
+   * The storage backend holding the transactions
+   */
+  private TransactionStore transactions;
+
+  /**
+   * Secondary indexes over the transactions, built on the first query and kept
+   * up to date on every change after it, null until then
+   */
+  private TransactionIndex index;
+
+  /**
+   * Running aggregates of the transactions, built on first use and kept up to
+   * date on every change after it, null until then
+   */
+  private AggregateIndex aggregates;
+
+  /**
+   * Time bucketed totals of the transactions, built on the first report and
+   * kept up to date on every change after it, null until then
+   */
+  private TimeRollup rollup;
+
+  /**
+   * Write-ahead journal of the changes, null if the model is not persistent
+   */
+  private final TransactionJournal journal;
+
+  /**
+   * Applies the changes of all threads one at a time
+   */
+  private final WriteCombiner writes = new WriteCombiner(this::publish);
+
+  /**
+   * The snapshot readers see, published after every pass of changes
+   */
+  private volatile TransactionSnapshot published;
+
+  /**
+   * The aggregates of the published snapshot, null until they are built
+   */
+  private volatile Aggregates publishedAggregates;
+
+  /**
+   * Whether a compaction of the store is queued. Only the combiner reads and
+   * writes it.
    */
-  private List<Transaction> transactions;
+  private boolean compactionScheduled;
 
   /**
-   * Initialize the list of transactions
+   * Initialize the model with the default columnar storage backend
    */
   public ExpenseTrackerModel() {
-    transactions = new ArrayList<>();
+    this(new ColumnarTransactionStore());
+  }
+
+  /**
+   * Initialize the model with the given storage backend
+   *
+   * @param store the storage backend
+   * @throws IllegalArgumentException if store is null
+   */
+  public ExpenseTrackerModel(TransactionStore store) {
+    if (store == null) {
+      throw new IllegalArgumentException("The transaction store must be non-null.");
+    }
+    transactions = store;
+    journal = null;
+    publish();
+  }
+
+  /**
+   * Initialize a persistent model. The journal is recovered into the empty
+   * storage backend, and every later change is journaled before it is
+   * applied.
+   *
+   * @param store   the empty storage backend
+   * @param journal the write-ahead journal
+   * @throws IOException              if the journal cannot be recovered
+   * @throws IllegalArgumentException if store or journal is null
+   */
+  public ExpenseTrackerModel(TransactionStore store, TransactionJournal journal) throws IOException {
+    if (store == null || journal == null) {
+      throw new IllegalArgumentException("The transaction store and journal must be non-null.");
+    }
+    journal.recover(store);
+    transactions = store;
+    this.journal = journal;
+    publish();
+  }
+
+  /**
+   * This method publishes a snapshot of the store to the readers. Only the
+   * combiner calls it once the model is created. The changes are synced to the
+   * journal first, so with FsyncPolicy.ALWAYS they are durable before they are
+   * visible or returned. If the sync fails the changes are still applied, so
+   * the snapshot is published anyway and the failure reaches the next change.
+   *
+   * @throws UncheckedIOException if the journal cannot be synced
+   */
+  private void publish() {
+    try {
+      if (journal != null) {
+        journal.sync();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      TransactionSnapshot snapshot = transactions.snapshot();
+      if (aggregates != null) {
+        publishedAggregates = aggregates.snapshot(snapshot.getVersion());
+      }
+      published = snapshot;
+    }
+  }
+
+  /**
+   * This method returns the secondary indexes, indexing the transactions the
+   * store already holds on first use. Opening a large store therefore does not
+   * have to read all of it. Only the combiner calls it.
+   *
+   * @return the indexes
+   */
+  private TransactionIndex index() {
+    if (index == null) {
+      TransactionSnapshot snapshot = transactions.snapshot();
+      TransactionIndex built = new TransactionIndex();
+      for (int row = 0; row < snapshot.size(); row++) {
+        built.add(transactions.getSlot(row), snapshot.getCents(row), snapshot.getCategoryCode(row));
+      }
+      index = built;
+    }
+    return index;
+  }
+
+  /**
+   * This method returns the running aggregates, adding up the transactions the
+   * store already holds on first use. Only the combiner calls it.
+   *
+   * @return the aggregates
+   */
+  private AggregateIndex aggregates() {
+    if (aggregates == null) {
+      TransactionSnapshot snapshot = transactions.snapshot();
+      AggregateIndex built = new AggregateIndex();
+      for (int row = 0; row < snapshot.size(); row++) {
+        built.add(snapshot.getCents(row), snapshot.getCategoryCode(row));
+      }
+      aggregates = built;
+    }
+    return aggregates;
+  }
+
+  /**
+   * This method returns the time bucketed totals, adding up the transactions
+   * the store already holds on first use. Only the combiner calls it.
+   *
+   * @return the rollup
+   */
+  private TimeRollup rollup() {
+    if (rollup == null) {
+      TransactionSnapshot snapshot = transactions.snapshot();
+      // Days and months of the zone the timestamps are shown in
+      TimeRollup built = new TimeRollup(ZoneId.systemDefault());
+      for (int row = 0; row < snapshot.size(); row++) {
+        built.add(snapshot.getTime(row), snapshot.getCents(row), snapshot.getCategoryCode(row));
+      }
+      rollup = built;
+    }
+    return rollup;
   }
 
   /**
    * This method adds a transaction to the list of transactions
-   * 
+   *
    * @param t Transaction object
-   * @throws IllegalArgumentException if transaction is null
+   * @throws IllegalArgumentException if transaction is null or its category
+   *                                  is not registered in the registry of
+   *                                  the model
+   * @throws UncheckedIOException     if the change cannot be journaled
    */
   public void addTransaction(Transaction t) {
     // Perform input validation to guarantee that all transactions added are
@@ -35,26 +276,505 @@ public class ExpenseTrackerModel {
     if (t == null) {
       throw new IllegalArgumentException("The new transaction must be non-null.");
     }
+    Transaction adopted = adoptCategory(t);
+    long start = Metrics.start();
+    writes.execute(() -> {
+      append(adopted);
+      compactJournal();
+    });
+    ADD_TIMER.stop(start);
+  }
+
+  /**
+   * This method adds a batch of transactions to the end of the list of
+   * transactions. The journal is checked for compaction once per batch.
+   *
+   * @param batch the transactions to add
+   * @throws IllegalArgumentException if a transaction is null or its category
+   *                                  is not registered, in which case none
+   *                                  is added
+   * @throws UncheckedIOException     if the change cannot be journaled
+   */
+  public void addAll(List<Transaction> batch) {
+    Transaction[] adopted = new Transaction[batch.size()];
+    for (int i = 0; i < adopted.length; i++) {
+      Transaction t = batch.get(i);
+      if (t == null) {
+        throw new IllegalArgumentException("The new transaction must be non-null.");
+      }
+      adopted[i] = adoptCategory(t);
+    }
+    long start = Metrics.start();
+    writes.execute(() -> {
+      for (Transaction t : adopted) {
+        append(t);
+      }
+      compactJournal();
+    });
+    ADD_ALL_TIMER.stop(start);
+  }
+
+  /**
+   * This method returns the transaction with its category code in the
+   * registry of the store. A transaction created with another registry is
+   * looked up by category name; built-in categories have the same code in
+   * every registry.
+   *
+   * @param t Transaction object
+   * @return the transaction, or a copy with the code of the store
+   * @throws IllegalArgumentException if the category is not registered
+   */
+  private Transaction adoptCategory(Transaction t) {
+    CategoryRegistry categories = transactions.getCategories();
+    if (t.getCategories() == categories || t.getCategoryCode() < CategoryRegistry.BUILT_IN.size()) {
+      return t;
+    }
+    return Transaction.ofCents(t.getCents(), t.getCategory(), t.getTime(), categories);
+  }
+
+  /**
+   * This method journals, stores and indexes a new transaction. Only the
+   * combiner calls it.
+   *
+   * @param t Transaction object
+   */
+  private void append(Transaction t) {
+    if (journal != null) {
+      journal.logAdd(t, transactions.getNextId());
+    }
     transactions.add(t);
+    if (index != null) {
+      index.add(transactions.getSlotCount() - 1, t.getCents(), t.getCategoryCode());
+    }
+    if (aggregates != null) {
+      aggregates.add(t.getCents(), t.getCategoryCode());
+    }
+    if (rollup != null) {
+      rollup.add(t.getTime(), t.getCents(), t.getCategoryCode());
+    }
   }
 
   /**
    * This method removes a transaction from the list of transactions
-   * 
+   *
    * @param t Transaction object
+   * @throws UncheckedIOException if the change cannot be journaled
    */
   public void removeTransaction(Transaction t) {
-    transactions.remove(t);
+    if (t != null && transactions.getCategories().getCode(t.getCategory()) != -1) {
+      Transaction adopted = adoptCategory(t);
+      long start = Metrics.start();
+      writes.execute(() -> {
+        int row = transactions.indexOf(adopted);
+        if (row != -1) {
+          removeRow(row, adopted);
+        }
+      });
+      REMOVE_TIMER.stop(start);
+    }
+  }
+
+  /**
+   * This method removes the transaction with the given id. Finding it is a
+   * binary search over the ids, and removing it records a tombstone, so no
+   * other transaction is moved.
+   *
+   * @param id transaction id
+   * @return row index the removed transaction had, or -1 if no transaction
+   *         has the id
+   * @throws UncheckedIOException if the change cannot be journaled
+   */
+  public int removeTransaction(long id) {
+    long start = Metrics.start();
+    int[] row = new int[1];
+    writes.execute(() -> {
+      row[0] = transactions.indexOf(id);
+      if (row[0] != -1) {
+        removeRow(row[0], transactions.get(row[0]));
+      }
+    });
+    REMOVE_TIMER.stop(start);
+    return row[0];
+  }
+
+  /**
+   * This method journals, removes and unindexes the transaction at a row.
+   * Only the combiner calls it.
+   *
+   * @param row row index
+   * @param t   the transaction at the row
+   */
+  private void removeRow(int row, Transaction t) {
+    if (journal != null) {
+      journal.logRemove(transactions.getId(row));
+    }
+    int slot = transactions.getSlot(row);
+    transactions.removeAt(row);
+    if (index != null) {
+      index.remove(slot, t.getCents(), t.getCategoryCode());
+    }
+    if (aggregates != null) {
+      aggregates.remove(t.getCents(), t.getCategoryCode());
+    }
+    if (rollup != null) {
+      rollup.remove(t.getTime(), t.getCents(), t.getCategoryCode());
+    }
+    compactJournal();
+    scheduleCompaction();
+  }
+
+  /**
+   * This method removes the transactions with the given ids as one change:
+   * either all of them are removed, or, if an id is unknown, none. Readers
+   * see the model before or after the whole batch, never in between.
+   *
+   * @param ids transaction ids, duplicates are removed once
+   * @return ascending row indexes the removed transactions had
+   * @throws NoSuchElementException if no transaction has one of the ids
+   * @throws UncheckedIOException   if the change cannot be journaled
+   */
+  public int[] removeAll(long[] ids) {
+    long start = Metrics.start();
+    int[][] removed = new int[1][];
+    writes.execute(() -> {
+      int[] rows = new int[ids.length];
+      for (int i = 0; i < ids.length; i++) {
+        rows[i] = transactions.indexOf(ids[i]);
+        if (rows[i] == -1) {
+          // Before anything is removed, so the batch has no effect
+          throw new NoSuchElementException("No transaction with id " + ids[i]);
+        }
+      }
+      Arrays.sort(rows);
+      removed[0] = removeRows(distinct(rows));
+    });
+    REMOVE_ALL_TIMER.stop(start);
+    return removed[0];
+  }
+
+  /**
+   * This method removes every transaction which passes the filter as one
+   * change. The rows are selected by the QueryPlanner, so an indexed filter
+   * does not scan the transactions.
+   *
+   * @param filter the filter
+   * @return ascending row indexes the removed transactions had
+   * @throws IllegalArgumentException if filter is null
+   * @throws UncheckedIOException     if the change cannot be journaled
+   */
+  public int[] removeWhere(TransactionFilter filter) {
+    if (filter == null) {
+      throw new IllegalArgumentException("The filter must be non-null.");
+    }
+    long start = Metrics.start();
+    int[][] removed = new int[1][];
+    writes.execute(() -> removed[0] = removeRows(new QueryPlanner(transactions.snapshot(), index()).select(filter)));
+    REMOVE_ALL_TIMER.stop(start);
+    return removed[0];
+  }
+
+  /**
+   * This method journals, removes and unindexes the transactions at the given
+   * rows, recording all their tombstones at once. Only the combiner calls it.
+   *
+   * @param rows ascending, distinct row indexes
+   * @return the rows
+   */
+  private int[] removeRows(int[] rows) {
+    if (rows.length == 0) {
+      return rows;
+    }
+    TransactionSnapshot before = transactions.snapshot();
+    boolean indexed = index != null && rows.length <= INDEXED_BATCH;
+    for (int row : rows) {
+      long cents = before.getCents(row);
+      int categoryCode = before.getCategoryCode(row);
+      if (journal != null) {
+        journal.logRemove(before.getId(row));
+      }
+      if (indexed) {
+        index.remove(transactions.getSlot(row), cents, categoryCode);
+      }
+      if (aggregates != null) {
+        aggregates.remove(cents, categoryCode);
+      }
+      if (rollup != null) {
+        rollup.remove(before.getTime(row), cents, categoryCode);
+      }
+    }
+    if (!indexed) {
+      index = null;
+    }
+    transactions.removeRows(rows);
+    compactJournal();
+    scheduleCompaction();
+    return rows;
+  }
+
+  /**
+   * This method returns the distinct values of a sorted array
+   *
+   * @param sorted ascending values
+   * @return ascending distinct values, the given array if there are no
+   *         duplicates
+   */
+  private static int[] distinct(int[] sorted) {
+    int count = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      if (i == 0 || sorted[i] != sorted[i - 1]) {
+        sorted[count++] = sorted[i];
+      }
+    }
+    return count == sorted.length ? sorted : Arrays.copyOf(sorted, count);
+  }
+
+  /**
+   * This method queues a compaction of the store once enough transactions
+   * were removed. Only the combiner calls it.
+   */
+  private void scheduleCompaction() {
+    if (!compactionScheduled && transactions.needsCompaction()) {
+      compactionScheduled = true;
+      boolean indexed = index != null;
+      COMPACTOR.execute(() -> compactStore(indexed));
+    }
+  }
+
+  /**
+   * This method compacts the store on the compactor thread. The live
+   * transactions of the published snapshot are moved and indexed in their new
+   * slots there, so the combiner only swaps them in and replays the changes
+   * made since that snapshot.
+   *
+   * @param indexed - whether the model had indexes when the compaction was
+   *                queued
+   */
+  private void compactStore(boolean indexed) {
+    long start = Metrics.start();
+    Compaction compaction = transactions.prepareCompaction(published);
+    TransactionIndex moved = null;
+    if (compaction != null && indexed) {
+      TransactionSnapshot compacted = compaction.getSnapshot();
+      moved = new TransactionIndex();
+      for (int slot = 0; slot < compacted.size(); slot++) {
+        moved.add(slot, compacted.getCents(slot), compacted.getCategoryCode(slot));
+      }
+    }
+    TransactionIndex remapped = moved;
+    try {
+      writes.execute(() -> applyCompaction(compaction, remapped));
+    } catch (RuntimeException e) {
+      // The failure of an earlier publish, counted by the combiner, was
+      // reported to this change instead of applying it
+      writes.execute(() -> {
+        compactionScheduled = false;
+        scheduleCompaction();
+      });
+    }
+    COMPACT_TIMER.stop(start);
+  }
+
+  /**
+   * This method swaps a prepared compaction into the store, and brings the
+   * indexes of its slots up to date with the changes made since its snapshot.
+   * Only the combiner calls it.
+   *
+   * @param compaction - the prepared compaction, null if the published
+   *                   snapshot had no tombstones
+   * @param moved      - the indexes of the compaction snapshot, null if the
+   *                   model had none
+   */
+  private void applyCompaction(Compaction compaction, TransactionIndex moved) {
+    compactionScheduled = false;
+    if (compaction == null) {
+      // The published snapshot was older than the removes, try again
+      scheduleCompaction();
+      return;
+    }
+    TransactionSnapshot compacted = compaction.getSnapshot();
+    int movedSlots = compacted.size();
+    if (!transactions.compact(compaction)) {
+      scheduleCompaction();
+      return;
+    }
+    if (moved == null) {
+      // Indexes built since the compaction was queued have the old slots
+      index = null;
+      return;
+    }
+    for (int slot : compaction.getRemoved()) {
+      moved.remove(slot, compacted.getCents(slot), compacted.getCategoryCode(slot));
+    }
+    // The transactions added since the snapshot are the last rows
+    TransactionSnapshot current = transactions.snapshot();
+    int first = current.size();
+    while (first > 0 && transactions.getSlot(first - 1) >= movedSlots) {
+      first--;
+    }
+    for (int row = first; row < current.size(); row++) {
+      moved.add(transactions.getSlot(row), current.getCents(row), current.getCategoryCode(row));
+    }
+    index = moved;
+  }
+
+  /**
+   * This method hands a snapshot to the journal once the journal has grown
+   * past its compaction threshold. Only the combiner calls it.
+   */
+  private void compactJournal() {
+    if (journal != null && journal.needsCompaction()) {
+      try {
+        journal.compact(transactions.snapshot(), transactions.getNextId());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * This method commits the journal and closes it, and closes a storage
+   * backend which is backed by a file. An in-memory model without journal has
+   * nothing to close.
+   *
+   * @throws IOException if the journal or the store cannot be written
+   */
+  @Override
+  public void close() throws IOException {
+    IOException[] failure = new IOException[1];
+    // Close between changes, never during one
+    writes.execute(() -> {
+      try {
+        try {
+          if (journal != null) {
+            journal.close();
+          }
+        } finally {
+          if (transactions instanceof Closeable) {
+            ((Closeable) transactions).close();
+          }
+        }
+      } catch (IOException e) {
+        failure[0] = e;
+      }
+    });
+    if (failure[0] != null) {
+      throw failure[0];
+    }
+  }
+
+  /**
+   * This method evaluates a filter with the QueryPlanner, which answers
+   * indexed filters from the secondary indexes instead of scanning the
+   * transactions. The indexes change with every change, so the query runs
+   * between changes.
+   *
+   * The snapshot the filter was evaluated against is taken in the same
+   * pass and returned with the rows, so the rows always refer to it however
+   * fast the model changes.
+   *
+   * @param filter the filter
+   * @return ascending row indexes of the transactions which pass the filter,
+   *         and the snapshot they refer to
+   */
+  public Selection select(TransactionFilter filter) {
+    long start = Metrics.start();
+    Selection selection = writes.compute(() -> {
+      TransactionSnapshot snapshot = transactions.snapshot();
+      return new Selection(snapshot, new QueryPlanner(snapshot, index()).select(filter));
+    });
+    SELECT_TIMER.stop(start);
+    return selection;
+  }
+
+  /**
+   * This method returns the count, sum, minimum and maximum of the amounts of
+   * all transactions and of every category. They are kept up to date on every
+   * change instead of being recomputed, so after the first call this is O(1)
+   * and does not lock.
+   *
+   * @return the aggregates of the last published snapshot
+   */
+  public Aggregates getAggregates() {
+    Aggregates current = publishedAggregates;
+    if (current == null || current.getVersion() != published.getVersion()) {
+      // Built between changes, and published with the snapshot
+      writes.execute(this::aggregates);
+      current = publishedAggregates;
+    }
+    return current;
+  }
+
+  /**
+   * This method returns the number and the sum of the transactions of a time
+   * range, to the minute, e.g. the travel spending of a quarter. It is
+   * answered from pre-aggregated time buckets without reading the
+   * transactions.
+   *
+   * @param categoryCode category code, or -1 for all categories
+   * @param from         start of the range, epoch milliseconds, inclusive
+   * @param to           end of the range, epoch milliseconds, exclusive
+   * @return the spending of the range
+   */
+  public Bucket getSpending(int categoryCode, long from, long to) {
+    return writes.compute(() -> rollup().spending(categoryCode, from, to));
+  }
+
+  /**
+   * This method returns the minutes, days or months of a time range which
+   * hold any transaction, with their number and sum of transactions
+   *
+   * @param granularity  size of the buckets
+   * @param categoryCode category code, or -1 for all categories
+   * @param from         start of the range, epoch milliseconds, inclusive
+   * @param to           end of the range, epoch milliseconds, exclusive
+   * @return the buckets in time order
+   */
+  public List<Bucket> getRollup(Granularity granularity, int categoryCode, long from, long to) {
+    return writes.compute(() -> rollup().buckets(granularity, categoryCode, from, to));
   }
 
   /**
-   * This method returns the list of transactions
-   * 
+   * This method returns the list of transactions as an immutable snapshot.
+   * Later changes to the model are not visible through the returned list.
+   *
    * @return list of transactions
    */
   public List<Transaction> getTransactions() {
-    // encapsulation - data integrity
-    return Collections.unmodifiableList(new ArrayList<>(transactions));
+    return getSnapshot();
+  }
+
+  /**
+   * This method returns an immutable snapshot of the transactions in O(1),
+   * without locking. It includes every change which returned before the call.
+   *
+   * @return snapshot of the transactions
+   */
+  public TransactionSnapshot getSnapshot() {
+    // encapsulation - data integrity: the snapshot is read-only and the store
+    // copies shared storage before changing it
+    return published;
+  }
+
+  /**
+   * This method returns the category registry of the model, the one of its
+   * store. Categories registered in it are valid for new transactions and
+   * filters right away.
+   *
+   * @return the category registry
+   */
+  public CategoryRegistry getCategories() {
+    return transactions.getCategories();
+  }
+
+  /**
+   * This method returns the version of the model. The version changes with
+   * every added or removed transaction, so callers can skip work when it did
+   * not change.
+   *
+   * @return model version
+   */
+  public long getVersion() {
+    return published.getVersion();
   }
 
 }
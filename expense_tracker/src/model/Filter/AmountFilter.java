@@ -3,19 +3,25 @@ package model.Filter;
 import java.util.ArrayList;
 import java.util.List;
 
+import model.Money;
 import model.Transaction;
+import model.Index.TransactionIndex;
+import model.Storage.TransactionSnapshot;
 import controller.InputValidation;
 
 /**
  * AmountFilter class extends TransactionFilter to define the filter method of
- * the latter
+ * the latter. The amount index of the model can answer it.
+ *
+ * Amounts are compared in whole cents, so an amount matches exactly the
+ * transactions which show the same amount.
  */
-public class AmountFilter implements TransactionFilter {
+public class AmountFilter implements IndexedFilter {
 
     /**
-     * Input amount entered by the user
+     * Input amount entered by the user, in cents
      */
-    private double amountFilter;
+    private long amountFilter;
 
     /**
      * This method sets amountFilter equal to the user entered amount
@@ -30,7 +36,7 @@ public class AmountFilter implements TransactionFilter {
         if (!InputValidation.isValidAmount(amountFilter)) {
             throw new IllegalArgumentException("Invalid amount filter");
         } else {
-            this.amountFilter = amountFilter;
+            this.amountFilter = Money.toCents(amountFilter);
         }
     }
 
@@ -47,11 +53,31 @@ public class AmountFilter implements TransactionFilter {
         List<Transaction> filteredTransactions = new ArrayList<>();
         for (Transaction transaction : transactions) {
             // Your solution could use a different comparison here.
-            if (transaction.getAmount() == amountFilter) {
+            if (transaction.getCents() == amountFilter) {
                 filteredTransactions.add(transaction);
             }
         }
         return filteredTransactions;
     }
 
+    @Override
+    public boolean matches(Transaction transaction) {
+        return transaction.getCents() == amountFilter;
+    }
+
+    @Override
+    public boolean matches(TransactionSnapshot transactions, int row) {
+        return transactions.getCents(row) == amountFilter;
+    }
+
+    @Override
+    public int[] lookup(TransactionIndex index) {
+        return index.slotsWithAmount(amountFilter);
+    }
+
+    @Override
+    public int estimate(TransactionIndex index) {
+        return index.countAmount(amountFilter);
+    }
+
 }
@@ -0,0 +1,76 @@
+package model.Filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import model.Money;
+import model.Transaction;
+import model.Index.TransactionIndex;
+import model.Storage.TransactionSnapshot;
+
+/**
+ * AmountRangeFilter passes the transactions whose amount lies between a
+ * minimum and a maximum amount, both inclusive. The amount index of the model
+ * can answer it. The bounds are rounded to whole cents like the amounts.
+ */
+public class AmountRangeFilter implements IndexedFilter {
+
+    /**
+     * Smallest amount which passes the filter, in cents
+     */
+    private final long minAmount;
+
+    /**
+     * Largest amount which passes the filter, in cents
+     */
+    private final long maxAmount;
+
+    /**
+     * This method sets the amount range
+     *
+     * @param minAmount smallest amount which passes the filter
+     * @param maxAmount largest amount which passes the filter
+     * @throws IllegalArgumentException if the range is empty or negative
+     */
+    public AmountRangeFilter(double minAmount, double maxAmount) {
+        if (minAmount < 0 || minAmount > maxAmount) {
+            throw new IllegalArgumentException("Invalid amount range filter");
+        }
+        this.minAmount = Money.toCents(minAmount);
+        this.maxAmount = Money.toCents(maxAmount);
+    }
+
+    @Override
+    public List<Transaction> filter(List<Transaction> transactions) {
+        List<Transaction> filteredTransactions = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            if (matches(transaction)) {
+                filteredTransactions.add(transaction);
+            }
+        }
+        return filteredTransactions;
+    }
+
+    @Override
+    public boolean matches(Transaction transaction) {
+        long amount = transaction.getCents();
+        return amount >= minAmount && amount <= maxAmount;
+    }
+
+    @Override
+    public boolean matches(TransactionSnapshot transactions, int row) {
+        long amount = transactions.getCents(row);
+        return amount >= minAmount && amount <= maxAmount;
+    }
+
+    @Override
+    public int[] lookup(TransactionIndex index) {
+        return index.slotsWithAmountBetween(minAmount, maxAmount);
+    }
+
+    @Override
+    public int estimate(TransactionIndex index) {
+        return index.countAmountBetween(minAmount, maxAmount);
+    }
+
+}
@@ -0,0 +1,77 @@
+package model.Filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import model.Transaction;
+import model.Storage.TransactionSnapshot;
+
+/**
+ * AndFilter passes the transactions which pass all of its filters.
+ *
+ * NOTE) The Composite design pattern is being applied. The QueryPlanner
+ * decides in which order the filters are evaluated.
+ */
+public class AndFilter implements TransactionFilter {
+
+    /**
+     * The combined filters
+     */
+    private final List<TransactionFilter> filters;
+
+    /**
+     * This method combines the given filters
+     *
+     * @param filters the filters to combine
+     * @throws IllegalArgumentException if there are no filters or one is null
+     */
+    public AndFilter(TransactionFilter... filters) {
+        if (filters == null || filters.length == 0 || Arrays.asList(filters).contains(null)) {
+            throw new IllegalArgumentException("Invalid and filter");
+        }
+        this.filters = Collections.unmodifiableList(Arrays.asList(filters.clone()));
+    }
+
+    /**
+     * This method returns the combined filters
+     *
+     * @return the combined filters
+     */
+    public List<TransactionFilter> getFilters() {
+        return filters;
+    }
+
+    @Override
+    public List<Transaction> filter(List<Transaction> transactions) {
+        List<Transaction> filteredTransactions = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            if (matches(transaction)) {
+                filteredTransactions.add(transaction);
+            }
+        }
+        return filteredTransactions;
+    }
+
+    @Override
+    public boolean matches(Transaction transaction) {
+        for (TransactionFilter filter : filters) {
+            if (filter.matches(transaction) == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean matches(TransactionSnapshot transactions, int row) {
+        for (TransactionFilter filter : filters) {
+            if (filter.matches(transactions, row) == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
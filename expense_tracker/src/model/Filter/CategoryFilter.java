@@ -3,33 +3,52 @@ package model.Filter;
 import java.util.ArrayList;
 import java.util.List;
 
+import model.CategoryRegistry;
 import model.Transaction;
-import controller.InputValidation;
+import model.Index.TransactionIndex;
+import model.Storage.TransactionSnapshot;
 
 /**
  * CategoryFilter class extends TransactionFilter to define the filter method of
- * the latter
+ * the latter. The category index of the model can answer it.
  */
-public class CategoryFilter implements TransactionFilter {
+public class CategoryFilter implements IndexedFilter {
     /**
-     * Input category entered by the user
+     * Category code of the category entered by the user. Transactions are
+     * matched by comparing codes, never names.
      */
-    private String categoryFilter;
+    private int categoryCode;
 
     /**
-     * This method sets categoryFilter equal to the user entered category
+     * This method sets the filter to the code of the user entered built-in
+     * category
      * 
      * @param categoryFilter Input category entered by the user
      * @throws IllegalArgumentException if the enetered category fails the
      *                                  InputValidation check
      */
     public CategoryFilter(String categoryFilter) {
+        this(categoryFilter, CategoryRegistry.BUILT_IN);
+    }
+
+    /**
+     * This method sets the filter to the code of the user entered category in
+     * the registry of the filtered transactions, e.g. a custom category
+     * 
+     * @param categoryFilter Input category entered by the user
+     * @param categories     Registry of the model the filter is applied to
+     * @throws IllegalArgumentException if the enetered category is not in the
+     *                                  registry
+     */
+    public CategoryFilter(String categoryFilter, CategoryRegistry categories) {
         // Since the CategoryFilter constructor is public,
         // the input validation needs to be performed again.
-        if (!InputValidation.isValidCategory(categoryFilter)) {
+        // An invalid category has no category code
+        int code = categories.getCode(categoryFilter);
+        if (code == -1) {
             throw new IllegalArgumentException("Invalid category filter");
         } else {
-            this.categoryFilter = categoryFilter;
+            this.categoryCode = code;
         }
     }
 
@@ -47,11 +66,31 @@ public class CategoryFilter implements TransactionFilter {
         List<Transaction> filteredTransactions = new ArrayList<>();
 
         for (Transaction transaction : transactions) {
-            if (transaction.getCategory().equalsIgnoreCase(categoryFilter)) {
+            if (transaction.getCategoryCode() == categoryCode) {
                 filteredTransactions.add(transaction);
             }
         }
 
         return filteredTransactions;
     }
+
+    @Override
+    public boolean matches(Transaction transaction) {
+        return transaction.getCategoryCode() == categoryCode;
+    }
+
+    @Override
+    public boolean matches(TransactionSnapshot transactions, int row) {
+        return transactions.getCategoryCode(row) == categoryCode;
+    }
+
+    @Override
+    public int[] lookup(TransactionIndex index) {
+        return index.slotsWithCategory(categoryCode);
+    }
+
+    @Override
+    public int estimate(TransactionIndex index) {
+        return index.countCategory(categoryCode);
+    }
 }
@@ -0,0 +1,81 @@
+package model.Filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import model.Transaction;
+import model.Storage.TransactionSnapshot;
+
+/**
+ * DateRangeFilter passes the transactions whose timestamp lies between a start
+ * and an end time, both inclusive.
+ */
+public class DateRangeFilter implements TransactionFilter {
+
+    /**
+     * Start of the range in epoch milliseconds
+     */
+    private final long fromTime;
+
+    /**
+     * End of the range in epoch milliseconds
+     */
+    private final long toTime;
+
+    /**
+     * This method sets the date range
+     *
+     * @param fromTime start of the range in epoch milliseconds
+     * @param toTime   end of the range in epoch milliseconds
+     * @throws IllegalArgumentException if the range is empty
+     */
+    public DateRangeFilter(long fromTime, long toTime) {
+        if (fromTime > toTime) {
+            throw new IllegalArgumentException("Invalid date range filter");
+        }
+        this.fromTime = fromTime;
+        this.toTime = toTime;
+    }
+
+    /**
+     * This method creates a filter for the transactions of the last days,
+     * up to now as the clock of new transactions tells it, see
+     * Transaction.setClock
+     *
+     * @param days number of days
+     * @return the filter
+     * @throws IllegalArgumentException if days is negative
+     */
+    public static DateRangeFilter lastDays(int days) {
+        if (days < 0) {
+            throw new IllegalArgumentException("Invalid date range filter");
+        }
+        long now = Transaction.getClock().millis();
+        return new DateRangeFilter(now - TimeUnit.DAYS.toMillis(days), now);
+    }
+
+    @Override
+    public List<Transaction> filter(List<Transaction> transactions) {
+        List<Transaction> filteredTransactions = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            if (matches(transaction)) {
+                filteredTransactions.add(transaction);
+            }
+        }
+        return filteredTransactions;
+    }
+
+    @Override
+    public boolean matches(Transaction transaction) {
+        long time = transaction.getTime();
+        return time >= fromTime && time <= toTime;
+    }
+
+    @Override
+    public boolean matches(TransactionSnapshot transactions, int row) {
+        long time = transactions.getTime(row);
+        return time >= fromTime && time <= toTime;
+    }
+
+}
@@ -0,0 +1,29 @@
+package model.Filter;
+
+import model.Index.TransactionIndex;
+
+/**
+ * An IndexedFilter is a TransactionFilter which the secondary indexes of the
+ * model can answer without scanning the transactions.
+ */
+public interface IndexedFilter extends TransactionFilter {
+
+    /**
+     * This method answers the filter from the indexes
+     *
+     * @param index the indexes of the model
+     * @return ascending slots of the transactions which pass the filter
+     */
+    public int[] lookup(TransactionIndex index);
+
+    /**
+     * This method estimates from the indexes how many transactions pass the
+     * filter, without collecting them. The QueryPlanner uses it to order
+     * predicates by selectivity.
+     *
+     * @param index the indexes of the model
+     * @return estimated number of transactions which pass the filter
+     */
+    public int estimate(TransactionIndex index);
+
+}
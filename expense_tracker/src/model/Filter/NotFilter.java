@@ -0,0 +1,62 @@
+package model.Filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import model.Transaction;
+import model.Storage.TransactionSnapshot;
+
+/**
+ * NotFilter passes the transactions which do not pass its filter.
+ */
+public class NotFilter implements TransactionFilter {
+
+    /**
+     * The negated filter
+     */
+    private final TransactionFilter filter;
+
+    /**
+     * This method negates the given filter
+     *
+     * @param filter the filter to negate
+     * @throws IllegalArgumentException if the filter is null
+     */
+    public NotFilter(TransactionFilter filter) {
+        if (filter == null) {
+            throw new IllegalArgumentException("Invalid not filter");
+        }
+        this.filter = filter;
+    }
+
+    /**
+     * This method returns the negated filter
+     *
+     * @return the negated filter
+     */
+    public TransactionFilter getFilter() {
+        return filter;
+    }
+
+    @Override
+    public List<Transaction> filter(List<Transaction> transactions) {
+        List<Transaction> filteredTransactions = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            if (matches(transaction)) {
+                filteredTransactions.add(transaction);
+            }
+        }
+        return filteredTransactions;
+    }
+
+    @Override
+    public boolean matches(Transaction transaction) {
+        return !filter.matches(transaction);
+    }
+
+    @Override
+    public boolean matches(TransactionSnapshot transactions, int row) {
+        return !filter.matches(transactions, row);
+    }
+
+}
@@ -0,0 +1,197 @@
+package model.Filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import model.Index.RowBitmap;
+import model.Index.TransactionIndex;
+import model.Storage.TransactionSnapshot;
+
+/**
+ * QueryPlanner evaluates a (combined) TransactionFilter over a snapshot of the
+ * model.
+ *
+ * The conjuncts of an AND are ordered by their estimated number of matches.
+ * If the most selective conjunct can be answered from the indexes, its rows
+ * are the only candidates; all other conjuncts are then tested together, row
+ * by row, in a single pass over the candidates (or over all rows if no index
+ * applies). No intermediate lists are built.
+ */
+public class QueryPlanner {
+
+    /**
+     * The snapshot to evaluate the filters over
+     */
+    private final TransactionSnapshot transactions;
+
+    /**
+     * The indexes of the model, at the version of the snapshot
+     */
+    private final TransactionIndex index;
+
+    /**
+     * This method creates a planner over a snapshot and the matching indexes
+     *
+     * @param transactions snapshot of the transactions
+     * @param index        indexes of the model at the version of the snapshot
+     */
+    public QueryPlanner(TransactionSnapshot transactions, TransactionIndex index) {
+        this.transactions = transactions;
+        this.index = index;
+    }
+
+    /**
+     * This method returns the rows which pass the filter
+     *
+     * @param filter the filter
+     * @return ascending row indexes of the transactions which pass the filter
+     */
+    public int[] select(TransactionFilter filter) {
+        if (filter instanceof IndexedFilter) {
+            // The indexes hold slots of the store
+            return transactions.toRows(((IndexedFilter) filter).lookup(index));
+        }
+        if (filter instanceof OrFilter && isIndexed(filter)) {
+            // Union of the rows of every branch
+            RowBitmap union = new RowBitmap();
+            for (TransactionFilter branch : ((OrFilter) filter).getFilters()) {
+                for (int row : select(branch)) {
+                    union.set(row);
+                }
+            }
+            return union.toArray();
+        }
+
+        // Most selective conjunct first
+        List<TransactionFilter> conjuncts = new ArrayList<>();
+        flattenAnd(filter, conjuncts);
+        conjuncts.sort(Comparator.comparingInt(this::estimate));
+
+        int[] candidates = null;
+        if (isIndexed(conjuncts.get(0))) {
+            candidates = select(conjuncts.remove(0));
+        }
+        return scan(candidates, conjuncts.toArray(new TransactionFilter[0]));
+    }
+
+    /**
+     * This method estimates how many transactions pass the filter
+     *
+     * @param filter the filter
+     * @return estimated number of matches, the number of transactions if the
+     *         indexes cannot tell
+     */
+    public int estimate(TransactionFilter filter) {
+        int size = transactions.size();
+        if (filter instanceof IndexedFilter) {
+            return ((IndexedFilter) filter).estimate(index);
+        }
+        if (filter instanceof AndFilter) {
+            int estimate = size;
+            for (TransactionFilter conjunct : ((AndFilter) filter).getFilters()) {
+                estimate = Math.min(estimate, estimate(conjunct));
+            }
+            return estimate;
+        }
+        if (filter instanceof OrFilter) {
+            long estimate = 0;
+            for (TransactionFilter branch : ((OrFilter) filter).getFilters()) {
+                estimate += estimate(branch);
+            }
+            return (int) Math.min(size, estimate);
+        }
+        return size;
+    }
+
+    /**
+     * This method checks whether the indexes can produce the candidate rows
+     * of the filter without a scan over all rows
+     *
+     * @param filter the filter
+     * @return whether the filter can drive the evaluation
+     */
+    private boolean isIndexed(TransactionFilter filter) {
+        if (filter instanceof IndexedFilter) {
+            return true;
+        }
+        if (filter instanceof AndFilter) {
+            for (TransactionFilter conjunct : ((AndFilter) filter).getFilters()) {
+                if (isIndexed(conjunct)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (filter instanceof OrFilter) {
+            for (TransactionFilter branch : ((OrFilter) filter).getFilters()) {
+                if (!isIndexed(branch)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * This method collects the conjuncts of nested AND filters
+     *
+     * @param filter    the filter
+     * @param conjuncts collects the conjuncts
+     */
+    private static void flattenAnd(TransactionFilter filter, List<TransactionFilter> conjuncts) {
+        if (filter instanceof AndFilter) {
+            for (TransactionFilter conjunct : ((AndFilter) filter).getFilters()) {
+                flattenAnd(conjunct, conjuncts);
+            }
+        } else {
+            conjuncts.add(filter);
+        }
+    }
+
+    /**
+     * This method tests all filters on every candidate row in a single pass
+     *
+     * @param candidates ascending candidate rows, or null for all rows
+     * @param filters    filters every row has to pass, most selective first
+     * @return ascending row indexes which pass all filters
+     */
+    private int[] scan(int[] candidates, TransactionFilter[] filters) {
+        if (candidates != null && filters.length == 0) {
+            return candidates;
+        }
+        int count = candidates == null ? transactions.size() : candidates.length;
+        int[] rows = new int[Math.min(count, 16)];
+        int matches = 0;
+        for (int i = 0; i < count; i++) {
+            int row = candidates == null ? i : candidates[i];
+            if (matchesAll(filters, row)) {
+                if (matches == rows.length) {
+                    rows = Arrays.copyOf(rows, Math.min(count, rows.length * 2));
+                }
+                rows[matches++] = row;
+            }
+        }
+        return matches == rows.length ? rows : Arrays.copyOf(rows, matches);
+    }
+
+    /**
+     * This method tests a row against all filters, stopping at the first one
+     * it fails
+     *
+     * @param filters the filters
+     * @param row     row index
+     * @return whether the row passes all filters
+     */
+    private boolean matchesAll(TransactionFilter[] filters, int row) {
+        for (TransactionFilter filter : filters) {
+            if (!filter.matches(transactions, row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -1,13 +1,17 @@
 package model.Filter;
 
+import java.util.Collections;
 import java.util.List;
 
 import model.Transaction;
+import model.Storage.TransactionSnapshot;
 
 /**
  * The TransactionFilter supports filtering the transaction list.
  *
  * NOTE) The Strategy design pattern is being applied. This is the Strategy interface.
+ * Filters can be combined with AndFilter, OrFilter and NotFilter and are then
+ * evaluated by the QueryPlanner.
  */
 public interface TransactionFilter {
 
@@ -18,4 +22,25 @@ public interface TransactionFilter {
    */
   public List<Transaction> filter(List<Transaction> transactions);
 
+  /**
+   * This method tests a single transaction. Filters should override it, the
+   * default filters a one element list.
+   * @param transaction the transaction
+   * @return whether the transaction passes the filter
+   */
+  public default boolean matches(Transaction transaction) {
+    return !filter(Collections.singletonList(transaction)).isEmpty();
+  }
+
+  /**
+   * This method tests a single row of a snapshot. Filters should override it
+   * to read the row without materialising a Transaction.
+   * @param transactions snapshot of the transactions
+   * @param row row index
+   * @return whether the row passes the filter
+   */
+  public default boolean matches(TransactionSnapshot transactions, int row) {
+    return matches(transactions.get(row));
+  }
+
 }
@@ -0,0 +1,249 @@
+package model.Index;
+
+import java.util.Arrays;
+
+/**
+ * AmountIndex maps every distinct transaction amount to the slots holding it.
+ *
+ * The distinct amounts are kept in a sorted primitive array, each with an
+ * ascending posting list of slots. Looking up an amount is a binary search
+ * plus a copy of its posting list, O(log d + k) for d distinct amounts and k
+ * matching slots.
+ *
+ * Removing a slot leaves it in its posting list and marks it in a bitmap of
+ * removed slots, which lookups skip, so a remove is O(log d). A posting list
+ * is only compacted once most of it is removed, which costs O(1) per remove
+ * amortized, so a list never holds more than twice its live slots. An amount
+ * keeps its entry when its last slot is removed, so a remove never shifts the
+ * sorted array.
+ */
+public class AmountIndex {
+
+  /**
+   * The distinct amounts in ascending order
+   */
+  private long[] amounts = new long[16];
+
+  /**
+   * The posting list of every amount
+   */
+  private int[][] rows = new int[16][];
+
+  /**
+   * The number of used entries of every posting list
+   */
+  private int[] counts = new int[16];
+
+  /**
+   * The number of live slots of every posting list
+   */
+  private int[] live = new int[16];
+
+  /**
+   * The removed slots which may still be in a posting list
+   */
+  private final RowBitmap removed = new RowBitmap();
+
+  /**
+   * Number of distinct amounts
+   */
+  private int size;
+
+  /**
+   * This method indexes a new slot. Slots must be added in ascending order.
+   *
+   * @param slot   slot of the transaction
+   * @param amount transaction amount in cents
+   */
+  public void add(int slot, long amount) {
+    int key = Arrays.binarySearch(amounts, 0, size, amount);
+    if (key < 0) {
+      key = insertKey(-key - 1, amount);
+    }
+    if (counts[key] == rows[key].length) {
+      rows[key] = Arrays.copyOf(rows[key], rows[key].length * 2);
+    }
+    rows[key][counts[key]++] = slot;
+    live[key]++;
+  }
+
+  /**
+   * This method removes a slot from the posting list of its amount
+   *
+   * @param slot   slot of the transaction, which holds the amount
+   * @param amount transaction amount in cents
+   */
+  public void remove(int slot, long amount) {
+    int key = Arrays.binarySearch(amounts, 0, size, amount);
+    if (key >= 0 && !removed.get(slot)) {
+      removed.set(slot);
+      live[key]--;
+      if (live[key] * 2 < counts[key]) {
+        purge(key);
+      }
+    }
+  }
+
+  /**
+   * This method returns the slots with the given amount
+   *
+   * @param amount transaction amount in cents
+   * @return ascending slots
+   */
+  public int[] slotsWithAmount(long amount) {
+    int key = Arrays.binarySearch(amounts, 0, size, amount);
+    return key < 0 ? new int[0] : liveSlots(key);
+  }
+
+  /**
+   * This method returns the number of slots with the given amount
+   *
+   * @param amount transaction amount in cents
+   * @return number of slots
+   */
+  public int countAmount(long amount) {
+    int key = Arrays.binarySearch(amounts, 0, size, amount);
+    return key < 0 ? 0 : live[key];
+  }
+
+  /**
+   * This method returns the slots with an amount between min and max, both
+   * inclusive
+   *
+   * @param min smallest amount in cents
+   * @param max largest amount in cents
+   * @return ascending slots
+   */
+  public int[] slotsWithAmountBetween(long min, long max) {
+    int from = firstKeyAtLeast(min);
+    int to = firstKeyAbove(max);
+    if (to - from == 1) {
+      return liveSlots(from);
+    }
+    // Merge the posting lists in slot order
+    RowBitmap merged = new RowBitmap();
+    for (int key = from; key < to; key++) {
+      for (int i = 0; i < counts[key]; i++) {
+        if (!removed.get(rows[key][i])) {
+          merged.set(rows[key][i]);
+        }
+      }
+    }
+    return merged.toArray();
+  }
+
+  /**
+   * This method returns the number of slots with an amount between min and
+   * max, both inclusive
+   *
+   * @param min smallest amount in cents
+   * @param max largest amount in cents
+   * @return number of slots
+   */
+  public int countAmountBetween(long min, long max) {
+    int count = 0;
+    for (int key = firstKeyAtLeast(min), to = firstKeyAbove(max); key < to; key++) {
+      count += live[key];
+    }
+    return count;
+  }
+
+  /**
+   * This method returns the live slots of a posting list
+   *
+   * @param key position of the amount in the sorted array
+   * @return ascending slots
+   */
+  private int[] liveSlots(int key) {
+    int[] slots = new int[live[key]];
+    int n = 0;
+    for (int i = 0; i < counts[key]; i++) {
+      if (!removed.get(rows[key][i])) {
+        slots[n++] = rows[key][i];
+      }
+    }
+    return slots;
+  }
+
+  /**
+   * This method drops the removed slots from a posting list
+   *
+   * @param key position of the amount in the sorted array
+   */
+  private void purge(int key) {
+    rows[key] = liveSlots(key);
+    if (rows[key].length == 0) {
+      rows[key] = new int[4];
+    }
+    counts[key] = live[key];
+  }
+
+  /**
+   * This method returns the position of the first distinct amount which is at
+   * least the given amount
+   *
+   * @param amount transaction amount in cents
+   * @return position in the sorted array
+   */
+  private int firstKeyAtLeast(long amount) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (amounts[mid] < amount) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * This method returns the position of the first distinct amount which is
+   * above the given amount
+   *
+   * @param amount transaction amount in cents
+   * @return position in the sorted array
+   */
+  private int firstKeyAbove(long amount) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (amounts[mid] <= amount) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * This method inserts a new distinct amount
+   *
+   * @param key    position of the amount in the sorted array
+   * @param amount transaction amount in cents
+   * @return position of the amount
+   */
+  private int insertKey(int key, long amount) {
+    if (size == amounts.length) {
+      amounts = Arrays.copyOf(amounts, size * 2);
+      rows = Arrays.copyOf(rows, size * 2);
+      counts = Arrays.copyOf(counts, size * 2);
+      live = Arrays.copyOf(live, size * 2);
+    }
+    System.arraycopy(amounts, key, amounts, key + 1, size - key);
+    System.arraycopy(rows, key, rows, key + 1, size - key);
+    System.arraycopy(counts, key, counts, key + 1, size - key);
+    System.arraycopy(live, key, live, key + 1, size - key);
+    amounts[key] = amount;
+    rows[key] = new int[4];
+    counts[key] = 0;
+    live[key] = 0;
+    size++;
+    return key;
+  }
+
+}
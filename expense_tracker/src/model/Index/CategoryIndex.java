@@ -0,0 +1,65 @@
+package model.Index;
+
+import java.util.Arrays;
+
+/**
+ * CategoryIndex keeps a RowBitmap of the slots of every category code.
+ */
+public class CategoryIndex {
+
+  /**
+   * The slots of every category, indexed by category code
+   */
+  private RowBitmap[] rows = new RowBitmap[0];
+
+  /**
+   * This method indexes a new slot
+   *
+   * @param slot         slot of the transaction
+   * @param categoryCode category code of the transaction
+   */
+  public void add(int slot, int categoryCode) {
+    if (categoryCode >= rows.length) {
+      int length = rows.length;
+      rows = Arrays.copyOf(rows, categoryCode + 1);
+      for (int code = length; code < rows.length; code++) {
+        rows[code] = new RowBitmap();
+      }
+    }
+    rows[categoryCode].set(slot);
+  }
+
+  /**
+   * This method removes a slot. The other slots do not move, so only the bit
+   * of the slot in the bitmap of its category is cleared.
+   *
+   * @param slot         slot of the transaction
+   * @param categoryCode category code of the transaction
+   */
+  public void remove(int slot, int categoryCode) {
+    if (categoryCode >= 0 && categoryCode < rows.length) {
+      rows[categoryCode].clear(slot);
+    }
+  }
+
+  /**
+   * This method returns the slots of the given category
+   *
+   * @param categoryCode category code
+   * @return ascending slots
+   */
+  public int[] slotsWithCategory(int categoryCode) {
+    return categoryCode < 0 || categoryCode >= rows.length ? new int[0] : rows[categoryCode].toArray();
+  }
+
+  /**
+   * This method returns the number of slots of the given category
+   *
+   * @param categoryCode category code
+   * @return number of slots
+   */
+  public int countCategory(int categoryCode) {
+    return categoryCode < 0 || categoryCode >= rows.length ? 0 : rows[categoryCode].cardinality();
+  }
+
+}
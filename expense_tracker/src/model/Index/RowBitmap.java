@@ -0,0 +1,155 @@
+package model.Index;
+
+import java.util.Arrays;
+
+/**
+ * RowBitmap is a growable bitmap of row indexes, e.g. the rows of a snapshot
+ * which pass a filter or the slots of a category.
+ */
+public class RowBitmap {
+
+  /**
+   * The bits, row r is bit (r % 64) of word (r / 64)
+   */
+  private long[] words;
+
+  /**
+   * Number of set bits
+   */
+  private int cardinality;
+
+  /**
+   * Initialize an empty bitmap
+   */
+  public RowBitmap() {
+    words = new long[1];
+  }
+
+  /**
+   * This method creates a bitmap with the given rows set
+   *
+   * @param rows row indexes
+   * @return the bitmap
+   */
+  public static RowBitmap of(int[] rows) {
+    RowBitmap bitmap = new RowBitmap();
+    if (rows.length > 0) {
+      // Rows are usually ascending, size the words for the last one up front
+      bitmap.words = new long[(rows[rows.length - 1] >>> 6) + 1];
+    }
+    for (int row : rows) {
+      bitmap.set(row);
+    }
+    return bitmap;
+  }
+
+  /**
+   * This method returns whether the row is set
+   *
+   * @param row row index
+   * @return whether the row is set
+   */
+  public boolean get(int row) {
+    int word = row >>> 6;
+    return word < words.length && (words[word] & (1L << row)) != 0;
+  }
+
+  /**
+   * This method sets the row
+   *
+   * @param row row index
+   */
+  public void set(int row) {
+    int word = row >>> 6;
+    if (word >= words.length) {
+      words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+    }
+    if ((words[word] & (1L << row)) == 0) {
+      words[word] |= 1L << row;
+      cardinality++;
+    }
+  }
+
+  /**
+   * This method clears the row
+   *
+   * @param row row index
+   */
+  public void clear(int row) {
+    int word = row >>> 6;
+    if (word < words.length && (words[word] & (1L << row)) != 0) {
+      words[word] &= ~(1L << row);
+      cardinality--;
+    }
+  }
+
+  /**
+   * This method returns the number of set rows
+   *
+   * @return number of set rows
+   */
+  public int cardinality() {
+    return cardinality;
+  }
+
+  /**
+   * This method returns the first set row at or after the given row
+   *
+   * @param from row index to start at
+   * @return the next set row, or -1 if there is none
+   */
+  public int nextSetBit(int from) {
+    int word = from >>> 6;
+    if (word >= words.length) {
+      return -1;
+    }
+    long bits = words[word] & (-1L << from);
+    while (true) {
+      if (bits != 0) {
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+      }
+      if (++word == words.length) {
+        return -1;
+      }
+      bits = words[word];
+    }
+  }
+
+  /**
+   * This method returns the last set row at or before the given row
+   *
+   * @param from row index to start at
+   * @return the previous set row, or -1 if there is none
+   */
+  public int previousSetBit(int from) {
+    if (from < 0) {
+      return -1;
+    }
+    int word = Math.min(from >>> 6, words.length - 1);
+    long bits = word == from >>> 6 ? words[word] & (-1L >>> (63 - (from & 63))) : words[word];
+    while (true) {
+      if (bits != 0) {
+        return (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+      }
+      if (word-- == 0) {
+        return -1;
+      }
+      bits = words[word];
+    }
+  }
+
+  /**
+   * This method returns the set rows in ascending order
+   *
+   * @return the set rows
+   */
+  public int[] toArray() {
+    int[] rows = new int[cardinality];
+    int i = 0;
+    for (int row = nextSetBit(0); row != -1; row = nextSetBit(row + 1)) {
+      rows[i++] = row;
+    }
+    return rows;
+  }
+
+}
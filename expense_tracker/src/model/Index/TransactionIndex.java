@@ -0,0 +1,112 @@
+package model.Index;
+
+/**
+ * TransactionIndex bundles the secondary indexes the model keeps over its
+ * rows. The model updates it on every add and remove, so lookups never scan
+ * the transactions.
+ *
+ * The indexes are keyed by the slots of the store rather than by row index.
+ * Slots do not move when a transaction is removed, so a remove only drops its
+ * own slot. The query planner maps the slots back onto the rows of a snapshot.
+ */
+public class TransactionIndex {
+
+  /**
+   * Slots by category code
+   */
+  private final CategoryIndex categories = new CategoryIndex();
+
+  /**
+   * Slots by amount
+   */
+  private final AmountIndex amounts = new AmountIndex();
+
+  /**
+   * This method indexes a slot appended to the end of the store
+   *
+   * @param slot         slot of the transaction
+   * @param amount       transaction amount in cents
+   * @param categoryCode category code of the transaction
+   */
+  public void add(int slot, long amount, int categoryCode) {
+    categories.add(slot, categoryCode);
+    amounts.add(slot, amount);
+  }
+
+  /**
+   * This method removes a slot. No other slot changes.
+   *
+   * @param slot         slot of the transaction
+   * @param amount       transaction amount in cents
+   * @param categoryCode category code of the transaction
+   */
+  public void remove(int slot, long amount, int categoryCode) {
+    categories.remove(slot, categoryCode);
+    amounts.remove(slot, amount);
+  }
+
+  /**
+   * This method returns the slots of the given category
+   *
+   * @param categoryCode category code
+   * @return ascending slots
+   */
+  public int[] slotsWithCategory(int categoryCode) {
+    return categories.slotsWithCategory(categoryCode);
+  }
+
+  /**
+   * This method returns the number of rows of the given category
+   *
+   * @param categoryCode category code
+   * @return number of rows
+   */
+  public int countCategory(int categoryCode) {
+    return categories.countCategory(categoryCode);
+  }
+
+  /**
+   * This method returns the slots with the given amount
+   *
+   * @param amount transaction amount in cents
+   * @return ascending slots
+   */
+  public int[] slotsWithAmount(long amount) {
+    return amounts.slotsWithAmount(amount);
+  }
+
+  /**
+   * This method returns the number of rows with the given amount
+   *
+   * @param amount transaction amount in cents
+   * @return number of rows
+   */
+  public int countAmount(long amount) {
+    return amounts.countAmount(amount);
+  }
+
+  /**
+   * This method returns the slots with an amount between min and max, both
+   * inclusive
+   *
+   * @param min smallest amount in cents
+   * @param max largest amount in cents
+   * @return ascending slots
+   */
+  public int[] slotsWithAmountBetween(long min, long max) {
+    return amounts.slotsWithAmountBetween(min, max);
+  }
+
+  /**
+   * This method returns the number of rows with an amount between min and
+   * max, both inclusive
+   *
+   * @param min smallest amount in cents
+   * @param max largest amount in cents
+   * @return number of rows
+   */
+  public int countAmountBetween(long min, long max) {
+    return amounts.countAmountBetween(min, max);
+  }
+
+}
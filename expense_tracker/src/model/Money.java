@@ -0,0 +1,103 @@
+package model;
+
+/**
+ * Money converts between amounts of money and whole cents.
+ *
+ * The model keeps amounts as a primitive long number of cents, so equal
+ * amounts compare equal, ranges compare exactly and sums are exact integer
+ * additions. Doubles are only used at the edges, e.g. for amounts typed into
+ * the view or shown in the table.
+ */
+public final class Money {
+
+  /**
+   * Cents per unit of money
+   */
+  public static final int CENTS_PER_UNIT = 100;
+
+  /**
+   * Money only has static methods
+   */
+  private Money() {
+  }
+
+  /**
+   * This method rounds an amount to the nearest cent. NaN converts to 0 and
+   * infinite amounts to Long.MIN_VALUE or Long.MAX_VALUE, so they are never
+   * valid amounts.
+   *
+   * @param amount - the amount
+   * @return the amount in cents
+   */
+  public static long toCents(double amount) {
+    return Math.round(amount * CENTS_PER_UNIT);
+  }
+
+  /**
+   * This method converts cents to an amount, e.g. to show it
+   *
+   * @param cents - the amount in cents
+   * @return the amount
+   */
+  public static double toAmount(long cents) {
+    return (double) cents / CENTS_PER_UNIT;
+  }
+
+  /**
+   * This method parses a decimal amount exactly, without going through a
+   * double: an optional sign, digits, and optionally a point followed by at
+   * most two digits
+   *
+   * @param text - the amount
+   * @return the amount in cents
+   * @throws IllegalArgumentException if the text is not such an amount
+   */
+  public static long parseCents(CharSequence text) {
+    int length = text.length();
+    int i = 0;
+    boolean negative = false;
+    if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+      negative = text.charAt(i++) == '-';
+    }
+    long units = 0;
+    int digits = 0;
+    while (i < length && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+      if (units > (Long.MAX_VALUE / CENTS_PER_UNIT - 9) / 10) {
+        throw new IllegalArgumentException("The amount is too large.");
+      }
+      units = units * 10 + (text.charAt(i++) - '0');
+      digits++;
+    }
+    long cents = 0;
+    if (i < length && text.charAt(i) == '.') {
+      i++;
+      int scale = CENTS_PER_UNIT;
+      while (i < length && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+        if (scale == 1) {
+          throw new IllegalArgumentException("The amount has more than two decimals.");
+        }
+        scale /= 10;
+        cents += (text.charAt(i++) - '0') * scale;
+        digits++;
+      }
+    }
+    if (digits == 0 || i != length) {
+      throw new IllegalArgumentException("The amount is not a number.");
+    }
+    cents += units * CENTS_PER_UNIT;
+    return negative ? -cents : cents;
+  }
+
+  /**
+   * This method formats cents as a decimal amount with two decimals
+   *
+   * @param cents - the amount in cents
+   * @return the formatted amount, e.g. "12.50"
+   */
+  public static String format(long cents) {
+    long units = Math.abs(cents / CENTS_PER_UNIT);
+    int fraction = (int) Math.abs(cents % CENTS_PER_UNIT);
+    return (cents < 0 ? "-" : "") + units + (fraction < 10 ? ".0" : ".") + fraction;
+  }
+
+}
@@ -0,0 +1,28 @@
+package model.Persistence;
+
+/**
+ * FsyncPolicy decides when the TransactionJournal forces committed records
+ * from the operating system cache to the disk.
+ */
+public enum FsyncPolicy {
+
+  /**
+   * Force every group commit to disk, and commit the records of every change
+   * before the change returns, so a change which returned is durable. The
+   * changes applied in one pass of the model share one force.
+   */
+  ALWAYS,
+
+  /**
+   * Force at most once per commit interval. A crash of the machine may lose
+   * the records of the last interval; a crash of the process loses nothing
+   * that was committed.
+   */
+  INTERVAL,
+
+  /**
+   * Never force, leave it to the operating system
+   */
+  NEVER
+
+}
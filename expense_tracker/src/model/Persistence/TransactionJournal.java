@@ -0,0 +1,704 @@
+package model.Persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import model.Transaction;
+import model.Storage.TransactionSnapshot;
+import model.Storage.TransactionStore;
+
+/**
+ * TransactionJournal makes the model durable with an append-only binary
+ * write-ahead journal and periodic compacted snapshots.
+ *
+ * Every add and remove is logged as a fixed size record before the model
+ * applies it. Records carry the stable id of their transaction, so a remove
+ * is replayed by a binary search for its id rather than by comparing values.
+ * Records are collected in a batch and written with one FileChannel write per
+ * group commit; the FsyncPolicy decides when commits are forced to disk. A
+ * commit happens when the batch is full, at least every commit interval, and
+ * under FsyncPolicy.ALWAYS whenever the model syncs the journal before its
+ * changes return.
+ *
+ * When the journal holds more records than the compaction threshold, it
+ * switches to a new journal segment and writes an immutable snapshot of the
+ * model in the background. Once the snapshot is in place the old segments are
+ * deleted. Recovery therefore reads one snapshot and at most about one
+ * threshold worth of records.
+ *
+ * Directory layout: snapshot.bin, journal-N.log segments and categories.txt,
+ * the category registry of the store the stored codes refer to.
+ *
+ * Amounts are written in cents.
+ */
+public class TransactionJournal implements Closeable {
+
+  /**
+   * Size of a journal record: op, id, amount, category code, timestamp, CRC32
+   */
+  static final int RECORD_SIZE = 1 + 8 + 8 + 1 + 8 + 4;
+
+  /**
+   * Size of a snapshot row: id, amount, category code, timestamp
+   */
+  static final int SNAPSHOT_ROW_SIZE = 8 + 8 + 1 + 8;
+
+  /**
+   * Size of the snapshot header: magic, covered segment, next id, row count
+   */
+  private static final int SNAPSHOT_HEADER_SIZE = 4 + 8 + 8 + 4;
+
+  /**
+   * Record op of an added transaction
+   */
+  private static final byte ADD = 3;
+
+  /**
+   * Record op of a removed transaction
+   */
+  private static final byte REMOVE = 4;
+
+  /**
+   * Marks a snapshot file
+   */
+  private static final int SNAPSHOT_MAGIC = 0x45545333;
+
+  /**
+   * Name of the snapshot file
+   */
+  private static final String SNAPSHOT_FILE = "snapshot.bin";
+
+  /**
+   * Name of the snapshot file while it is written
+   */
+  private static final String SNAPSHOT_TEMP_FILE = "snapshot.tmp";
+
+  /**
+   * Name of the category file
+   */
+  public static final String CATEGORIES_FILE = "categories.txt";
+
+  /**
+   * Default number of records per group commit
+   */
+  public static final int DEFAULT_BATCH_SIZE = 4096;
+
+  /**
+   * Default longest time in milliseconds a record waits for its commit
+   */
+  public static final long DEFAULT_COMMIT_INTERVAL = 20;
+
+  /**
+   * Default number of records after which the journal is compacted
+   */
+  public static final long DEFAULT_COMPACTION_THRESHOLD = 1000000;
+
+  /**
+   * Directory holding the snapshot and the journal segments
+   */
+  private final Path directory;
+
+  /**
+   * When commits are forced to disk
+   */
+  private final FsyncPolicy fsyncPolicy;
+
+  /**
+   * Longest time in milliseconds a record waits for its commit
+   */
+  private final long commitInterval;
+
+  /**
+   * Number of records after which the journal is compacted
+   */
+  private final long compactionThreshold;
+
+  /**
+   * Records logged since the last commit
+   */
+  private final ByteBuffer batch;
+
+  /**
+   * Checksum of a single record
+   */
+  private final CRC32 checksum = new CRC32();
+
+  /**
+   * Runs the periodic commit and the snapshot writer
+   */
+  private ScheduledExecutorService background;
+
+  /**
+   * The journal segment records are appended to, null until recovered
+   */
+  private FileChannel segment;
+
+  /**
+   * Number of the current journal segment
+   */
+  private long segmentNumber;
+
+  /**
+   * Number of records in the journal segments the snapshot does not cover
+   */
+  private long journalRecords;
+
+  /**
+   * Time of the last forced commit
+   */
+  private long lastForce;
+
+  /**
+   * Whether a snapshot is being written
+   */
+  private volatile boolean compacting;
+
+  /**
+   * Failure of the last background commit or snapshot, reported by the next
+   * commit
+   */
+  private volatile IOException backgroundFailure;
+
+  /**
+   * Open a journal in the directory with the default batching
+   *
+   * @param directory   - directory holding the snapshot and journal segments
+   * @param fsyncPolicy - when commits are forced to disk
+   * @throws IOException if the directory cannot be created
+   */
+  public TransactionJournal(Path directory, FsyncPolicy fsyncPolicy) throws IOException {
+    this(directory, fsyncPolicy, DEFAULT_BATCH_SIZE, DEFAULT_COMMIT_INTERVAL, DEFAULT_COMPACTION_THRESHOLD);
+  }
+
+  /**
+   * Open a journal in the directory
+   *
+   * @param directory           - directory holding the snapshot and journal
+   *                            segments
+   * @param fsyncPolicy         - when commits are forced to disk
+   * @param batchSize           - number of records per group commit
+   * @param commitInterval      - longest time in milliseconds a record waits
+   *                            for its commit
+   * @param compactionThreshold - number of records after which the journal is
+   *                            compacted
+   * @throws IOException              if the directory cannot be created
+   * @throws IllegalArgumentException if a setting is invalid
+   */
+  public TransactionJournal(Path directory, FsyncPolicy fsyncPolicy, int batchSize, long commitInterval,
+      long compactionThreshold) throws IOException {
+    if (directory == null || fsyncPolicy == null) {
+      throw new IllegalArgumentException("The journal directory and fsync policy must be non-null.");
+    }
+    if (batchSize <= 0 || commitInterval <= 0 || compactionThreshold <= 0) {
+      throw new IllegalArgumentException("The journal settings must be positive.");
+    }
+    this.directory = Files.createDirectories(directory);
+    this.fsyncPolicy = fsyncPolicy;
+    this.commitInterval = commitInterval;
+    this.compactionThreshold = compactionThreshold;
+    this.batch = ByteBuffer.allocateDirect(batchSize * RECORD_SIZE);
+  }
+
+  /**
+   * This method loads the categories into the registry of the store, then
+   * loads the snapshot and replays the journal into the store, then opens a
+   * new journal segment. It must be called once before anything is logged.
+   * Categories registered later are saved in the journal directory.
+   *
+   * A torn record at the end of the last segment, left by a crash during a
+   * write, is cut off. A segment is forced before the next one is opened, so
+   * a bad record in any earlier segment is corruption and fails the recovery.
+   *
+   * @param store - an empty store
+   * @throws IOException              if the snapshot or the journal cannot be
+   *                                  read, or a segment before the last one
+   *                                  is corrupt
+   * @throws IllegalArgumentException if the saved categories do not fit the
+   *                                  registry of the store
+   * @throws IllegalStateException    if the journal was already recovered
+   */
+  public synchronized void recover(TransactionStore store) throws IOException {
+    if (segment != null) {
+      throw new IllegalStateException("The journal has already been recovered.");
+    }
+    // Stored codes refer to the saved categories
+    store.getCategories().load(directory.resolve(CATEGORIES_FILE));
+    Files.deleteIfExists(directory.resolve(SNAPSHOT_TEMP_FILE));
+    long covered = -1;
+    Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+    if (Files.exists(snapshotFile)) {
+      covered = readSnapshot(snapshotFile, store);
+    }
+
+    long last = covered;
+    List<Long> segments = listSegments();
+    for (int i = 0; i < segments.size(); i++) {
+      long number = segments.get(i);
+      if (number <= covered) {
+        // Left over from a compaction which was interrupted after the snapshot
+        Files.delete(segmentPath(number));
+      } else {
+        journalRecords += replay(segmentPath(number), store, i == segments.size() - 1);
+        last = number;
+      }
+    }
+
+    openSegment(last + 1);
+    // One thread for the periodic commit, one for the snapshot writer
+    background = Executors.newScheduledThreadPool(2, r -> {
+      Thread thread = new Thread(r, "transaction-journal");
+      thread.setDaemon(true);
+      return thread;
+    });
+    background.scheduleWithFixedDelay(this::periodicCommit, commitInterval, commitInterval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * This method logs an added transaction
+   *
+   * @param t  Transaction object
+   * @param id the id the store gives the transaction
+   * @throws UncheckedIOException  if a full batch cannot be committed
+   * @throws IllegalStateException if the journal was not recovered
+   */
+  public synchronized void logAdd(Transaction t, long id) {
+    log(ADD, id, t.getCents(), t.getCategoryCode(), t.getTime());
+  }
+
+  /**
+   * This method logs a removed transaction
+   *
+   * @param id id of the removed transaction
+   * @throws UncheckedIOException  if a full batch cannot be committed
+   * @throws IllegalStateException if the journal was not recovered
+   */
+  public synchronized void logRemove(long id) {
+    log(REMOVE, id, 0, 0, 0);
+  }
+
+  /**
+   * This method makes the logged records durable as the FsyncPolicy
+   * promises. Under FsyncPolicy.ALWAYS it commits and forces them, so a
+   * change is on disk before it returns; the model calls it once per pass of
+   * changes, which therefore share one force. The other policies leave the
+   * records to the group commit.
+   *
+   * @throws IOException if the records cannot be written
+   */
+  public synchronized void sync() throws IOException {
+    if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+      commit();
+    }
+  }
+
+  /**
+   * This method writes the logged records to the journal segment and forces
+   * them to disk as the FsyncPolicy says
+   *
+   * @throws IOException if the records cannot be written, or the last
+   *                     background commit or snapshot failed
+   */
+  public synchronized void commit() throws IOException {
+    IOException failure = backgroundFailure;
+    if (failure != null) {
+      backgroundFailure = null;
+      throw failure;
+    }
+    if (segment == null) {
+      return;
+    }
+    boolean written = batch.position() > 0;
+    if (written) {
+      batch.flip();
+      while (batch.hasRemaining()) {
+        segment.write(batch);
+      }
+      batch.clear();
+    }
+    long now = System.currentTimeMillis();
+    if (fsyncPolicy == FsyncPolicy.ALWAYS && written
+        || fsyncPolicy == FsyncPolicy.INTERVAL && now - lastForce >= commitInterval) {
+      segment.force(false);
+      lastForce = now;
+    }
+  }
+
+  /**
+   * This method checks whether the journal has grown past the compaction
+   * threshold and no snapshot is being written
+   *
+   * @return whether the journal should be compacted
+   */
+  public synchronized boolean needsCompaction() {
+    return !compacting && journalRecords >= compactionThreshold;
+  }
+
+  /**
+   * This method compacts the journal. It switches to a new journal segment
+   * and writes the snapshot in the background; the old segments are deleted
+   * once the snapshot is in place.
+   *
+   * @param snapshot - snapshot of the store after every record logged so far
+   * @param nextId   - id the next transaction added to the store gets
+   * @throws IOException if the journal segment cannot be switched
+   */
+  public synchronized void compact(TransactionSnapshot snapshot, long nextId) throws IOException {
+    if (compacting || segment == null) {
+      return;
+    }
+    commit();
+    segment.force(false);
+    segment.close();
+    long covered = segmentNumber;
+    openSegment(covered + 1);
+    journalRecords = 0;
+    compacting = true;
+    background.execute(() -> {
+      try {
+        writeSnapshot(snapshot, nextId, covered);
+        for (long number : listSegments()) {
+          if (number <= covered) {
+            Files.delete(segmentPath(number));
+          }
+        }
+      } catch (IOException e) {
+        backgroundFailure = e;
+      } finally {
+        compacting = false;
+      }
+    });
+  }
+
+  /**
+   * This method commits the remaining records, waits for a running snapshot
+   * and closes the journal
+   *
+   * @throws IOException if the remaining records cannot be written
+   */
+  @Override
+  public void close() throws IOException {
+    ScheduledExecutorService executor;
+    synchronized (this) {
+      executor = background;
+      background = null;
+    }
+    if (executor != null) {
+      executor.shutdown();
+      try {
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    synchronized (this) {
+      if (segment != null) {
+        commit();
+        segment.force(false);
+        segment.close();
+        segment = null;
+      }
+    }
+  }
+
+  /**
+   * This method appends a record to the batch, committing a full batch
+   *
+   * @param op           - record op
+   * @param id           - transaction id
+   * @param cents        - transaction amount in cents
+   * @param categoryCode - category code
+   * @param time         - epoch milliseconds
+   */
+  private void log(byte op, long id, long cents, int categoryCode, long time) {
+    if (segment == null) {
+      throw new IllegalStateException("The journal must be recovered before logging.");
+    }
+    int start = batch.position();
+    batch.put(op);
+    batch.putLong(id);
+    batch.putLong(cents);
+    batch.put((byte) categoryCode);
+    batch.putLong(time);
+    checksum.reset();
+    checksum.update(batch.duplicate().position(start).limit(start + RECORD_SIZE - 4));
+    batch.putInt((int) checksum.getValue());
+    journalRecords++;
+    if (!batch.hasRemaining()) {
+      try {
+        commit();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * This method commits on the background thread at every commit interval
+   */
+  private synchronized void periodicCommit() {
+    try {
+      commit();
+    } catch (IOException e) {
+      // Reported by the next commit on the caller's thread
+      backgroundFailure = e;
+    }
+  }
+
+  /**
+   * This method opens a new journal segment
+   *
+   * @param number - segment number
+   * @throws IOException if the segment cannot be created
+   */
+  private void openSegment(long number) throws IOException {
+    segment = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+    segmentNumber = number;
+  }
+
+  /**
+   * This method returns the path of a journal segment
+   *
+   * @param number - segment number
+   * @return segment path
+   */
+  private Path segmentPath(long number) {
+    return directory.resolve("journal-" + number + ".log");
+  }
+
+  /**
+   * This method lists the numbers of the journal segments in the directory
+   *
+   * @return ascending segment numbers
+   * @throws IOException if the directory cannot be read
+   */
+  private List<Long> listSegments() throws IOException {
+    List<Long> numbers = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "journal-*.log")) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        try {
+          numbers.add(Long.parseLong(name.substring("journal-".length(), name.length() - ".log".length())));
+        } catch (NumberFormatException e) {
+          // Not a journal segment
+        }
+      }
+    }
+    Collections.sort(numbers);
+    return numbers;
+  }
+
+  /**
+   * This method replays the records of a journal segment into the store. A
+   * torn record can only be at the end of the last segment, where a crash
+   * interrupted a write, so it is cut off there. A bad record in an earlier
+   * segment means the records after it are lost while later segments build
+   * on them, so recovery fails instead of replaying those segments.
+   *
+   * @param file  - journal segment
+   * @param store - the store
+   * @param last  - whether this is the last segment
+   * @return number of replayed records
+   * @throws IOException if the segment cannot be read, or it is not the last
+   *                     segment and has a bad record
+   */
+  private long replay(Path file, TransactionStore store, boolean last) throws IOException {
+    long records = 0;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 8192);
+      long valid = 0;
+      boolean torn = false;
+      while (!torn && channel.read(buffer) > 0) {
+        buffer.flip();
+        while (buffer.remaining() >= RECORD_SIZE) {
+          int start = buffer.position();
+          checksum.reset();
+          checksum.update(buffer.duplicate().limit(start + RECORD_SIZE - 4));
+          byte op = buffer.get();
+          long id = buffer.getLong();
+          long amount = buffer.getLong();
+          int categoryCode = buffer.get();
+          long time = buffer.getLong();
+          if (buffer.getInt() != (int) checksum.getValue() || op < ADD || op > REMOVE) {
+            torn = true;
+            break;
+          }
+          if (op == ADD) {
+            if (id < store.getNextId()) {
+              throw new IOException("Journal segment " + file + " has a record out of order at byte " + valid);
+            }
+            store.setNextId(id);
+            store.add(restore(amount, categoryCode, time, store));
+          } else {
+            // O(log n), and exactly the transaction which was removed
+            int row = store.indexOf(id);
+            if (row != -1) {
+              store.removeAt(row);
+            }
+          }
+          valid += RECORD_SIZE;
+          records++;
+        }
+        buffer.compact();
+      }
+      if (valid < channel.size()) {
+        if (!last) {
+          throw new IOException("Journal segment " + file + " is corrupt at byte " + valid
+              + ", but later segments follow it");
+        }
+        channel.truncate(valid);
+      }
+    }
+    return records;
+  }
+
+  /**
+   * This method writes a snapshot atomically: to a temporary file which is
+   * forced to disk and then renamed
+   *
+   * @param snapshot - snapshot of the store
+   * @param nextId   - id the next transaction added to the store gets
+   * @param covered  - number of the last journal segment the snapshot covers
+   * @throws IOException if the snapshot cannot be written
+   */
+  private void writeSnapshot(TransactionSnapshot snapshot, long nextId, long covered) throws IOException {
+    Path temp = directory.resolve(SNAPSHOT_TEMP_FILE);
+    CRC32 rowsChecksum = new CRC32();
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_ROW_SIZE * 8192);
+      buffer.putInt(SNAPSHOT_MAGIC);
+      buffer.putLong(covered);
+      buffer.putLong(nextId);
+      buffer.putInt(snapshot.size());
+      for (int row = 0; row < snapshot.size(); row++) {
+        if (buffer.remaining() < SNAPSHOT_ROW_SIZE) {
+          writeRows(channel, buffer, rowsChecksum);
+        }
+        buffer.putLong(snapshot.getId(row));
+        buffer.putLong(snapshot.getCents(row));
+        buffer.put((byte) snapshot.getCategoryCode(row));
+        buffer.putLong(snapshot.getTime(row));
+      }
+      writeRows(channel, buffer, rowsChecksum);
+      buffer.putInt((int) rowsChecksum.getValue());
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+    Files.move(temp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * This method writes the buffered part of a snapshot and adds it to the
+   * checksum
+   *
+   * @param channel  - snapshot file
+   * @param buffer   - buffered bytes
+   * @param checksum - checksum of the snapshot
+   * @throws IOException if the bytes cannot be written
+   */
+  private static void writeRows(FileChannel channel, ByteBuffer buffer, CRC32 checksum) throws IOException {
+    buffer.flip();
+    checksum.update(buffer.duplicate());
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * This method loads a snapshot into the store
+   *
+   * @param file  - snapshot file
+   * @param store - the store
+   * @return number of the last journal segment the snapshot covers
+   * @throws IOException if the snapshot cannot be read or is corrupt
+   */
+  private long readSnapshot(Path file, TransactionStore store) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      CRC32 rowsChecksum = new CRC32();
+      ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_ROW_SIZE * 8192);
+      readFully(channel, buffer, SNAPSHOT_HEADER_SIZE);
+      buffer.flip();
+      rowsChecksum.update(buffer.duplicate());
+      int magic = buffer.getInt();
+      if (magic != SNAPSHOT_MAGIC) {
+        throw new IOException("Not a transaction snapshot: " + file);
+      }
+      long covered = buffer.getLong();
+      long nextId = buffer.getLong();
+      int remaining = buffer.getInt();
+      while (remaining > 0) {
+        int rows = Math.min(remaining, buffer.capacity() / SNAPSHOT_ROW_SIZE);
+        buffer.clear();
+        readFully(channel, buffer, rows * SNAPSHOT_ROW_SIZE);
+        buffer.flip();
+        rowsChecksum.update(buffer.duplicate());
+        for (int row = 0; row < rows; row++) {
+          store.setNextId(buffer.getLong());
+          store.add(restore(buffer.getLong(), buffer.get(), buffer.getLong(), store));
+        }
+        remaining -= rows;
+      }
+      // Ids of transactions removed before the snapshot are not handed out again
+      store.setNextId(nextId);
+      buffer.clear();
+      readFully(channel, buffer, 4);
+      buffer.flip();
+      if (buffer.getInt() != (int) rowsChecksum.getValue()) {
+        throw new IOException("Corrupt transaction snapshot: " + file);
+      }
+      return covered;
+    }
+  }
+
+  /**
+   * This method reads exactly the given number of bytes into the buffer
+   *
+   * @param channel - file to read
+   * @param buffer  - buffer to fill
+   * @param bytes   - number of bytes
+   * @throws IOException if the file ends early
+   */
+  private static void readFully(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+    buffer.limit(buffer.position() + bytes);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        throw new IOException("Unexpected end of transaction snapshot");
+      }
+    }
+  }
+
+  /**
+   * This method creates the Transaction of a stored row
+   *
+   * @param cents        - transaction amount in cents
+   * @param categoryCode - category code
+   * @param time         - epoch milliseconds
+   * @param store        - the store whose registry the code refers to
+   * @return the transaction
+   */
+  private static Transaction restore(long cents, int categoryCode, long time, TransactionStore store) {
+    return Transaction.ofCode(cents, categoryCode, time, store.getCategories());
+  }
+
+}
@@ -0,0 +1,59 @@
+package model;
+
+import model.Storage.TransactionSnapshot;
+
+/**
+ * Selection holds the rows which pass a filter together with the snapshot the
+ * row indexes refer to, so the rows can be read while the model keeps
+ * changing.
+ */
+public final class Selection {
+
+  /**
+   * The snapshot the rows were selected from
+   */
+  private final TransactionSnapshot transactions;
+
+  /**
+   * Ascending row indexes of the selected transactions
+   */
+  private final int[] rows;
+
+  /**
+   * Initialize a selection
+   *
+   * @param transactions - the snapshot the rows were selected from
+   * @param rows         - ascending row indexes in the snapshot
+   */
+  Selection(TransactionSnapshot transactions, int[] rows) {
+    this.transactions = transactions;
+    this.rows = rows;
+  }
+
+  /**
+   * This method returns the snapshot the rows refer to
+   *
+   * @return the snapshot
+   */
+  public TransactionSnapshot getTransactions() {
+    return transactions;
+  }
+
+  /**
+   * This method returns the selected rows. The array must not be modified.
+   *
+   * @return ascending row indexes in the snapshot
+   */
+  public int[] getRows() {
+    return rows;
+  }
+
+  /**
+   * This method returns the number of selected rows
+   *
+   * @return the number of rows
+   */
+  public int size() {
+    return rows.length;
+  }
+}
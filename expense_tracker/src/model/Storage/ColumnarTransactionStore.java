@@ -0,0 +1,508 @@
+package model.Storage;
+
+import java.util.Arrays;
+
+import model.CategoryRegistry;
+import model.Money;
+import model.Transaction;
+
+/**
+ * ColumnarTransactionStore keeps transactions in parallel primitive arrays
+ * instead of Transaction objects: a long amount in cents, a byte category
+ * code, a long epoch-millis timestamp and a long id per slot (25 bytes per
+ * slot).
+ *
+ * The columns grow in fixed size chunks so that growing the store never copies
+ * the rows which are already stored. Transaction objects are only created when
+ * a row is requested through get().
+ *
+ * A slot is never written again once it holds a transaction: removing one
+ * records a tombstone for its slot. Snapshots therefore share the chunks with
+ * the store without ever copying them, and a remove is O(log s) for s slots
+ * instead of shifting every row after it. Compacting the store moves the live
+ * rows of a snapshot into new chunks off the combiner, then swaps them in and
+ * replays the changes made since the snapshot.
+ */
+public class ColumnarTransactionStore implements TransactionStore {
+
+  /**
+   * Number of rows per chunk is 2^CHUNK_SHIFT
+   */
+  static final int CHUNK_SHIFT = 14;
+
+  /**
+   * Number of rows per chunk
+   */
+  static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+  /**
+   * Mask to find the position of a row inside its chunk
+   */
+  static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  /**
+   * The chunks holding the slots. Only the first (slots + CHUNK_SIZE - 1) /
+   * CHUNK_SIZE entries are in use.
+   */
+  private Chunk[] chunks = new Chunk[8];
+
+  /**
+   * Number of used slots, removed ones included
+   */
+  private int slots;
+
+  /**
+   * Id of the next added transaction
+   */
+  private long nextId;
+
+  /**
+   * The removed slots
+   */
+  private Tombstones tombstones = new Tombstones();
+
+  /**
+   * Version of the store
+   */
+  private long version;
+
+  /**
+   * Number of compactions so far. Snapshots of an earlier generation have
+   * other slots, so they cannot be compacted into the store.
+   */
+  private int generation;
+
+  /**
+   * The last snapshot handed out
+   */
+  private ColumnarSnapshot snapshot;
+
+  /**
+   * Registry the category codes refer to
+   */
+  private final CategoryRegistry categories;
+
+  /**
+   * Initialize an empty store with a registry of the built-in categories
+   */
+  public ColumnarTransactionStore() {
+    this(new CategoryRegistry());
+  }
+
+  /**
+   * Initialize an empty store
+   *
+   * @param categories - registry the category codes refer to
+   */
+  public ColumnarTransactionStore(CategoryRegistry categories) {
+    this.categories = categories;
+  }
+
+  @Override
+  public int size() {
+    return slots - tombstones.count();
+  }
+
+  @Override
+  public void add(Transaction t) {
+    int chunkIndex = slots >>> CHUNK_SHIFT;
+    if (chunkIndex == chunks.length) {
+      // Snapshots keep the old array, whose chunks do not change
+      chunks = Arrays.copyOf(chunks, chunks.length * 2);
+    }
+    if (chunks[chunkIndex] == null) {
+      chunks[chunkIndex] = new Chunk();
+    }
+    // The slot is past the end of every snapshot, so none of them sees it
+    chunks[chunkIndex].set(slots & CHUNK_MASK, t.getCents(), (byte) t.getCategoryCode(), t.getTime(), nextId++);
+    slots++;
+    version++;
+  }
+
+  @Override
+  public void removeAt(int index) {
+    tombstones.add(getSlot(index));
+    version++;
+  }
+
+  @Override
+  public void removeRows(int[] rows) {
+    if (rows.length == 0) {
+      return;
+    }
+    checkIndex(rows[0], size());
+    checkIndex(rows[rows.length - 1], size());
+    tombstones.addAll(tombstones.slotsOf(rows));
+    version++;
+  }
+
+  @Override
+  public int indexOf(Transaction t) {
+    long cents = t.getCents();
+    byte category = (byte) t.getCategoryCode();
+    long timestamp = t.getTime();
+    for (int slot = 0, row = 0; slot < slots; slot++) {
+      if (tombstones.contains(slot)) {
+        continue;
+      }
+      Chunk chunk = chunks[slot >>> CHUNK_SHIFT];
+      int offset = slot & CHUNK_MASK;
+      if (chunk.cents[offset] == cents && chunk.categories[offset] == category
+          && chunk.timestamps[offset] == timestamp) {
+        return row;
+      }
+      row++;
+    }
+    return -1;
+  }
+
+  @Override
+  public int indexOf(long id) {
+    // Ids ascend with the slots, tombstoned slots keep theirs
+    int low = 0;
+    int high = slots - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long midId = chunks[mid >>> CHUNK_SHIFT].ids[mid & CHUNK_MASK];
+      if (midId < id) {
+        low = mid + 1;
+      } else if (midId > id) {
+        high = mid - 1;
+      } else {
+        return tombstones.rowOf(mid);
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public long getId(int index) {
+    int slot = getSlot(index);
+    return chunks[slot >>> CHUNK_SHIFT].ids[slot & CHUNK_MASK];
+  }
+
+  @Override
+  public long getNextId() {
+    return nextId;
+  }
+
+  @Override
+  public void setNextId(long id) {
+    if (id < nextId) {
+      throw new IllegalArgumentException("Ids must ascend: " + id + " < " + nextId);
+    }
+    nextId = id;
+  }
+
+  @Override
+  public int getSlot(int index) {
+    checkIndex(index, size());
+    return tombstones.slotOf(index);
+  }
+
+  @Override
+  public int getSlotCount() {
+    return slots;
+  }
+
+  @Override
+  public boolean needsCompaction() {
+    return tombstones.needCompaction(slots);
+  }
+
+  @Override
+  public Compaction prepareCompaction(TransactionSnapshot snapshot) {
+    ColumnarSnapshot base = (ColumnarSnapshot) snapshot;
+    if (base.tombstones.count() == 0) {
+      return null;
+    }
+    int size = base.size();
+    Chunk[] live = new Chunk[Math.max(8, Integer.highestOneBit(Math.max(1, size >>> CHUNK_SHIFT)) * 2)];
+    for (int slot = 0, row = 0; slot < base.slots; slot++) {
+      if (!base.tombstones.contains(slot)) {
+        copy(base.chunks, slot, live, row++);
+      }
+    }
+    return new Compaction(base,
+        new ColumnarSnapshot(live, size, new Tombstones(), categories, base.getVersion(), base.generation + 1));
+  }
+
+  @Override
+  public boolean compact(Compaction compaction) {
+    ColumnarSnapshot base = (ColumnarSnapshot) compaction.getBase();
+    if (base.generation != generation) {
+      return false;
+    }
+    ColumnarSnapshot compacted = (ColumnarSnapshot) compaction.getSnapshot();
+    // The moved slots follow each other, shifted by the tombstones of the base
+    Chunk[] live = compacted.chunks;
+    int shift = base.slots - compacted.slots;
+    for (int slot = base.slots; slot < slots; slot++) {
+      if ((slot - shift) >>> CHUNK_SHIFT == live.length) {
+        live = Arrays.copyOf(live, live.length * 2);
+      }
+      copy(chunks, slot, live, slot - shift);
+    }
+    int[] removed = tombstones.since(base.tombstones);
+    int moved = 0;
+    for (int i = 0; i < removed.length; i++) {
+      if (removed[i] < base.slots) {
+        removed[i] = base.tombstones.rowOf(removed[i]);
+        moved++;
+      } else {
+        removed[i] -= shift;
+      }
+    }
+    compaction.setRemoved(Arrays.copyOf(removed, moved));
+    // Snapshots keep the old chunks
+    chunks = live;
+    slots -= shift;
+    tombstones = new Tombstones(removed, removed.length);
+    generation++;
+    // Same rows and version, but the slots of the last snapshot are stale
+    snapshot = null;
+    return true;
+  }
+
+  @Override
+  public Transaction get(int index) {
+    return row(chunks, getSlot(index), categories);
+  }
+
+  @Override
+  public double getAmount(int index) {
+    return Money.toAmount(getCents(index));
+  }
+
+  @Override
+  public long getCents(int index) {
+    int slot = getSlot(index);
+    return chunks[slot >>> CHUNK_SHIFT].cents[slot & CHUNK_MASK];
+  }
+
+  @Override
+  public String getCategory(int index) {
+    int slot = getSlot(index);
+    return categories.getName(chunks[slot >>> CHUNK_SHIFT].categories[slot & CHUNK_MASK]);
+  }
+
+  @Override
+  public CategoryRegistry getCategories() {
+    return categories;
+  }
+
+  @Override
+  public long getVersion() {
+    return version;
+  }
+
+  @Override
+  public TransactionSnapshot snapshot() {
+    if (snapshot == null || snapshot.getVersion() != version) {
+      snapshot = new ColumnarSnapshot(chunks, slots, tombstones.share(), categories, version, generation);
+    }
+    return snapshot;
+  }
+
+  /**
+   * This method creates a Transaction view of a slot
+   *
+   * @param chunks     - the chunks holding the slot
+   * @param slot       - the slot
+   * @param categories - registry the category codes refer to
+   * @return transaction view
+   */
+  private static Transaction row(Chunk[] chunks, int slot, CategoryRegistry categories) {
+    Chunk chunk = chunks[slot >>> CHUNK_SHIFT];
+    int offset = slot & CHUNK_MASK;
+    return Transaction.ofCode(chunk.cents[offset], chunk.categories[offset], chunk.timestamps[offset], categories);
+  }
+
+  /**
+   * This method copies a slot into another chunk array, creating its chunk
+   *
+   * @param from   - the chunks holding the slot
+   * @param slot   - the slot
+   * @param to     - the chunks to copy to
+   * @param toSlot - the slot to copy to
+   */
+  private static void copy(Chunk[] from, int slot, Chunk[] to, int toSlot) {
+    Chunk chunk = from[slot >>> CHUNK_SHIFT];
+    int offset = slot & CHUNK_MASK;
+    if (to[toSlot >>> CHUNK_SHIFT] == null) {
+      to[toSlot >>> CHUNK_SHIFT] = new Chunk();
+    }
+    to[toSlot >>> CHUNK_SHIFT].set(toSlot & CHUNK_MASK, chunk.cents[offset], chunk.categories[offset],
+        chunk.timestamps[offset], chunk.ids[offset]);
+  }
+
+  /**
+   * This method checks that the row exists
+   *
+   * @param index row index
+   * @param size  number of rows
+   * @throws IndexOutOfBoundsException if the row does not exist
+   */
+  private static void checkIndex(int index, int size) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+
+  /**
+   * A Chunk holds CHUNK_SIZE slots as parallel primitive arrays
+   */
+  private static final class Chunk {
+
+    /**
+     * Amount column in cents
+     */
+    final long[] cents = new long[CHUNK_SIZE];
+
+    /**
+     * Category code column
+     */
+    final byte[] categories = new byte[CHUNK_SIZE];
+
+    /**
+     * Timestamp column in epoch milliseconds
+     */
+    final long[] timestamps = new long[CHUNK_SIZE];
+
+    /**
+     * Id column
+     */
+    final long[] ids = new long[CHUNK_SIZE];
+
+    /**
+     * This method writes a slot of the chunk
+     *
+     * @param offset    - position of the slot inside the chunk
+     * @param amount    - transaction amount in cents
+     * @param category  - category code
+     * @param timestamp - epoch milliseconds
+     * @param id        - transaction id
+     */
+    void set(int offset, long amount, byte category, long timestamp, long id) {
+      cents[offset] = amount;
+      categories[offset] = category;
+      timestamps[offset] = timestamp;
+      ids[offset] = id;
+    }
+  }
+
+  /**
+   * Snapshot sharing the chunks of the store
+   */
+  private static final class ColumnarSnapshot extends TransactionSnapshot {
+
+    /**
+     * The shared chunks
+     */
+    private final Chunk[] chunks;
+
+    /**
+     * Number of slots in the snapshot, removed ones included
+     */
+    private final int slots;
+
+    /**
+     * The removed slots at the version of the snapshot
+     */
+    private final Tombstones tombstones;
+
+    /**
+     * Registry the category codes refer to
+     */
+    private final CategoryRegistry categories;
+
+    /**
+     * Number of compactions of the store before the snapshot
+     */
+    private final int generation;
+
+    /**
+     * Initialize the snapshot
+     *
+     * @param chunks     - the shared chunks
+     * @param slots      - number of slots
+     * @param tombstones - the removed slots
+     * @param categories - registry the category codes refer to
+     * @param version    - version of the store
+     * @param generation - number of compactions of the store
+     */
+    ColumnarSnapshot(Chunk[] chunks, int slots, Tombstones tombstones, CategoryRegistry categories, long version,
+        int generation) {
+      super(version);
+      this.chunks = chunks;
+      this.slots = slots;
+      this.tombstones = tombstones;
+      this.categories = categories;
+      this.generation = generation;
+    }
+
+    @Override
+    public Transaction get(int index) {
+      return row(chunks, slot(index), categories);
+    }
+
+    @Override
+    public int size() {
+      return slots - tombstones.count();
+    }
+
+    @Override
+    public long getId(int index) {
+      int slot = slot(index);
+      return chunks[slot >>> CHUNK_SHIFT].ids[slot & CHUNK_MASK];
+    }
+
+    @Override
+    public int[] toRows(int[] slots) {
+      return tombstones.toRows(slots);
+    }
+
+    @Override
+    public long getCents(int index) {
+      int slot = slot(index);
+      return chunks[slot >>> CHUNK_SHIFT].cents[slot & CHUNK_MASK];
+    }
+
+    @Override
+    public String getCategory(int index) {
+      int slot = slot(index);
+      return categories.getName(chunks[slot >>> CHUNK_SHIFT].categories[slot & CHUNK_MASK]);
+    }
+
+    @Override
+    public String getTimestamp(int index) {
+      int slot = slot(index);
+      return Transaction.formatTimestamp(chunks[slot >>> CHUNK_SHIFT].timestamps[slot & CHUNK_MASK]);
+    }
+
+    @Override
+    public int getCategoryCode(int index) {
+      int slot = slot(index);
+      return chunks[slot >>> CHUNK_SHIFT].categories[slot & CHUNK_MASK];
+    }
+
+    @Override
+    public long getTime(int index) {
+      int slot = slot(index);
+      return chunks[slot >>> CHUNK_SHIFT].timestamps[slot & CHUNK_MASK];
+    }
+
+    /**
+     * This method maps a row index onto its slot
+     *
+     * @param index row index
+     * @return slot
+     * @throws IndexOutOfBoundsException if the row does not exist
+     */
+    private int slot(int index) {
+      checkIndex(index, slots - tombstones.count());
+      return tombstones.slotOf(index);
+    }
+  }
+
+}
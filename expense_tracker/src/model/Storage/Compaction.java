@@ -0,0 +1,82 @@
+package model.Storage;
+
+/**
+ * A Compaction holds the live transactions of a snapshot of a store, moved
+ * into consecutive slots. Preparing it only reads the snapshot, so it can run
+ * on any thread while the store keeps changing. Applying it with
+ * TransactionStore.compact(Compaction) swaps the moved slots into the store
+ * and replays the adds and removes made since the snapshot, so only that
+ * step has to run between changes.
+ *
+ * The store takes over the moved slots when the compaction is applied, so
+ * after that its snapshot must only be read between changes.
+ */
+public final class Compaction {
+
+  /**
+   * The snapshot the compaction was prepared from
+   */
+  private final TransactionSnapshot base;
+
+  /**
+   * The live transactions of the base snapshot, slot i holds row i
+   */
+  private final TransactionSnapshot compacted;
+
+  /**
+   * The slots of the compacted snapshot removed since the base snapshot,
+   * known once the compaction is applied
+   */
+  private int[] removed = new int[0];
+
+  /**
+   * Initialize the compaction
+   *
+   * @param base      - the snapshot the compaction was prepared from
+   * @param compacted - the live transactions of base in consecutive slots
+   */
+  Compaction(TransactionSnapshot base, TransactionSnapshot compacted) {
+    this.base = base;
+    this.compacted = compacted;
+  }
+
+  /**
+   * This method returns the snapshot the compaction was prepared from
+   *
+   * @return the base snapshot
+   */
+  TransactionSnapshot getBase() {
+    return base;
+  }
+
+  /**
+   * This method returns the live transactions of the base snapshot in their
+   * new slots. The snapshot has no tombstones, so slot i is row i.
+   *
+   * @return the compacted snapshot
+   */
+  public TransactionSnapshot getSnapshot() {
+    return compacted;
+  }
+
+  /**
+   * This method returns the slots of the compacted snapshot whose
+   * transactions were removed from the store after the base snapshot was
+   * taken. It is empty until the compaction is applied.
+   *
+   * @return ascending slots
+   */
+  public int[] getRemoved() {
+    return removed;
+  }
+
+  /**
+   * This method records the slots removed since the base snapshot
+   *
+   * @param removed - ascending slots of the compacted snapshot
+   */
+  void setRemoved(int[] removed) {
+    this.removed = removed;
+  }
+
+}
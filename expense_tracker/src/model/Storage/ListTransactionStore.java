@@ -0,0 +1,390 @@
+package model.Storage;
+
+import java.util.Arrays;
+
+import model.CategoryRegistry;
+import model.Transaction;
+
+/**
+ * ListTransactionStore keeps every transaction as a Transaction object in a
+ * growable array of references. This was the original layout of the model
+ * and is kept as the baseline for the footprint benchmark.
+ *
+ * The array holds one slot per added transaction; removed ones stay in the
+ * array behind a tombstone until the store is compacted. Snapshots share the
+ * array like the ids: an add only writes the slot after the last one of every
+ * snapshot, and growing copies into a new array, so an add is O(1) amortized
+ * however many snapshots were taken.
+ */
+public class ListTransactionStore implements TransactionStore {
+
+  /**
+   * The transaction object of every slot. Only the first slots entries are in
+   * use.
+   */
+  private Transaction[] transactions = new Transaction[16];
+
+  /**
+   * The id of every slot, ascending. Only the first slots entries are in use.
+   */
+  private long[] ids = new long[16];
+
+  /**
+   * Number of used slots, removed ones included
+   */
+  private int slots;
+
+  /**
+   * Id of the next added transaction
+   */
+  private long nextId;
+
+  /**
+   * The removed slots
+   */
+  private Tombstones tombstones = new Tombstones();
+
+  /**
+   * Version of the store
+   */
+  private long version;
+
+  /**
+   * Number of compactions so far. Snapshots of an earlier generation have
+   * other slots, so they cannot be compacted into the store.
+   */
+  private int generation;
+
+  /**
+   * The last snapshot handed out. It shares the transactions array.
+   */
+  private ListSnapshot snapshot;
+
+  /**
+   * Registry the category codes refer to
+   */
+  private final CategoryRegistry categories;
+
+  /**
+   * Initialize an empty store with a registry of the built-in categories
+   */
+  public ListTransactionStore() {
+    this(new CategoryRegistry());
+  }
+
+  /**
+   * Initialize an empty store
+   *
+   * @param categories - registry the category codes refer to
+   */
+  public ListTransactionStore(CategoryRegistry categories) {
+    this.categories = categories;
+  }
+
+  @Override
+  public int size() {
+    return slots - tombstones.count();
+  }
+
+  @Override
+  public void add(Transaction t) {
+    if (slots == ids.length) {
+      // Snapshots keep the old arrays, whose slots do not change
+      ids = Arrays.copyOf(ids, slots * 2);
+      transactions = Arrays.copyOf(transactions, slots * 2);
+    }
+    // The slot is past the end of every snapshot, so none of them sees it
+    ids[slots] = nextId++;
+    transactions[slots++] = t;
+    version++;
+  }
+
+  @Override
+  public void removeAt(int index) {
+    tombstones.add(getSlot(index));
+    version++;
+  }
+
+  @Override
+  public void removeRows(int[] rows) {
+    if (rows.length == 0) {
+      return;
+    }
+    checkIndex(rows[0], size());
+    checkIndex(rows[rows.length - 1], size());
+    tombstones.addAll(tombstones.slotsOf(rows));
+    version++;
+  }
+
+  @Override
+  public int indexOf(Transaction t) {
+    for (int slot = 0, row = 0; slot < slots; slot++) {
+      if (!tombstones.contains(slot)) {
+        if (transactions[slot].equals(t)) {
+          return row;
+        }
+        row++;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public int indexOf(long id) {
+    int slot = Arrays.binarySearch(ids, 0, slots, id);
+    return slot < 0 ? -1 : tombstones.rowOf(slot);
+  }
+
+  @Override
+  public long getId(int index) {
+    return ids[getSlot(index)];
+  }
+
+  @Override
+  public long getNextId() {
+    return nextId;
+  }
+
+  @Override
+  public void setNextId(long id) {
+    if (id < nextId) {
+      throw new IllegalArgumentException("Ids must ascend: " + id + " < " + nextId);
+    }
+    nextId = id;
+  }
+
+  @Override
+  public int getSlot(int index) {
+    checkIndex(index, size());
+    return tombstones.slotOf(index);
+  }
+
+  @Override
+  public int getSlotCount() {
+    return slots;
+  }
+
+  @Override
+  public boolean needsCompaction() {
+    return tombstones.needCompaction(slots);
+  }
+
+  @Override
+  public Compaction prepareCompaction(TransactionSnapshot snapshot) {
+    ListSnapshot base = (ListSnapshot) snapshot;
+    if (base.tombstones.count() == 0) {
+      return null;
+    }
+    int size = base.size();
+    Transaction[] live = new Transaction[Math.max(16, size)];
+    long[] liveIds = new long[live.length];
+    for (int slot = 0, row = 0; slot < base.slots; slot++) {
+      if (!base.tombstones.contains(slot)) {
+        live[row] = base.transactions[slot];
+        liveIds[row++] = base.ids[slot];
+      }
+    }
+    return new Compaction(base,
+        new ListSnapshot(live, liveIds, size, new Tombstones(), base.getVersion(), base.generation + 1));
+  }
+
+  @Override
+  public boolean compact(Compaction compaction) {
+    ListSnapshot base = (ListSnapshot) compaction.getBase();
+    if (base.generation != generation) {
+      return false;
+    }
+    ListSnapshot compacted = (ListSnapshot) compaction.getSnapshot();
+    // The moved slots follow each other, shifted by the tombstones of the base
+    Transaction[] live = compacted.transactions;
+    long[] liveIds = compacted.ids;
+    int shift = base.slots - compacted.slots;
+    for (int slot = base.slots; slot < slots; slot++) {
+      if (slot - shift == live.length) {
+        live = Arrays.copyOf(live, live.length * 2);
+        liveIds = Arrays.copyOf(liveIds, live.length);
+      }
+      live[slot - shift] = transactions[slot];
+      liveIds[slot - shift] = ids[slot];
+    }
+    int[] removed = tombstones.since(base.tombstones);
+    int moved = 0;
+    for (int i = 0; i < removed.length; i++) {
+      if (removed[i] < base.slots) {
+        removed[i] = base.tombstones.rowOf(removed[i]);
+        moved++;
+      } else {
+        removed[i] -= shift;
+      }
+    }
+    compaction.setRemoved(Arrays.copyOf(removed, moved));
+    transactions = live;
+    ids = liveIds;
+    slots -= shift;
+    tombstones = new Tombstones(removed, removed.length);
+    generation++;
+    // Same rows and version, but the slots of the last snapshot are stale
+    snapshot = null;
+    return true;
+  }
+
+  @Override
+  public Transaction get(int index) {
+    return transactions[getSlot(index)];
+  }
+
+  @Override
+  public double getAmount(int index) {
+    return get(index).getAmount();
+  }
+
+  @Override
+  public long getCents(int index) {
+    return get(index).getCents();
+  }
+
+  @Override
+  public String getCategory(int index) {
+    return get(index).getCategory();
+  }
+
+  @Override
+  public CategoryRegistry getCategories() {
+    return categories;
+  }
+
+  @Override
+  public long getVersion() {
+    return version;
+  }
+
+  @Override
+  public TransactionSnapshot snapshot() {
+    if (snapshot == null || snapshot.getVersion() != version) {
+      snapshot = new ListSnapshot(transactions, ids, slots, tombstones.share(), version, generation);
+    }
+    return snapshot;
+  }
+
+  /**
+   * This method checks that the row exists
+   *
+   * @param index row index
+   * @param size  number of rows
+   * @throws IndexOutOfBoundsException if the row does not exist
+   */
+  private static void checkIndex(int index, int size) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+
+  /**
+   * Snapshot sharing the arrays of the store
+   */
+  private static final class ListSnapshot extends TransactionSnapshot {
+
+    /**
+     * The shared transactions
+     */
+    private final Transaction[] transactions;
+
+    /**
+     * The shared ids
+     */
+    private final long[] ids;
+
+    /**
+     * Number of slots in the snapshot, removed ones included
+     */
+    private final int slots;
+
+    /**
+     * The removed slots at the version of the snapshot
+     */
+    private final Tombstones tombstones;
+
+    /**
+     * Number of compactions of the store before the snapshot
+     */
+    private final int generation;
+
+    /**
+     * Initialize the snapshot
+     *
+     * @param transactions - the shared transactions
+     * @param ids          - the shared ids
+     * @param slots        - number of slots
+     * @param tombstones   - the removed slots
+     * @param version      - version of the store
+     * @param generation   - number of compactions of the store
+     */
+    ListSnapshot(Transaction[] transactions, long[] ids, int slots, Tombstones tombstones, long version,
+        int generation) {
+      super(version);
+      this.transactions = transactions;
+      this.ids = ids;
+      this.slots = slots;
+      this.tombstones = tombstones;
+      this.generation = generation;
+    }
+
+    @Override
+    public Transaction get(int index) {
+      return transactions[slot(index)];
+    }
+
+    @Override
+    public int size() {
+      return slots - tombstones.count();
+    }
+
+    @Override
+    public long getId(int index) {
+      return ids[slot(index)];
+    }
+
+    @Override
+    public int[] toRows(int[] slots) {
+      return tombstones.toRows(slots);
+    }
+
+    @Override
+    public long getCents(int index) {
+      return get(index).getCents();
+    }
+
+    @Override
+    public String getCategory(int index) {
+      return get(index).getCategory();
+    }
+
+    @Override
+    public String getTimestamp(int index) {
+      return get(index).getTimestamp();
+    }
+
+    @Override
+    public int getCategoryCode(int index) {
+      return get(index).getCategoryCode();
+    }
+
+    @Override
+    public long getTime(int index) {
+      return get(index).getTime();
+    }
+
+    /**
+     * This method maps a row index onto its slot
+     *
+     * @param index row index
+     * @return slot
+     * @throws IndexOutOfBoundsException if the row does not exist
+     */
+    private int slot(int index) {
+      checkIndex(index, size());
+      return tombstones.slotOf(index);
+    }
+  }
+
+}
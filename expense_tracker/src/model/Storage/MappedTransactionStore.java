@@ -0,0 +1,587 @@
+package model.Storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import model.CategoryRegistry;
+import model.Transaction;
+
+/**
+ * MappedTransactionStore keeps the transactions in a ledger file of fixed
+ * width binary records which is memory-mapped through FileChannel.map.
+ *
+ * Opening a ledger only reads its header and maps it, so startup time does
+ * not depend on the size of the ledger: the operating system pages records in
+ * when they are first read.
+ *
+ * Records are never moved or changed once written. A removed record is
+ * recorded as a tombstone in a side file (ledger file name + ".tombstones"),
+ * and row indexes skip the tombstoned records. Snapshots therefore only need
+ * the number of records and the tombstones at the time they were taken.
+ * Records are the slots of the store; the ledger is never compacted, so ids
+ * and slots stay the same across restarts.
+ *
+ * The category registry the stored codes refer to is saved in another side
+ * file (ledger file name + CATEGORIES_EXTENSION) and loaded before any record
+ * is read.
+ *
+ * Record layout (32 bytes): amount in cents (long), timestamp in epoch
+ * milliseconds (long), id (long), category code (byte), 7 bytes padding.
+ */
+public class MappedTransactionStore implements TransactionStore, Closeable {
+
+  /**
+   * Appended to the ledger file name for the category file
+   */
+  public static final String CATEGORIES_EXTENSION = ".categories";
+
+  /**
+   * Size of the file header: magic, format version, record count, next id
+   */
+  static final int HEADER_SIZE = 64;
+
+  /**
+   * Size of a record
+   */
+  static final int RECORD_SIZE = 32;
+
+  /**
+   * The file is mapped in segments of 2^SEGMENT_SHIFT bytes
+   */
+  static final int SEGMENT_SHIFT = 24;
+
+  /**
+   * Size of a mapped segment
+   */
+  static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+  /**
+   * Marks a ledger file
+   */
+  private static final int MAGIC = 0x45544c31;
+
+  /**
+   * Version of the record format
+   */
+  private static final int FORMAT_VERSION = 2;
+
+  /**
+   * Header offset of the record count
+   */
+  private static final int COUNT_OFFSET = 8;
+
+  /**
+   * Header offset of the next id
+   */
+  private static final int NEXT_ID_OFFSET = 16;
+
+  /**
+   * The ledger file
+   */
+  private final FileChannel channel;
+
+  /**
+   * The tombstone file, one int per removed record
+   */
+  private final FileChannel tombstoneChannel;
+
+  /**
+   * The mapped segments of the ledger file. Every segment is mapped when the
+   * file is opened or grown, by the writer; the array is then replaced, never
+   * changed, so readers holding a snapshot only read it.
+   */
+  private volatile MappedByteBuffer[] segments;
+
+  /**
+   * Number of records in the file, removed ones included
+   */
+  private int records;
+
+  /**
+   * Id of the next record
+   */
+  private long nextId;
+
+  /**
+   * Record numbers of the removed records
+   */
+  private Tombstones tombstones;
+
+  /**
+   * Version of the store
+   */
+  private long version;
+
+  /**
+   * The last snapshot handed out
+   */
+  private MappedSnapshot snapshot;
+
+  /**
+   * Registry the category codes refer to, saved next to the ledger
+   */
+  private final CategoryRegistry categories;
+
+  /**
+   * Open or create a ledger file with its own category registry
+   *
+   * @param file - the ledger file
+   * @throws IOException if the file cannot be opened or is not a ledger
+   */
+  public MappedTransactionStore(Path file) throws IOException {
+    this(file, new CategoryRegistry());
+  }
+
+  /**
+   * Open or create a ledger file. The categories saved next to it are loaded
+   * into the registry, and categories registered later are saved there.
+   *
+   * @param file       - the ledger file
+   * @param categories - registry the category codes refer to
+   * @throws IOException              if the file cannot be opened or is not a
+   *                                  ledger
+   * @throws IllegalArgumentException if the saved categories do not fit the
+   *                                  registry
+   */
+  public MappedTransactionStore(Path file, CategoryRegistry categories) throws IOException {
+    // Stored codes refer to the saved categories
+    categories.load(Paths.get(file + CATEGORIES_EXTENSION));
+    this.categories = categories;
+    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    tombstoneChannel = FileChannel.open(Paths.get(file + ".tombstones"), StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    if (channel.size() == 0) {
+      // New ledger: one empty segment with a header
+      channel.write(ByteBuffer.allocate(1), SEGMENT_SIZE - 1);
+    }
+    MappedByteBuffer[] mapped = new MappedByteBuffer[(int) ((channel.size() + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+    for (int index = 0; index < mapped.length; index++) {
+      // Mapping does not read the file, the pages are read on first access
+      mapped[index] = map(index);
+    }
+    segments = mapped;
+    ByteBuffer header = segment(0);
+    if (header.getInt(0) == 0) {
+      header.putInt(0, MAGIC);
+      header.putInt(4, FORMAT_VERSION);
+    } else if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION) {
+      close();
+      throw new IOException("Not a transaction ledger: " + file);
+    }
+    records = header.getInt(COUNT_OFFSET);
+    nextId = header.getLong(NEXT_ID_OFFSET);
+    loadTombstones();
+  }
+
+  @Override
+  public int size() {
+    return records - tombstones.count();
+  }
+
+  @Override
+  public void add(Transaction t) {
+    int categoryCode = t.getCategoryCode();
+    if (categoryCode == -1) {
+      throw new IllegalArgumentException("The category is not valid.");
+    }
+    long offset = recordOffset(records);
+    if ((offset >>> SEGMENT_SHIFT) >= segments.length) {
+      grow();
+    }
+    ByteBuffer segment = segment((int) (offset >>> SEGMENT_SHIFT));
+    int position = (int) (offset & (SEGMENT_SIZE - 1));
+    segment.putLong(position, t.getCents());
+    segment.putLong(position + 8, t.getTime());
+    segment.putLong(position + 16, nextId++);
+    segment.put(position + 24, (byte) categoryCode);
+    // Publish the record in the header once it is written
+    records++;
+    ByteBuffer header = segment(0);
+    header.putLong(NEXT_ID_OFFSET, nextId);
+    header.putInt(COUNT_OFFSET, records);
+    version++;
+  }
+
+  @Override
+  public void removeAt(int index) {
+    addTombstone(getSlot(index));
+    version++;
+  }
+
+  @Override
+  public void removeRows(int[] rows) {
+    if (rows.length == 0) {
+      return;
+    }
+    getSlot(rows[0]);
+    getSlot(rows[rows.length - 1]);
+    int[] removed = tombstones.slotsOf(rows);
+    int first = tombstones.count();
+    tombstones.addAll(removed);
+    // One write of all new entries of the tombstone file
+    ByteBuffer entries = ByteBuffer.allocate(removed.length * 4);
+    entries.asIntBuffer().put(removed);
+    try {
+      long position = (long) first * 4;
+      while (entries.hasRemaining()) {
+        position += tombstoneChannel.write(entries, position);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    version++;
+  }
+
+  @Override
+  public int indexOf(Transaction t) {
+    long cents = t.getCents();
+    int categoryCode = t.getCategoryCode();
+    long time = t.getTime();
+    for (int record = 0, row = 0; record < records; record++) {
+      if (tombstones.contains(record)) {
+        continue;
+      }
+      ByteBuffer segment = segment((int) (recordOffset(record) >>> SEGMENT_SHIFT));
+      int position = (int) (recordOffset(record) & (SEGMENT_SIZE - 1));
+      if (segment.getLong(position) == cents && segment.get(position + 24) == categoryCode
+          && segment.getLong(position + 8) == time) {
+        return row;
+      }
+      row++;
+    }
+    return -1;
+  }
+
+  @Override
+  public int indexOf(long id) {
+    // Ids ascend with the records, removed records keep theirs
+    int low = 0;
+    int high = records - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long midId = recordId(mid);
+      if (midId < id) {
+        low = mid + 1;
+      } else if (midId > id) {
+        high = mid - 1;
+      } else {
+        return tombstones.rowOf(mid);
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public long getId(int index) {
+    return recordId(getSlot(index));
+  }
+
+  @Override
+  public long getNextId() {
+    return nextId;
+  }
+
+  @Override
+  public void setNextId(long id) {
+    if (id < nextId) {
+      throw new IllegalArgumentException("Ids must ascend: " + id + " < " + nextId);
+    }
+    nextId = id;
+    segment(0).putLong(NEXT_ID_OFFSET, nextId);
+  }
+
+  @Override
+  public int getSlot(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+    return tombstones.slotOf(index);
+  }
+
+  @Override
+  public int getSlotCount() {
+    return records;
+  }
+
+  @Override
+  public boolean needsCompaction() {
+    // Rewriting the ledger would cost more than skipping its tombstones
+    return false;
+  }
+
+  @Override
+  public Compaction prepareCompaction(TransactionSnapshot snapshot) {
+    return null;
+  }
+
+  @Override
+  public boolean compact(Compaction compaction) {
+    return false;
+  }
+
+  @Override
+  public Transaction get(int index) {
+    return snapshot().get(index);
+  }
+
+  @Override
+  public double getAmount(int index) {
+    return snapshot().getAmount(index);
+  }
+
+  @Override
+  public long getCents(int index) {
+    return snapshot().getCents(index);
+  }
+
+  @Override
+  public String getCategory(int index) {
+    return snapshot().getCategory(index);
+  }
+
+  @Override
+  public CategoryRegistry getCategories() {
+    return categories;
+  }
+
+  @Override
+  public long getVersion() {
+    return version;
+  }
+
+  @Override
+  public TransactionSnapshot snapshot() {
+    if (snapshot == null || snapshot.getVersion() != version) {
+      snapshot = new MappedSnapshot(this, records, tombstones.share(), version);
+    }
+    return snapshot;
+  }
+
+  /**
+   * This method forces the written records and tombstones to disk
+   *
+   * @throws IOException if the ledger cannot be written
+   */
+  public void force() throws IOException {
+    for (MappedByteBuffer segment : segments) {
+      segment.force();
+    }
+    tombstoneChannel.force(false);
+  }
+
+  /**
+   * This method forces the ledger to disk and closes it
+   *
+   * @throws IOException if the ledger cannot be written
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      if (channel.isOpen()) {
+        force();
+      }
+    } finally {
+      channel.close();
+      tombstoneChannel.close();
+    }
+  }
+
+  /**
+   * This method returns the file offset of a record
+   *
+   * @param record - record number
+   * @return file offset
+   */
+  private static long recordOffset(int record) {
+    return HEADER_SIZE + (long) record * RECORD_SIZE;
+  }
+
+  /**
+   * This method reads the id of a record
+   *
+   * @param record - record number
+   * @return id of the record
+   */
+  private long recordId(int record) {
+    long offset = recordOffset(record);
+    return segment((int) (offset >>> SEGMENT_SHIFT)).getLong((int) (offset & (SEGMENT_SIZE - 1)) + 16);
+  }
+
+  /**
+   * This method returns a mapped segment
+   *
+   * @param index - segment number
+   * @return the mapped segment
+   */
+  private MappedByteBuffer segment(int index) {
+    return segments[index];
+  }
+
+  /**
+   * This method maps a segment of the ledger file
+   *
+   * @param index - segment number
+   * @return the mapped segment
+   * @throws IOException if the segment cannot be mapped
+   */
+  private MappedByteBuffer map(int index) throws IOException {
+    return channel.map(FileChannel.MapMode.READ_WRITE, (long) index << SEGMENT_SHIFT, SEGMENT_SIZE);
+  }
+
+  /**
+   * This method extends the ledger file by one segment and maps it. Only the
+   * writer calls it.
+   */
+  private void grow() {
+    MappedByteBuffer[] current = segments;
+    MappedByteBuffer[] grown = Arrays.copyOf(current, current.length + 1);
+    try {
+      channel.write(ByteBuffer.allocate(1), ((long) current.length + 1 << SEGMENT_SHIFT) - 1);
+      grown[current.length] = map(current.length);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    // Published whole, so a reader sees either array with every entry mapped
+    segments = grown;
+  }
+
+  /**
+   * This method records a tombstone and appends it to the tombstone file
+   *
+   * @param record - record number of the removed record
+   */
+  private void addTombstone(int record) {
+    tombstones.add(record);
+    try {
+      ByteBuffer entry = ByteBuffer.allocate(4).putInt(0, record);
+      tombstoneChannel.write(entry, (long) (tombstones.count() - 1) * 4);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * This method loads the tombstone file
+   *
+   * @throws IOException if the tombstone file cannot be read
+   */
+  private void loadTombstones() throws IOException {
+    int count = (int) (tombstoneChannel.size() / 4);
+    int[] removed = new int[Math.max(16, count)];
+    ByteBuffer buffer = ByteBuffer.allocate(count * 4);
+    while (buffer.hasRemaining() && tombstoneChannel.read(buffer, buffer.position()) > 0) {
+      // keep reading
+    }
+    buffer.flip();
+    buffer.asIntBuffer().get(removed, 0, count);
+    tombstones = new Tombstones(removed, count);
+  }
+
+  /**
+   * Snapshot over the records and tombstones at one version
+   */
+  private static final class MappedSnapshot extends TransactionSnapshot {
+
+    /**
+     * The store, which maps the segments
+     */
+    private final MappedTransactionStore store;
+
+    /**
+     * Number of records, removed ones included
+     */
+    private final int records;
+
+    /**
+     * Record numbers of the removed records at the version of the snapshot
+     */
+    private final Tombstones tombstones;
+
+    /**
+     * Initialize the snapshot
+     *
+     * @param store      - the store, which maps the segments
+     * @param records    - number of records
+     * @param tombstones - removed record numbers
+     * @param version    - version of the store
+     */
+    MappedSnapshot(MappedTransactionStore store, int records, Tombstones tombstones, long version) {
+      super(version);
+      this.store = store;
+      this.records = records;
+      this.tombstones = tombstones;
+    }
+
+    @Override
+    public int size() {
+      return records - tombstones.count();
+    }
+
+    @Override
+    public long getId(int index) {
+      return store.recordId(record(index));
+    }
+
+    @Override
+    public int[] toRows(int[] slots) {
+      return tombstones.toRows(slots);
+    }
+
+    @Override
+    public Transaction get(int index) {
+      return Transaction.ofCode(getCents(index), getCategoryCode(index), getTime(index), store.categories);
+    }
+
+    @Override
+    public long getCents(int index) {
+      long offset = recordOffset(record(index));
+      return store.segment((int) (offset >>> SEGMENT_SHIFT)).getLong((int) (offset & (SEGMENT_SIZE - 1)));
+    }
+
+    @Override
+    public String getCategory(int index) {
+      return store.categories.getName(getCategoryCode(index));
+    }
+
+    @Override
+    public String getTimestamp(int index) {
+      return Transaction.formatTimestamp(getTime(index));
+    }
+
+    @Override
+    public int getCategoryCode(int index) {
+      long offset = recordOffset(record(index));
+      return store.segment((int) (offset >>> SEGMENT_SHIFT)).get((int) (offset & (SEGMENT_SIZE - 1)) + 24);
+    }
+
+    @Override
+    public long getTime(int index) {
+      long offset = recordOffset(record(index));
+      return store.segment((int) (offset >>> SEGMENT_SHIFT)).getLong((int) (offset & (SEGMENT_SIZE - 1)) + 8);
+    }
+
+    /**
+     * This method maps a row index onto its record number by skipping the
+     * tombstones before it, O(log s) for s records
+     *
+     * @param index row index
+     * @return record number
+     * @throws IndexOutOfBoundsException if the row does not exist
+     */
+    private int record(int index) {
+      if (index < 0 || index >= size()) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+      }
+      return tombstones.slotOf(index);
+    }
+  }
+
+}
@@ -0,0 +1,352 @@
+package model.Storage;
+
+import java.util.Arrays;
+
+/**
+ * Tombstones are the slots of a store whose transactions were removed. A
+ * store appends every transaction to a new slot and never moves it, so a
+ * remove only records a tombstone instead of shifting the slots after it.
+ *
+ * The tombstones are a bitset over the slots, in pages of PAGE_SLOTS slots,
+ * with a Fenwick tree of the number of tombstones of every page. Recording a
+ * tombstone and mapping between row indexes and slots are O(log p + w) for p
+ * pages of w words, and checking a slot is O(1), however many tombstones
+ * there are. Row indexes count the live slots only, so row r is slot r plus
+ * the number of tombstones in front of it.
+ *
+ * Snapshots share the tombstones of the store. The first remove after sharing
+ * copies the page table and the tree, and every page is copied the first time
+ * it changes after that, so a remove never copies the whole bitset.
+ */
+final class Tombstones {
+
+  /**
+   * Fewest tombstones worth compacting a store for
+   */
+  static final int COMPACTION_MINIMUM = 1024;
+
+  /**
+   * A store is worth compacting once 1 / COMPACTION_RATIO of its slots are
+   * tombstones
+   */
+  static final int COMPACTION_RATIO = 8;
+
+  /**
+   * Slots per page, as a power of two
+   */
+  private static final int PAGE_BITS = 12;
+
+  /**
+   * Slots per page
+   */
+  private static final int PAGE_SLOTS = 1 << PAGE_BITS;
+
+  /**
+   * The removed slots, slot s is bit (s % 64) of word (s % PAGE_SLOTS / 64)
+   * of page (s / PAGE_SLOTS). A page without tombstones may be null.
+   */
+  private long[][] pages;
+
+  /**
+   * Whether a page is not shared with a snapshot, so it can be changed
+   */
+  private boolean[] owned;
+
+  /**
+   * Fenwick tree of the number of tombstones of every page, ranks[i] covers
+   * the (i & -i) pages ending at page i - 1
+   */
+  private int[] ranks;
+
+  /**
+   * Number of tombstones
+   */
+  private int count;
+
+  /**
+   * Whether the page table and the tree are shared with a snapshot
+   */
+  private boolean shared;
+
+  /**
+   * Initialize without tombstones
+   */
+  Tombstones() {
+    pages = new long[0][];
+    owned = new boolean[0];
+    ranks = new int[1];
+  }
+
+  /**
+   * Initialize with the given tombstones
+   *
+   * @param slots - the removed slots, each once, in any order
+   * @param count - number of used entries of slots
+   */
+  Tombstones(int[] slots, int count) {
+    this();
+    for (int i = 0; i < count; i++) {
+      add(slots[i]);
+    }
+  }
+
+  /**
+   * Initialize over the pages of other tombstones, which are shared
+   *
+   * @param other - the tombstones to share
+   */
+  private Tombstones(Tombstones other) {
+    pages = other.pages;
+    owned = other.owned;
+    ranks = other.ranks;
+    count = other.count;
+    shared = true;
+  }
+
+  /**
+   * This method returns the number of tombstones
+   *
+   * @return number of removed slots
+   */
+  int count() {
+    return count;
+  }
+
+  /**
+   * This method checks whether enough slots were removed that the store
+   * should be compacted
+   *
+   * @param slotCount - number of slots of the store, removed ones included
+   * @return whether the store should be compacted
+   */
+  boolean needCompaction(int slotCount) {
+    return count >= COMPACTION_MINIMUM && count >= slotCount / COMPACTION_RATIO;
+  }
+
+  /**
+   * This method returns the tombstones as they are now. Later removes are not
+   * visible through the returned tombstones, which must not be changed.
+   *
+   * @return the shared tombstones
+   */
+  Tombstones share() {
+    shared = true;
+    return new Tombstones(this);
+  }
+
+  /**
+   * This method records a removed slot
+   *
+   * @param slot - the removed slot, not removed before
+   */
+  void add(int slot) {
+    int page = slot >>> PAGE_BITS;
+    if (page >= pages.length) {
+      pages = Arrays.copyOf(pages, Math.max(page + 1, pages.length * 2));
+      owned = Arrays.copyOf(owned, pages.length);
+      ranks = ranks(pages);
+    } else if (shared) {
+      pages = pages.clone();
+      ranks = ranks.clone();
+    }
+    if (shared) {
+      // Every page is still the snapshot's
+      owned = new boolean[pages.length];
+      shared = false;
+    }
+    if (pages[page] == null) {
+      pages[page] = new long[PAGE_SLOTS / 64];
+      owned[page] = true;
+    } else if (!owned[page]) {
+      pages[page] = pages[page].clone();
+      owned[page] = true;
+    }
+    pages[page][(slot & (PAGE_SLOTS - 1)) >>> 6] |= 1L << slot;
+    for (int i = page + 1; i < ranks.length; i += i & -i) {
+      ranks[i]++;
+    }
+    count++;
+  }
+
+  /**
+   * This method records many removed slots
+   *
+   * @param removed - ascending removed slots, none of them removed before
+   */
+  void addAll(int[] removed) {
+    for (int slot : removed) {
+      add(slot);
+    }
+  }
+
+  /**
+   * This method returns the tombstones recorded since other tombstones were
+   * shared from these. Pages which changed since were copied, so only those
+   * are compared, which is O(p + w c) for p pages and c changed pages of w
+   * words.
+   *
+   * @param base - tombstones shared from these earlier
+   * @return ascending slots removed since
+   */
+  int[] since(Tombstones base) {
+    int[] since = new int[count - base.count];
+    int n = 0;
+    for (int page = 0; page < pages.length; page++) {
+      long[] words = pages[page];
+      long[] before = page < base.pages.length ? base.pages[page] : null;
+      if (words == null || words == before) {
+        continue;
+      }
+      for (int word = 0; word < words.length; word++) {
+        long bits = before == null ? words[word] : words[word] & ~before[word];
+        while (bits != 0) {
+          since[n++] = page * PAGE_SLOTS + word * 64 + Long.numberOfTrailingZeros(bits);
+          bits &= bits - 1;
+        }
+      }
+    }
+    return since;
+  }
+
+  /**
+   * This method maps ascending row indexes onto their slots
+   *
+   * @param rows - ascending row indexes
+   * @return ascending slots
+   */
+  int[] slotsOf(int[] rows) {
+    int[] slotsOf = new int[rows.length];
+    for (int i = 0; i < rows.length; i++) {
+      slotsOf[i] = slotOf(rows[i]);
+    }
+    return slotsOf;
+  }
+
+  /**
+   * This method returns whether a slot was removed
+   *
+   * @param slot - the slot
+   * @return whether there is a tombstone for the slot
+   */
+  boolean contains(int slot) {
+    int page = slot >>> PAGE_BITS;
+    return page < pages.length && pages[page] != null
+        && (pages[page][(slot & (PAGE_SLOTS - 1)) >>> 6] & (1L << slot)) != 0;
+  }
+
+  /**
+   * This method maps a row index onto its slot by skipping the tombstones
+   * before it
+   *
+   * @param row - row index
+   * @return the slot
+   */
+  int slotOf(int row) {
+    if (count == 0) {
+      return row;
+    }
+    // Descend the tree to the last page whose live slots before it are at
+    // most row, then count the live slots of that page
+    int page = 0;
+    int left = row;
+    for (int step = Integer.highestOneBit(pages.length); step > 0; step >>>= 1) {
+      int next = page + step;
+      if (next < ranks.length && step * PAGE_SLOTS - ranks[next] <= left) {
+        page = next;
+        left -= step * PAGE_SLOTS - ranks[next];
+      }
+    }
+    if (page == pages.length || pages[page] == null) {
+      return page * PAGE_SLOTS + left;
+    }
+    long[] words = pages[page];
+    int word = 0;
+    while (64 - Long.bitCount(words[word]) <= left) {
+      left -= 64 - Long.bitCount(words[word]);
+      word++;
+    }
+    long live = ~words[word];
+    for (int i = 0; i < left; i++) {
+      live &= live - 1;
+    }
+    return page * PAGE_SLOTS + word * 64 + Long.numberOfTrailingZeros(live);
+  }
+
+  /**
+   * This method maps a live slot onto its row index
+   *
+   * @param slot - the slot
+   * @return row index, -1 if the slot was removed
+   */
+  int rowOf(int slot) {
+    if (count == 0) {
+      return slot;
+    }
+    return contains(slot) ? -1 : slot - before(slot);
+  }
+
+  /**
+   * This method maps ascending live slots onto their row indexes
+   *
+   * @param live - ascending live slots, e.g. from the model indexes
+   * @return ascending row indexes, the given array if there are no tombstones
+   */
+  int[] toRows(int[] live) {
+    if (count == 0) {
+      return live;
+    }
+    int[] rows = new int[live.length];
+    for (int i = 0; i < live.length; i++) {
+      rows[i] = live[i] - before(live[i]);
+    }
+    return rows;
+  }
+
+  /**
+   * This method returns the number of tombstones in front of a slot
+   *
+   * @param slot - the slot
+   * @return number of removed slots less than slot
+   */
+  private int before(int slot) {
+    int page = slot >>> PAGE_BITS;
+    if (page >= pages.length) {
+      return count;
+    }
+    int before = 0;
+    for (int i = page; i > 0; i -= i & -i) {
+      before += ranks[i];
+    }
+    long[] words = pages[page];
+    if (words != null) {
+      int word = (slot & (PAGE_SLOTS - 1)) >>> 6;
+      for (int i = 0; i < word; i++) {
+        before += Long.bitCount(words[i]);
+      }
+      before += Long.bitCount(words[word] & ((1L << slot) - 1));
+    }
+    return before;
+  }
+
+  /**
+   * This method builds the Fenwick tree of the tombstones of every page
+   *
+   * @param pages - the removed slots
+   * @return the tree
+   */
+  private static int[] ranks(long[][] pages) {
+    int[] ranks = new int[pages.length + 1];
+    for (int i = 1; i <= pages.length; i++) {
+      if (pages[i - 1] != null) {
+        for (long word : pages[i - 1]) {
+          ranks[i] += Long.bitCount(word);
+        }
+      }
+      int parent = i + (i & -i);
+      if (parent <= pages.length) {
+        ranks[parent] += ranks[i];
+      }
+    }
+    return ranks;
+  }
+}
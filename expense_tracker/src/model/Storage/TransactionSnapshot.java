@@ -0,0 +1,139 @@
+package model.Storage;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+import model.Money;
+import model.Transaction;
+
+/**
+ * A TransactionSnapshot is an immutable view of a TransactionStore at one
+ * version. Taking a snapshot is O(1): it shares the storage of the store, and
+ * the store copies what it shares before it changes it (copy-on-write).
+ *
+ * All mutating List methods throw UnsupportedOperationException.
+ */
+public abstract class TransactionSnapshot extends AbstractList<Transaction> implements RandomAccess {
+
+  /**
+   * Version of the store this snapshot was taken at
+   */
+  private final long version;
+
+  /**
+   * Initialize the snapshot
+   *
+   * @param version - version of the store the snapshot was taken at
+   */
+  protected TransactionSnapshot(long version) {
+    this.version = version;
+  }
+
+  /**
+   * This method returns the version of the store this snapshot was taken at.
+   * Two snapshots of the same store with the same version hold the same rows.
+   *
+   * @return store version
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * This method returns the id of the transaction at the given row
+   *
+   * @param index row index
+   * @return transaction id
+   */
+  public abstract long getId(int index);
+
+  /**
+   * This method returns the row of the transaction with the given id. Ids
+   * ascend with the rows, so this is a binary search.
+   *
+   * @param id transaction id
+   * @return row index, or -1 if the snapshot has no transaction with the id
+   */
+  public int indexOf(long id) {
+    int low = 0;
+    int high = size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long midId = getId(mid);
+      if (midId < id) {
+        low = mid + 1;
+      } else if (midId > id) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * This method maps ascending slots of the store, e.g. from the model
+   * indexes, onto the row indexes of this snapshot. The slots must be live in
+   * the snapshot.
+   *
+   * @param slots ascending slots
+   * @return ascending row indexes
+   */
+  public abstract int[] toRows(int[] slots);
+
+  /**
+   * This method returns the amount of the transaction at the given row
+   * without materialising a Transaction
+   *
+   * @param index row index
+   * @return transaction amount
+   */
+  public double getAmount(int index) {
+    return Money.toAmount(getCents(index));
+  }
+
+  /**
+   * This method returns the amount of the transaction at the given row in
+   * cents without materialising a Transaction
+   *
+   * @param index row index
+   * @return transaction amount in cents
+   */
+  public abstract long getCents(int index);
+
+  /**
+   * This method returns the category of the transaction at the given row
+   * without materialising a Transaction
+   *
+   * @param index row index
+   * @return transaction category
+   */
+  public abstract String getCategory(int index);
+
+  /**
+   * This method returns the timestamp of the transaction at the given row
+   * without materialising a Transaction
+   *
+   * @param index row index
+   * @return transaction timestamp
+   */
+  public abstract String getTimestamp(int index);
+
+  /**
+   * This method returns the category code of the transaction at the given row
+   *
+   * @param index row index
+   * @return category code
+   */
+  public abstract int getCategoryCode(int index);
+
+  /**
+   * This method returns the timestamp of the transaction at the given row in
+   * epoch milliseconds
+   *
+   * @param index row index
+   * @return epoch milliseconds
+   */
+  public abstract long getTime(int index);
+
+}
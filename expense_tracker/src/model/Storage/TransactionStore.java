@@ -0,0 +1,247 @@
+package model.Storage;
+
+import model.CategoryRegistry;
+import model.Transaction;
+
+/**
+ * The TransactionStore is the storage backend of the ExpenseTrackerModel.
+ *
+ * NOTE) The Strategy design pattern is being applied. The model delegates
+ * the physical layout of the transactions to one of the stores below, so the
+ * layout can be changed without touching the model, the view or the filters.
+ *
+ * Every transaction gets an id when it is added, larger than the ids of all
+ * transactions added before, and is kept in a slot which does not change
+ * until the store is compacted. Removing a transaction records a tombstone
+ * for its slot, so row indexes skip it but no other slot moves.
+ *
+ * Every store has its own CategoryRegistry, which the category codes of its
+ * rows refer to. Stores which persist their rows persist the registry next to
+ * them.
+ */
+public interface TransactionStore {
+
+  /**
+   * This method returns the number of stored transactions
+   *
+   * @return number of transactions
+   */
+  public int size();
+
+  /**
+   * This method appends a transaction to the end of the store. Its category
+   * code must refer to the registry of the store.
+   *
+   * @param t Transaction object
+   */
+  public void add(Transaction t);
+
+  /**
+   * This method removes the first stored transaction equal to the given one
+   *
+   * @param t Transaction object
+   * @return row index the removed transaction had, or -1 if none was removed
+   */
+  public default int remove(Transaction t) {
+    int index = indexOf(t);
+    if (index != -1) {
+      removeAt(index);
+    }
+    return index;
+  }
+
+  /**
+   * This method removes the transaction at the given row by recording a
+   * tombstone for its slot
+   *
+   * @param index row index
+   * @throws IndexOutOfBoundsException if the row does not exist
+   */
+  public void removeAt(int index);
+
+  /**
+   * This method removes the transactions at the given rows in one change.
+   * Stores record all their tombstones at once, so this is cheaper than
+   * removing the rows one by one.
+   *
+   * @param rows ascending, distinct row indexes
+   * @throws IndexOutOfBoundsException if a row does not exist, in which case
+   *                                   none is removed
+   */
+  public default void removeRows(int[] rows) {
+    if (rows.length > 0 && (rows[0] < 0 || rows[rows.length - 1] >= size())) {
+      throw new IndexOutOfBoundsException("Rows: " + rows[0] + ".." + rows[rows.length - 1] + ", Size: " + size());
+    }
+    // From the last row, so the rows still to remove do not move
+    for (int i = rows.length - 1; i >= 0; i--) {
+      removeAt(rows[i]);
+    }
+  }
+
+  /**
+   * This method returns the row of the first stored transaction equal to the
+   * given one
+   *
+   * @param t Transaction object
+   * @return row index, or -1 if no transaction is equal
+   */
+  public int indexOf(Transaction t);
+
+  /**
+   * This method returns the row of the transaction with the given id
+   *
+   * @param id transaction id
+   * @return row index, or -1 if no stored transaction has the id
+   */
+  public int indexOf(long id);
+
+  /**
+   * This method returns the id of the transaction at the given row
+   *
+   * @param index row index
+   * @return transaction id
+   * @throws IndexOutOfBoundsException if the row does not exist
+   */
+  public long getId(int index);
+
+  /**
+   * This method returns the id the next added transaction gets
+   *
+   * @return next id
+   */
+  public long getNextId();
+
+  /**
+   * This method sets the id the next added transaction gets. A store rebuilt
+   * from a journal uses it to give every transaction the id it had.
+   *
+   * @param id next id
+   * @throws IllegalArgumentException if the id is smaller than the next id,
+   *                                  so ids would not ascend
+   */
+  public void setNextId(long id);
+
+  /**
+   * This method returns the slot of the transaction at the given row
+   *
+   * @param index row index
+   * @return slot
+   * @throws IndexOutOfBoundsException if the row does not exist
+   */
+  public int getSlot(int index);
+
+  /**
+   * This method returns the number of slots, removed ones included. The next
+   * added transaction is kept in this slot.
+   *
+   * @return number of slots
+   */
+  public int getSlotCount();
+
+  /**
+   * This method checks whether enough slots were removed that compact should
+   * be called
+   *
+   * @return whether the store should be compacted
+   */
+  public boolean needsCompaction();
+
+  /**
+   * This method moves the live transactions into consecutive slots and drops
+   * the tombstones. Rows, ids and the version do not change, slots do.
+   *
+   * @return whether any slot changed
+   */
+  public default boolean compact() {
+    Compaction compaction = prepareCompaction(snapshot());
+    return compaction != null && compact(compaction);
+  }
+
+  /**
+   * This method moves the live transactions of a snapshot of this store into
+   * consecutive slots. The store does not change, so this may run on any
+   * thread while the store keeps changing.
+   *
+   * @param snapshot - a snapshot of this store
+   * @return the moved transactions, null if the snapshot has no tombstones or
+   *         the store is never compacted
+   */
+  public Compaction prepareCompaction(TransactionSnapshot snapshot);
+
+  /**
+   * This method swaps a prepared compaction into the store, and replays the
+   * adds and removes made since its snapshot on top of it. Rows, ids and the
+   * version do not change, slots do. Slot s of the compaction snapshot stays
+   * slot s, and transactions added since the snapshot follow after them in
+   * order.
+   *
+   * @param compaction - a compaction prepared from a snapshot of this store
+   * @return whether the compaction was applied, false if the store was
+   *         compacted since the snapshot was taken
+   */
+  public boolean compact(Compaction compaction);
+
+  /**
+   * This method returns the transaction at the given row. Stores which do not
+   * keep Transaction objects hand out a new view of the row.
+   *
+   * @param index row index
+   * @return transaction at the row
+   * @throws IndexOutOfBoundsException if the row does not exist
+   */
+  public Transaction get(int index);
+
+  /**
+   * This method returns the amount of the transaction at the given row
+   * without materialising a Transaction
+   *
+   * @param index row index
+   * @return transaction amount
+   */
+  public double getAmount(int index);
+
+  /**
+   * This method returns the amount of the transaction at the given row in
+   * cents without materialising a Transaction
+   *
+   * @param index row index
+   * @return transaction amount in cents
+   */
+  public long getCents(int index);
+
+  /**
+   * This method returns the category of the transaction at the given row
+   * without materialising a Transaction
+   *
+   * @param index row index
+   * @return transaction category
+   */
+  public String getCategory(int index);
+
+  /**
+   * This method returns the registry the category codes of the rows refer to
+   *
+   * @return the category registry of the store
+   */
+  public CategoryRegistry getCategories();
+
+  /**
+   * This method returns the version of the store. The version grows by one
+   * with every added transaction and with every remove or batch of removes,
+   * and compacting does not change it. Between two snapshots only
+   * transactions were appended exactly when the size grew by as much as the
+   * version.
+   *
+   * @return store version
+   */
+  public long getVersion();
+
+  /**
+   * This method returns an immutable view of the current rows in O(1).
+   * Repeated calls without a change in between return the same snapshot.
+   *
+   * @return snapshot of the store
+   */
+  public TransactionSnapshot snapshot();
+
+}
@@ -2,39 +2,74 @@ package model;
 
 import controller.InputValidation;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.List;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.Objects;
 
 /**
  * Transaction defines what a transaction object will look like and defines
  * properties for the object
+ *
+ * The amount is kept in whole cents, see Money.
  */
 public class Transaction {
 
-  /** Date formatter object */
-  public static final SimpleDateFormat dateFormatter = new SimpleDateFormat("dd-MM-yyyy HH:mm");
+  /**
+   * Thread-safe formatter of the displayed timestamps, e.g. 31-12-2023 23:59
+   */
+  private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("dd-MM-uuuu HH:mm")
+      .withResolverStyle(ResolverStyle.STRICT).withZone(ZoneId.systemDefault());
+
+  /**
+   * Number of minutes the timestamp cache holds, a power of two
+   */
+  private static final int TIMESTAMP_CACHE_SIZE = 1024;
+
+  /**
+   * Formatted timestamps by minute. The table shows every transaction of a
+   * minute with the same text, so each minute is formatted once. Entries are
+   * immutable, so racing threads at worst format a minute twice.
+   */
+  private static final FormattedMinute[] TIMESTAMP_CACHE = new FormattedMinute[TIMESTAMP_CACHE_SIZE];
+
+  /**
+   * Clock new transactions read their time from
+   */
+  private static volatile Clock clock = Clock.systemDefaultZone();
 
   // final means that the variable cannot be changed
 
   /**
-   * amount field to store the transaction amount
+   * amount field to store the transaction amount in cents
+   */
+  private final long cents;
+
+  /**
+   * category code of the transaction category, see CategoryRegistry. The
+   * name is looked up when it is asked for, so transactions do not keep a
+   * String of their own.
    */
-  private final double amount;
+  private final int categoryCode;
 
   /**
-   * category field to store the transaction category
+   * registry the category code refers to
    */
-  private final String category;
+  private final CategoryRegistry categories;
 
   /**
-   * category field to store the transaction time
+   * time field to store the transaction time in epoch milliseconds
    */
-  private final String timestamp;
+  private final long time;
 
   /**
    * This method creates a transaction object with the user set amount and
-   * category
+   * category. The category is one of the built-in categories; see ofCents
+   * for custom categories.
    * 
    * @param amount   - set the amount field of a transaction
    * @param category - set the category field of a transaction
@@ -43,16 +78,164 @@ public class Transaction {
   public Transaction(double amount, String category) {
     // Since this is a public constructor, perform input validation
     // to guarantee that the amount and category are both valid
-    if (InputValidation.isValidAmount(amount) == false) {
+    this(category, toValidCents(amount), clock.millis(), CategoryRegistry.BUILT_IN);
+  }
+
+  /**
+   * This method creates a transaction object for a transaction which was
+   * recorded earlier, e.g. a row read back from a storage backend
+   * 
+   * @param amount    - set the amount field of a transaction
+   * @param category  - set the category field of a transaction
+   * @param timestamp - set the timestamp field of a transaction, in the
+   *                  date format
+   * @throws IllegalArgumentException if amount, category or timestamp is
+   *                                  invalid
+   */
+  public Transaction(double amount, String category, String timestamp) {
+    this(amount, category, parseTimestamp(timestamp));
+  }
+
+  /**
+   * This method creates a transaction object with a given time, e.g. a row
+   * read back from a storage backend or one of a batch which shares one
+   * reading of the clock
+   * 
+   * @param amount   - set the amount field of a transaction
+   * @param category - set the category field of a transaction
+   * @param time     - set the time field of a transaction, in epoch
+   *                 milliseconds
+   * @throws IllegalArgumentException if amount or category is invalid
+   */
+  public Transaction(double amount, String category, long time) {
+    this(category, toValidCents(amount), time, CategoryRegistry.BUILT_IN);
+  }
+
+  /**
+   * This method creates a transaction object from an amount in cents. The
+   * category comes first so that it is not mistaken for the public
+   * constructors taking a double amount.
+   * 
+   * @param category   - set the category field of a transaction
+   * @param cents      - set the amount field of a transaction, in cents
+   * @param time       - set the time field of a transaction, in epoch
+   *                   milliseconds
+   * @param categories - registry the category is looked up in
+   * @throws IllegalArgumentException if amount or category is invalid
+   */
+  private Transaction(String category, long cents, long time, CategoryRegistry categories) {
+    if (InputValidation.isValidCents(cents) == false) {
       throw new IllegalArgumentException("The amount is not valid.");
     }
-    if (InputValidation.isValidCategory(category) == false) {
+    // Validating the category looks up its code, keep it for the storage layer
+    int categoryCode = categories.getCode(category);
+    if (categoryCode == -1) {
       throw new IllegalArgumentException("The category is not valid.");
     }
 
-    this.amount = amount;
-    this.category = category;
-    this.timestamp = generateTimestamp();
+    this.cents = cents;
+    this.categoryCode = categoryCode;
+    this.time = time;
+    this.categories = categories;
+  }
+
+  /**
+   * This method converts a user entered amount to cents
+   * 
+   * @param amount - the amount
+   * @return amount in cents, or 0, which is not a valid amount, if amount is
+   *         not valid
+   */
+  private static long toValidCents(double amount) {
+    return InputValidation.isValidAmount(amount) ? Money.toCents(amount) : 0;
+  }
+
+  /**
+   * This method creates a transaction object from an already validated
+   * amount and category code
+   * 
+   * @param cents        - set the amount field of a transaction, in cents
+   * @param categoryCode - set the category code of a transaction
+   * @param time         - set the time field of a transaction, in epoch
+   *                     milliseconds
+   * @param categories   - registry the category code refers to
+   */
+  private Transaction(long cents, int categoryCode, long time, CategoryRegistry categories) {
+    this.cents = cents;
+    this.categoryCode = categoryCode;
+    this.time = time;
+    this.categories = categories;
+  }
+
+  /**
+   * This method creates a transaction object from an amount in cents, e.g. a
+   * row read back from a storage backend
+   * 
+   * @param cents    - set the amount field of a transaction, in cents
+   * @param category - set the category field of a transaction
+   * @param time     - set the time field of a transaction, in epoch
+   *                 milliseconds
+   * @return the transaction
+   * @throws IllegalArgumentException if amount or category is invalid
+   */
+  public static Transaction ofCents(long cents, String category, long time) {
+    return new Transaction(category, cents, time, CategoryRegistry.BUILT_IN);
+  }
+
+  /**
+   * This method creates a transaction object from an amount in cents and a
+   * category of a registry, e.g. a custom category
+   * 
+   * @param cents      - set the amount field of a transaction, in cents
+   * @param category   - set the category field of a transaction
+   * @param time       - set the time field of a transaction, in epoch
+   *                   milliseconds
+   * @param categories - registry the category is looked up in
+   * @return the transaction
+   * @throws IllegalArgumentException if amount or category is invalid
+   */
+  public static Transaction ofCents(long cents, String category, long time, CategoryRegistry categories) {
+    return new Transaction(category, cents, time, categories);
+  }
+
+  /**
+   * This method creates a transaction object from an amount in cents and a
+   * category code, e.g. a row read back from a storage backend, without
+   * looking up the category name
+   * 
+   * @param cents        - set the amount field of a transaction, in cents
+   * @param categoryCode - set the category code of a transaction, one of the
+   *                     built-in categories
+   * @param time         - set the time field of a transaction, in epoch
+   *                     milliseconds
+   * @return the transaction
+   * @throws IllegalArgumentException if amount or category code is invalid
+   */
+  public static Transaction ofCode(long cents, int categoryCode, long time) {
+    return ofCode(cents, categoryCode, time, CategoryRegistry.BUILT_IN);
+  }
+
+  /**
+   * This method creates a transaction object from an amount in cents and a
+   * category code of a registry, e.g. a row read back from a store with its
+   * own registry
+   * 
+   * @param cents        - set the amount field of a transaction, in cents
+   * @param categoryCode - set the category code of a transaction
+   * @param time         - set the time field of a transaction, in epoch
+   *                     milliseconds
+   * @param categories   - registry the category code refers to
+   * @return the transaction
+   * @throws IllegalArgumentException if amount or category code is invalid
+   */
+  public static Transaction ofCode(long cents, int categoryCode, long time, CategoryRegistry categories) {
+    if (InputValidation.isValidCents(cents) == false) {
+      throw new IllegalArgumentException("The amount is not valid.");
+    }
+    if (categoryCode < 0 || categoryCode >= categories.size()) {
+      throw new IllegalArgumentException("The category is not valid.");
+    }
+    return new Transaction(cents, categoryCode, time, categories);
   }
 
   /**
@@ -61,7 +244,16 @@ public class Transaction {
    * @return transaction amount
    */
   public double getAmount() {
-    return amount;
+    return Money.toAmount(cents);
+  }
+
+  /**
+   * This method returns the transaction amount in cents
+   * 
+   * @return transaction amount in cents
+   */
+  public long getCents() {
+    return cents;
   }
 
   // setter method is removed because we want to make the Transaction immutable
@@ -75,7 +267,25 @@ public class Transaction {
    * @return transaction category
    */
   public String getCategory() {
-    return category;
+    return categories.getName(categoryCode);
+  }
+
+  /**
+   * This method returns the category code of the transaction category
+   * 
+   * @return category code
+   */
+  public int getCategoryCode() {
+    return categoryCode;
+  }
+
+  /**
+   * This method returns the registry the category code refers to
+   * 
+   * @return the category registry
+   */
+  public CategoryRegistry getCategories() {
+    return categories;
   }
 
   // public void setCategory(String category) {
@@ -83,22 +293,143 @@ public class Transaction {
   // }
 
   /**
-   * This method returns the transaction timestamp
+   * This method returns the transaction timestamp in the date format. It is
+   * formatted when it is asked for.
    * 
    * @return transaction timestamp
    */
   public String getTimestamp() {
-    return timestamp;
+    return formatTimestamp(time);
+  }
+
+  /**
+   * This method returns the transaction timestamp in epoch milliseconds
+   * 
+   * @return transaction time
+   */
+  public long getTime() {
+    return time;
+  }
+
+  /**
+   * This method converts a timestamp in the date format into epoch
+   * milliseconds. It is thread-safe.
+   * 
+   * @param timestamp - timestamp in the date format
+   * @return epoch milliseconds
+   * @throws IllegalArgumentException if the timestamp cannot be parsed
+   */
+  public static long parseTimestamp(String timestamp) {
+    if (timestamp == null) {
+      throw new IllegalArgumentException("The timestamp is not valid.");
+    }
+    try {
+      return LocalDateTime.parse(timestamp, TIMESTAMP_FORMAT).atZone(TIMESTAMP_FORMAT.getZone()).toInstant()
+          .toEpochMilli();
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("The timestamp is not valid.", e);
+    }
   }
 
-  // private helper method to generate timestamp
   /**
-   * This method generates timestamp of a transaction
+   * This method formats epoch milliseconds in the date format. It is
+   * thread-safe and formats each minute only once while it is cached.
    * 
-   * @return date in simple date format
+   * @param time - epoch milliseconds
+   * @return timestamp in the date format
    */
-  private String generateTimestamp() {
-    return dateFormatter.format(new Date());
+  public static String formatTimestamp(long time) {
+    long minute = Math.floorDiv(time, 60_000L);
+    int slot = (int) (minute & (TIMESTAMP_CACHE_SIZE - 1));
+    FormattedMinute cached = TIMESTAMP_CACHE[slot];
+    if (cached == null || cached.minute != minute) {
+      cached = new FormattedMinute(minute, TIMESTAMP_FORMAT.format(Instant.ofEpochMilli(time)));
+      TIMESTAMP_CACHE[slot] = cached;
+    }
+    return cached.text;
+  }
+
+  /**
+   * This method replaces the clock new transactions read their time from,
+   * e.g. with a fixed clock in tests
+   * 
+   * @param transactionClock - the clock
+   * @throws IllegalArgumentException if the clock is null
+   */
+  public static void setClock(Clock transactionClock) {
+    if (transactionClock == null) {
+      throw new IllegalArgumentException("The clock must be non-null.");
+    }
+    clock = transactionClock;
+  }
+
+  /**
+   * This method returns the clock new transactions read their time from. A
+   * batch of transactions can read it once and share the time.
+   * 
+   * @return the clock
+   */
+  public static Clock getClock() {
+    return clock;
+  }
+
+  /**
+   * Two transactions are equal if they have the same amount, category and
+   * time. Categories are compared by category code, i.e. ignoring case,
+   * the same way InputValidation accepts them.
+   * 
+   * @param o - the object to compare with
+   * @return whether the transactions are equal
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Transaction)) {
+      return false;
+    }
+    Transaction other = (Transaction) o;
+    return cents == other.cents
+        && categoryCode == other.categoryCode
+        && time == other.time;
+  }
+
+  /**
+   * This method returns a hash code consistent with equals
+   * 
+   * @return hash code
+   */
+  @Override
+  public int hashCode() {
+    return Objects.hash(cents, categoryCode, time);
+  }
+
+  /**
+   * A minute and its formatted timestamp
+   */
+  private static final class FormattedMinute {
+
+    /**
+     * Minutes since the epoch
+     */
+    final long minute;
+
+    /**
+     * The formatted timestamp
+     */
+    final String text;
+
+    /**
+     * Initialize the cache entry
+     * 
+     * @param minute - minutes since the epoch
+     * @param text   - the formatted timestamp
+     */
+    FormattedMinute(long minute, String text) {
+      this.minute = minute;
+      this.text = text;
+    }
   }
 
 }
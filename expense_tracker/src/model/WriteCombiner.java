@@ -0,0 +1,252 @@
+package model;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import metrics.Counter;
+import metrics.Metrics;
+
+/**
+ * WriteCombiner runs the changes of many threads one at a time through flat
+ * combining.
+ *
+ * A thread queues its change on a lock-free queue and then either becomes the
+ * combiner, which applies every queued change in order, or waits until a
+ * combiner has applied its change. After each pass the combiner runs the
+ * publish action once, so a pass of many changes costs one publication, e.g.
+ * one snapshot of the model.
+ *
+ * A change takes effect while its thread waits in execute, and is published
+ * before execute returns, so changes are linearizable.
+ *
+ * A change may itself call execute, e.g. from a filter or a listener which
+ * writes. The nested change runs inline on the combiner thread, as part of
+ * the change which made it, and is published with it. The publish action
+ * must not make changes.
+ *
+ * A change which throws is not published any differently, and its exception
+ * is thrown from its execute call. If the publish action throws, the changes
+ * of the pass stay applied and their execute calls return normally. The
+ * failure is counted and thrown to the next change instead of running it, so
+ * that caller learns the earlier changes may not be published. The publish
+ * action should therefore publish what it can before it throws.
+ */
+class WriteCombiner {
+
+  /**
+   * Most changes a combiner applies before publishing
+   */
+  private static final int MAX_PASS = 1024;
+
+  /**
+   * How long a waiting thread parks before it checks whether there is no
+   * combiner any more
+   */
+  private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+  /**
+   * Number of combining passes, each of which publishes once
+   */
+  private static final Counter PASSES = Metrics.counter("model.writes.passes");
+
+  /**
+   * Number of changes applied by the passes
+   */
+  private static final Counter CHANGES = Metrics.counter("model.writes.changes");
+
+  /**
+   * Number of passes whose publish action failed
+   */
+  private static final Counter PUBLISH_FAILURES = Metrics.counter("model.writes.publishFailures");
+
+  /**
+   * Changes waiting for a combiner, in arrival order
+   */
+  private final ConcurrentLinkedQueue<Change> queue = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Held by the combiner
+   */
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /**
+   * Run by the combiner after each pass
+   */
+  private final Runnable publish;
+
+  /**
+   * The changes of the current pass, only used by the combiner
+   */
+  private final Change[] pass = new Change[MAX_PASS];
+
+  /**
+   * Whether the combiner is running the publish action. Only the combiner
+   * reads and writes it.
+   */
+  private boolean publishing;
+
+  /**
+   * What the publish action of an earlier pass threw, until it is reported
+   * to the next change. Only the combiner reads and writes it.
+   */
+  private Throwable publishFailure;
+
+  /**
+   * Initialize the combiner
+   *
+   * @param publish - run by the combiner after each pass of changes
+   */
+  WriteCombiner(Runnable publish) {
+    this.publish = publish;
+  }
+
+  /**
+   * This method applies a change and returns once it is published
+   *
+   * @param action - the change
+   * @throws RuntimeException      the exception the change threw, or the
+   *                               exception the publish action of an earlier
+   *                               pass threw, in which case the change was not
+   *                               applied
+   * @throws IllegalStateException if the publish action makes a change
+   */
+  void execute(Runnable action) {
+    if (lock.isHeldByCurrentThread()) {
+      // Combining again would reuse the pass of the change running now
+      if (publishing) {
+        throw new IllegalStateException("A change cannot be made while changes are published.");
+      }
+      action.run();
+      return;
+    }
+    Change change = new Change(action, Thread.currentThread());
+    queue.add(change);
+    while (!change.done) {
+      if (lock.tryLock()) {
+        try {
+          combine();
+        } finally {
+          lock.unlock();
+        }
+      } else {
+        LockSupport.parkNanos(this, PARK_NANOS);
+      }
+    }
+    if (change.failure instanceof RuntimeException) {
+      throw (RuntimeException) change.failure;
+    }
+    if (change.failure instanceof Error) {
+      throw (Error) change.failure;
+    }
+  }
+
+  /**
+   * This method runs an action between changes, like execute, and returns
+   * its result
+   *
+   * @param action - the action
+   * @return the result of the action
+   * @throws RuntimeException      the exception the action threw
+   * @throws IllegalStateException if the publish action runs it
+   */
+  <T> T compute(Supplier<T> action) {
+    Result<T> result = new Result<>();
+    execute(() -> result.value = action.get());
+    return result.value;
+  }
+
+  /**
+   * This method applies the queued changes and publishes them. Only the
+   * thread holding the lock calls it.
+   */
+  private void combine() {
+    int count = 0;
+    Change change;
+    while (count < MAX_PASS && (change = queue.poll()) != null) {
+      if (publishFailure != null) {
+        change.failure = publishFailure;
+        publishFailure = null;
+      } else {
+        try {
+          change.action.run();
+        } catch (RuntimeException | Error e) {
+          change.failure = e;
+        }
+      }
+      pass[count++] = change;
+    }
+    if (count == 0) {
+      return;
+    }
+    PASSES.increment();
+    CHANGES.add(count);
+    publishing = true;
+    try {
+      publish.run();
+    } catch (RuntimeException | Error e) {
+      // The changes are applied, so they succeed and the next one fails
+      PUBLISH_FAILURES.increment();
+      publishFailure = e;
+    } finally {
+      publishing = false;
+    }
+    for (int i = 0; i < count; i++) {
+      Change applied = pass[i];
+      pass[i] = null;
+      applied.done = true;
+      LockSupport.unpark(applied.thread);
+    }
+  }
+
+  /**
+   * The result of an action run by compute
+   */
+  private static final class Result<T> {
+
+    /**
+     * The result, written by the action before execute returns
+     */
+    T value;
+  }
+
+  /**
+   * A queued change
+   */
+  private static final class Change {
+
+    /**
+     * The change
+     */
+    final Runnable action;
+
+    /**
+     * The thread waiting for the change
+     */
+    final Thread thread;
+
+    /**
+     * What the change threw, written before done
+     */
+    Throwable failure;
+
+    /**
+     * Whether the change is applied and published
+     */
+    volatile boolean done;
+
+    /**
+     * Initialize the change
+     *
+     * @param action - the change
+     * @param thread - the thread waiting for the change
+     */
+    Change(Runnable action, Thread thread) {
+      this.action = action;
+      this.thread = thread;
+    }
+  }
+
+}
@@ -0,0 +1,619 @@
+package server;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import controller.ExpenseEngine;
+import controller.TransactionImporter;
+import metrics.Metrics;
+import metrics.Timer;
+import model.Money;
+import model.Selection;
+import model.Transaction;
+import model.Aggregate.Aggregate;
+import model.Aggregate.Aggregates;
+import model.Aggregate.Bucket;
+import model.Aggregate.Granularity;
+import model.Filter.AmountFilter;
+import model.Filter.AmountRangeFilter;
+import model.Filter.AndFilter;
+import model.Filter.CategoryFilter;
+import model.Filter.DateRangeFilter;
+import model.Filter.TransactionFilter;
+import model.Storage.TransactionSnapshot;
+
+/**
+ * ExpenseServer answers HTTP requests for the transactions of an
+ * ExpenseEngine with JSON, so other local processes can query and change the
+ * ledger while the app runs. Changes made through the server are shown by the
+ * view like any other change of the engine.
+ *
+ * <pre>
+ * GET    /transactions?category=food&amp;amount=12.5&amp;min=1&amp;max=99&amp;from=ms&amp;to=ms
+ * POST   /transactions          {"amount": 12.50, "category": "food"}
+ * DELETE /transactions/{id}
+ * DELETE /transactions?category=food&amp;min=1&amp;max=99&amp;from=ms&amp;to=ms
+ * GET    /categories
+ * POST   /categories            {"category": "rent"}
+ * GET    /aggregates
+ * GET    /spending?category=food&amp;from=ms&amp;to=ms
+ * GET    /rollup?granularity=DAY&amp;category=food&amp;from=ms&amp;to=ms
+ * </pre>
+ *
+ * All query parameters are optional except granularity. Transactions are
+ * streamed from an immutable snapshot as they are written, so listing
+ * millions of rows neither buffers the response nor blocks other requests.
+ */
+public class ExpenseServer {
+
+  /**
+   * System property with the port to serve on, e.g.
+   * -Dexpensetracker.server.port=8080
+   */
+  public static final String PORT_PROPERTY = "expensetracker.server.port";
+
+  /**
+   * Content type of every response
+   */
+  private static final String JSON_TYPE = "application/json; charset=utf-8";
+
+  /**
+   * Number of connections waiting to be accepted
+   */
+  private static final int BACKLOG = 1024;
+
+  /**
+   * Size of the response buffer, the response is sent in chunks of this size
+   */
+  private static final int BUFFER_SIZE = 16 * 1024;
+
+  /**
+   * Largest request body accepted
+   */
+  private static final int MAX_BODY = 64 * 1024;
+
+  /**
+   * Latency of answering a request
+   */
+  private static final Timer REQUEST_TIMER = Metrics.timer("server.request");
+
+  /**
+   * The engine serving the requests
+   */
+  private final ExpenseEngine engine;
+
+  /**
+   * The HTTP server of the JDK
+   */
+  private final HttpServer http;
+
+  /**
+   * Runs the requests
+   */
+  private final ExecutorService executor;
+
+  /**
+   * Constructor to bind the server to an address. It does not answer requests
+   * until it is started.
+   *
+   * @param engine  - the engine serving the requests
+   * @param address - the address to listen on, port 0 for any free port
+   * @throws IOException if the address cannot be bound
+   */
+  public ExpenseServer(ExpenseEngine engine, InetSocketAddress address) throws IOException {
+    this.engine = engine;
+    this.http = HttpServer.create(address, BACKLOG);
+    this.executor = newExecutor();
+    http.setExecutor(executor);
+    http.createContext("/transactions", handler(this::transactions));
+    http.createContext("/categories", handler(this::categories));
+    http.createContext("/aggregates", handler(this::aggregates));
+    http.createContext("/spending", handler(this::spending));
+    http.createContext("/rollup", handler(this::rollup));
+  }
+
+  /**
+   * This method starts answering requests
+   */
+  public void start() {
+    http.start();
+  }
+
+  /**
+   * This method stops the server. Requests which are being answered are
+   * finished first.
+   */
+  public void stop() {
+    http.stop(0);
+    executor.shutdown();
+  }
+
+  /**
+   * This method returns the address the server listens on
+   *
+   * @return the address, with the actual port if it was bound to port 0
+   */
+  public InetSocketAddress getAddress() {
+    return http.getAddress();
+  }
+
+  /**
+   * This method creates the threads running the requests. A request mostly
+   * waits for the network, so virtual threads are used where the runtime has
+   * them (Java 21); otherwise a fixed pool of daemon threads.
+   *
+   * @return the executor
+   */
+  private static ExecutorService newExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+      return Executors.newFixedThreadPool(threads, runnable -> {
+        Thread thread = new Thread(runnable, "expense-tracker-server");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  /**
+   * This method wraps an endpoint, turning its exceptions into error
+   * responses and timing it
+   *
+   * @param endpoint - the endpoint
+   * @return the handler for the HTTP server
+   */
+  private static HttpHandler handler(HttpHandler endpoint) {
+    return exchange -> {
+      long start = Metrics.start();
+      try {
+        endpoint.handle(exchange);
+      } catch (IndexOutOfBoundsException | NoSuchElementException e) {
+        error(exchange, 404, e.getMessage());
+      } catch (IllegalArgumentException e) {
+        error(exchange, 400, e.getMessage());
+      } catch (IOException e) {
+        // The client went away
+      } catch (RuntimeException e) {
+        error(exchange, 500, e.toString());
+      } finally {
+        exchange.close();
+        REQUEST_TIMER.stop(start);
+      }
+    };
+  }
+
+  /**
+   * This method answers /transactions and /transactions/{id}
+   *
+   * @param exchange - the request
+   * @throws IOException if the response cannot be sent
+   */
+  private void transactions(HttpExchange exchange) throws IOException {
+    String path = exchange.getRequestURI().getPath();
+    String method = exchange.getRequestMethod();
+    if (path.equals("/transactions") || path.equals("/transactions/")) {
+      if (method.equals("GET")) {
+        listTransactions(exchange);
+      } else if (method.equals("POST")) {
+        addTransaction(exchange);
+      } else if (method.equals("DELETE")) {
+        removeTransactions(exchange);
+      } else {
+        error(exchange, 405, "Use GET, POST or DELETE");
+      }
+    } else if (method.equals("DELETE")) {
+      // Ids, unlike rows, do not shift when another client deletes
+      long id = Long.parseLong(path.substring("/transactions/".length()));
+      Transaction t = engine.deleteTransaction(id);
+      respond(exchange, 200, json -> transaction(json, t));
+    } else {
+      error(exchange, 405, "Use DELETE");
+    }
+  }
+
+  /**
+   * This method removes every transaction which passes the filter of the
+   * query as one change. A filter is required, so a bare DELETE does not
+   * empty the ledger.
+   *
+   * @param exchange - the request
+   * @throws IOException if the response cannot be sent
+   */
+  private void removeTransactions(HttpExchange exchange) throws IOException {
+    TransactionFilter filter = toFilter(parseQuery(exchange));
+    if (filter == null) {
+      throw new IllegalArgumentException("A filter is required");
+    }
+    int removed = engine.removeWhere(filter);
+    respond(exchange, 200, json -> {
+      json.beginObject();
+      json.name("removed").value(removed);
+      json.endObject();
+    });
+  }
+
+  /**
+   * This method streams the transactions which pass the filter of the query
+   *
+   * @param exchange - the request
+   * @throws IOException if the response cannot be sent
+   */
+  private void listTransactions(HttpExchange exchange) throws IOException {
+    TransactionFilter filter = toFilter(parseQuery(exchange));
+    TransactionSnapshot transactions;
+    int[] rows;
+    if (filter == null) {
+      transactions = engine.getSnapshot();
+      rows = null;
+    } else {
+      Selection selection = engine.query(filter);
+      transactions = selection.getTransactions();
+      rows = selection.getRows();
+    }
+    int count = rows == null ? transactions.size() : rows.length;
+    respond(exchange, 200, json -> {
+      json.beginObject();
+      json.name("version").value(transactions.getVersion());
+      json.name("count").value(count);
+      json.name("transactions").beginArray();
+      for (int i = 0; i < count; i++) {
+        int row = rows == null ? i : rows[i];
+        // Read the columns of the snapshot, no Transaction is created
+        json.beginObject();
+        json.name("id").value(transactions.getId(row));
+        json.name("row").value(row);
+        json.name("amount").amount(transactions.getCents(row));
+        json.name("category").value(transactions.getCategory(row));
+        json.name("timestamp").value(transactions.getTimestamp(row));
+        json.endObject();
+      }
+      json.endArray();
+      json.endObject();
+    });
+  }
+
+  /**
+   * This method adds the transaction in the body of the request
+   *
+   * @param exchange - the request
+   * @throws IOException if the body cannot be read or the response sent
+   */
+  private void addTransaction(HttpExchange exchange) throws IOException {
+    String[] fields = TransactionImporter.parseJsonLine(readBody(exchange).trim());
+    if (fields[0] == null || fields[1] == null) {
+      throw new IllegalArgumentException("amount and category are required");
+    }
+    long cents = Money.parseCents(fields[0]);
+    Transaction t = engine.addTransaction(Money.toAmount(cents), fields[1]);
+    if (t == null) {
+      throw new IllegalArgumentException("Invalid amount or category entered");
+    }
+    respond(exchange, 201, json -> transaction(json, t));
+  }
+
+  /**
+   * This method lists the categories with their codes, or registers a custom
+   * category
+   *
+   * @param exchange - the request
+   * @throws IOException if the category cannot be saved or the response sent
+   */
+  private void categories(HttpExchange exchange) throws IOException {
+    String method = exchange.getRequestMethod();
+    if (method.equals("GET")) {
+      List<String> categories = engine.getCategories();
+      respond(exchange, 200, json -> {
+        json.beginObject();
+        json.name("categories").beginArray();
+        for (int code = 0; code < categories.size(); code++) {
+          json.beginObject();
+          json.name("code").value(code);
+          json.name("name").value(categories.get(code));
+          json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+      });
+    } else if (method.equals("POST")) {
+      String[] fields = TransactionImporter.parseJsonLine(readBody(exchange).trim());
+      if (fields[1] == null) {
+        throw new IllegalArgumentException("category is required");
+      }
+      int code;
+      try {
+        code = engine.addCategory(fields[1]);
+      } catch (IOException e) {
+        // Not a failure of the client connection
+        throw new UncheckedIOException(e);
+      }
+      String name = engine.getCategories().get(code);
+      respond(exchange, 201, json -> {
+        json.beginObject();
+        json.name("code").value(code);
+        json.name("name").value(name);
+        json.endObject();
+      });
+    } else {
+      error(exchange, 405, "Use GET or POST");
+    }
+  }
+
+  /**
+   * This method answers /aggregates with the count, sum, minimum and maximum
+   * of all transactions and of every category
+   *
+   * @param exchange - the request
+   * @throws IOException if the response cannot be sent
+   */
+  private void aggregates(HttpExchange exchange) throws IOException {
+    Aggregates aggregates = engine.getAggregates();
+    respond(exchange, 200, json -> {
+      json.beginObject();
+      json.name("version").value(aggregates.getVersion());
+      json.name("total");
+      aggregate(json, aggregates.getTotal());
+      json.name("categories").beginObject();
+      List<String> categories = engine.getCategories();
+      for (int code = 0; code < categories.size(); code++) {
+        json.name(categories.get(code));
+        aggregate(json, aggregates.getCategory(code));
+      }
+      json.endObject();
+      json.endObject();
+    });
+  }
+
+  /**
+   * This method answers /spending with the spending of a time range
+   *
+   * @param exchange - the request
+   * @throws IOException if the response cannot be sent
+   */
+  private void spending(HttpExchange exchange) throws IOException {
+    Map<String, String> query = parseQuery(exchange);
+    long from = parseLong(query.get("from"), Long.MIN_VALUE);
+    long to = parseLong(query.get("to"), Long.MAX_VALUE);
+    Bucket spending = engine.getSpending(query.get("category"), from, to);
+    respond(exchange, 200, json -> {
+      json.beginObject();
+      json.name("from").value(from);
+      json.name("to").value(to);
+      json.name("count").value(spending.getCount());
+      json.name("sum").amount(spending.getSumCents());
+      json.endObject();
+    });
+  }
+
+  /**
+   * This method answers /rollup with the minutes, days or months of a time
+   * range which hold any transaction
+   *
+   * @param exchange - the request
+   * @throws IOException if the response cannot be sent
+   */
+  private void rollup(HttpExchange exchange) throws IOException {
+    Map<String, String> query = parseQuery(exchange);
+    String granularity = query.get("granularity");
+    if (granularity == null) {
+      throw new IllegalArgumentException("granularity is required");
+    }
+    List<Bucket> buckets = engine.getRollup(Granularity.valueOf(granularity.toUpperCase(Locale.ROOT)),
+        query.get("category"), parseLong(query.get("from"), Long.MIN_VALUE),
+        parseLong(query.get("to"), Long.MAX_VALUE));
+    respond(exchange, 200, json -> {
+      json.beginArray();
+      for (Bucket bucket : buckets) {
+        json.beginObject();
+        json.name("start").value(bucket.getStart());
+        json.name("end").value(bucket.getEnd());
+        json.name("count").value(bucket.getCount());
+        json.name("sum").amount(bucket.getSumCents());
+        json.endObject();
+      }
+      json.endArray();
+    });
+  }
+
+  /**
+   * This method builds the filter of a query from its category, amount, min,
+   * max, from and to parameters
+   *
+   * @param query - the query parameters
+   * @return the filter, null if the query does not filter
+   * @throws IllegalArgumentException if a parameter is not valid
+   */
+  private TransactionFilter toFilter(Map<String, String> query) {
+    List<TransactionFilter> filters = new ArrayList<>();
+    String category = query.get("category");
+    if (category != null) {
+      filters.add(new CategoryFilter(category, engine.getModel().getCategories()));
+    }
+    String amount = query.get("amount");
+    if (amount != null) {
+      filters.add(new AmountFilter(Double.parseDouble(amount)));
+    }
+    String min = query.get("min");
+    String max = query.get("max");
+    if (min != null || max != null) {
+      filters.add(new AmountRangeFilter(min == null ? 0 : Double.parseDouble(min),
+          max == null ? Double.MAX_VALUE : Double.parseDouble(max)));
+    }
+    String from = query.get("from");
+    String to = query.get("to");
+    if (from != null || to != null) {
+      filters.add(new DateRangeFilter(parseLong(from, Long.MIN_VALUE), parseLong(to, Long.MAX_VALUE)));
+    }
+    if (filters.isEmpty()) {
+      return null;
+    }
+    if (filters.size() == 1) {
+      return filters.get(0);
+    }
+    return new AndFilter(filters.toArray(new TransactionFilter[0]));
+  }
+
+  /**
+   * This method writes a transaction
+   *
+   * @param json - the response
+   * @param t    - the transaction
+   * @throws IOException if the response cannot be sent
+   */
+  private static void transaction(JsonWriter json, Transaction t) throws IOException {
+    json.beginObject();
+    json.name("amount").amount(t.getCents());
+    json.name("category").value(t.getCategory());
+    json.name("timestamp").value(t.getTimestamp());
+    json.endObject();
+  }
+
+  /**
+   * This method writes an aggregate, with null minimum and maximum if it is
+   * empty
+   *
+   * @param json      - the response
+   * @param aggregate - the aggregate
+   * @throws IOException if the response cannot be sent
+   */
+  private static void aggregate(JsonWriter json, Aggregate aggregate) throws IOException {
+    json.beginObject();
+    json.name("count").value(aggregate.getCount());
+    json.name("sum").amount(aggregate.getSumCents());
+    if (aggregate.getCount() == 0) {
+      json.name("min").value((String) null);
+      json.name("max").value((String) null);
+    } else {
+      json.name("min").amount(aggregate.getMinCents());
+      json.name("max").amount(aggregate.getMaxCents());
+    }
+    json.endObject();
+  }
+
+  /**
+   * Writes the body of a response
+   */
+  private interface Body {
+
+    /**
+     * This method writes the body
+     *
+     * @param json - the response
+     * @throws IOException if the response cannot be sent
+     */
+    void write(JsonWriter json) throws IOException;
+  }
+
+  /**
+   * This method sends a JSON response. The body is sent in chunks while it is
+   * written, its length is not known in advance.
+   *
+   * @param exchange - the request
+   * @param status   - HTTP status code
+   * @param body     - writes the body
+   * @throws IOException if the response cannot be sent
+   */
+  private static void respond(HttpExchange exchange, int status, Body body) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+    exchange.sendResponseHeaders(status, 0);
+    Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8),
+        BUFFER_SIZE);
+    body.write(new JsonWriter(out));
+    out.flush();
+  }
+
+  /**
+   * This method sends an error response, unless a response was started
+   * already
+   *
+   * @param exchange - the request
+   * @param status   - HTTP status code
+   * @param message  - the error
+   */
+  private static void error(HttpExchange exchange, int status, String message) {
+    if (exchange.getResponseCode() != -1) {
+      return;
+    }
+    try {
+      respond(exchange, status, json -> json.beginObject().name("error").value(message).endObject());
+    } catch (IOException e) {
+      // The client went away
+    }
+  }
+
+  /**
+   * This method reads the body of a request
+   *
+   * @param exchange - the request
+   * @return the body
+   * @throws IOException if it cannot be read
+   * @throws IllegalArgumentException if it is too large
+   */
+  private static String readBody(HttpExchange exchange) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    try (InputStream in = exchange.getRequestBody()) {
+      for (int read; (read = in.read(buffer)) != -1;) {
+        body.write(buffer, 0, read);
+        if (body.size() > MAX_BODY) {
+          throw new IllegalArgumentException("The request is too large");
+        }
+      }
+    }
+    return new String(body.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * This method decodes the query parameters of a request
+   *
+   * @param exchange - the request
+   * @return the parameters by name
+   */
+  private static Map<String, String> parseQuery(HttpExchange exchange) {
+    Map<String, String> parameters = new HashMap<>();
+    String query = exchange.getRequestURI().getRawQuery();
+    if (query == null || query.isEmpty()) {
+      return parameters;
+    }
+    for (String parameter : query.split("&")) {
+      int equals = parameter.indexOf('=');
+      String name = equals == -1 ? parameter : parameter.substring(0, equals);
+      String value = equals == -1 ? "" : parameter.substring(equals + 1);
+      parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+    }
+    return parameters;
+  }
+
+  /**
+   * This method parses an optional whole number
+   *
+   * @param value        - the number, or null
+   * @param defaultValue - the number if it is null
+   * @return the number
+   * @throws IllegalArgumentException if it is not a number
+   */
+  private static long parseLong(String value, long defaultValue) {
+    return value == null ? defaultValue : Long.parseLong(value);
+  }
+}
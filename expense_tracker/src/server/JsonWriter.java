@@ -0,0 +1,220 @@
+package server;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import model.Money;
+
+/**
+ * JsonWriter writes a JSON document to a stream as it is produced, so large
+ * results are never held in memory. It adds the commas between values; the
+ * caller is responsible for the nesting.
+ */
+class JsonWriter {
+
+  /**
+   * Deepest nesting of objects and arrays
+   */
+  private static final int MAX_DEPTH = 32;
+
+  /**
+   * The stream to write to
+   */
+  private final Writer out;
+
+  /**
+   * Whether the object or array of every nesting level has a value already
+   */
+  private final boolean[] hasValue = new boolean[MAX_DEPTH];
+
+  /**
+   * Current nesting level
+   */
+  private int depth;
+
+  /**
+   * Whether a name was just written, so the next value needs no comma
+   */
+  private boolean afterName;
+
+  /**
+   * Initialize the writer
+   *
+   * @param out - the stream to write to
+   */
+  JsonWriter(Writer out) {
+    this.out = out;
+  }
+
+  /**
+   * This method starts an object
+   *
+   * @return this writer
+   * @throws IOException if the stream cannot be written
+   */
+  JsonWriter beginObject() throws IOException {
+    return begin('{');
+  }
+
+  /**
+   * This method ends an object
+   *
+   * @return this writer
+   * @throws IOException if the stream cannot be written
+   */
+  JsonWriter endObject() throws IOException {
+    return end('}');
+  }
+
+  /**
+   * This method starts an array
+   *
+   * @return this writer
+   * @throws IOException if the stream cannot be written
+   */
+  JsonWriter beginArray() throws IOException {
+    return begin('[');
+  }
+
+  /**
+   * This method ends an array
+   *
+   * @return this writer
+   * @throws IOException if the stream cannot be written
+   */
+  JsonWriter endArray() throws IOException {
+    return end(']');
+  }
+
+  /**
+   * This method writes the name of the next value of an object
+   *
+   * @param name - the name
+   * @return this writer
+   * @throws IOException if the stream cannot be written
+   */
+  JsonWriter name(String name) throws IOException {
+    separate();
+    string(name);
+    out.write(':');
+    afterName = true;
+    return this;
+  }
+
+  /**
+   * This method writes a string value, or null
+   *
+   * @param value - the string
+   * @return this writer
+   * @throws IOException if the stream cannot be written
+   */
+  JsonWriter value(String value) throws IOException {
+    separate();
+    if (value == null) {
+      out.write("null");
+    } else {
+      string(value);
+    }
+    return this;
+  }
+
+  /**
+   * This method writes a whole number
+   *
+   * @param value - the number
+   * @return this writer
+   * @throws IOException if the stream cannot be written
+   */
+  JsonWriter value(long value) throws IOException {
+    separate();
+    out.write(Long.toString(value));
+    return this;
+  }
+
+  /**
+   * This method writes an amount of money as a number with two decimals
+   *
+   * @param cents - the amount in cents
+   * @return this writer
+   * @throws IOException if the stream cannot be written
+   */
+  JsonWriter amount(long cents) throws IOException {
+    separate();
+    out.write(Money.format(cents));
+    return this;
+  }
+
+  /**
+   * This method writes the comma before a value if it is not the first one
+   *
+   * @throws IOException if the stream cannot be written
+   */
+  private void separate() throws IOException {
+    if (afterName) {
+      afterName = false;
+      return;
+    }
+    if (depth > 0) {
+      if (hasValue[depth - 1]) {
+        out.write(',');
+      }
+      hasValue[depth - 1] = true;
+    }
+  }
+
+  /**
+   * This method starts an object or array
+   *
+   * @param bracket - the opening bracket
+   * @return this writer
+   * @throws IOException if the stream cannot be written
+   */
+  private JsonWriter begin(char bracket) throws IOException {
+    separate();
+    if (depth == MAX_DEPTH) {
+      throw new IllegalStateException("JSON nested too deeply");
+    }
+    out.write(bracket);
+    hasValue[depth++] = false;
+    return this;
+  }
+
+  /**
+   * This method ends an object or array
+   *
+   * @param bracket - the closing bracket
+   * @return this writer
+   * @throws IOException if the stream cannot be written
+   */
+  private JsonWriter end(char bracket) throws IOException {
+    depth--;
+    out.write(bracket);
+    return this;
+  }
+
+  /**
+   * This method writes a quoted string, escaping the characters JSON requires
+   *
+   * @param value - the string
+   * @throws IOException if the stream cannot be written
+   */
+  private void string(String value) throws IOException {
+    out.write('"');
+    int from = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\' || c < 0x20) {
+        out.write(value, from, i - from);
+        if (c == '"' || c == '\\') {
+          out.write('\\');
+          out.write(c);
+        } else {
+          out.write(String.format("\\u%04x", (int) c));
+        }
+        from = i + 1;
+      }
+    }
+    out.write(value, from, value.length() - from);
+    out.write('"');
+  }
+}
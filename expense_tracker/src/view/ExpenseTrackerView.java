@@ -1,16 +1,13 @@
 package view;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 
 import java.awt.*;
 import java.awt.event.ActionListener;
 import java.text.NumberFormat;
 
-import model.Transaction;
-
-import java.util.List;
+import model.Index.RowBitmap;
+import model.Storage.TransactionSnapshot;
 
 /**
  * View defines all the texts, labels, buttons, table models among other UI elements.
@@ -32,6 +29,16 @@ public class ExpenseTrackerView extends JFrame {
    */
   private JButton deleteTransactionBtn;
 
+  /**
+   * Import transactions button
+   */
+  private JButton importTransactionsBtn;
+
+  /**
+   * Add category button, registers a custom category
+   */
+  private JButton addCategoryBtn;
+
   /**
    * Amount text field for a transaction
    */
@@ -42,7 +49,15 @@ public class ExpenseTrackerView extends JFrame {
    */
   private JTextField categoryField;
 
-  private DefaultTableModel model;
+  /**
+   * Table model backed by the transactions snapshot
+   */
+  private TransactionTableModel model;
+
+  /**
+   * Paints the highlighted rows of the table
+   */
+  private HighlightRenderer highlighter;
 
   // private JTextField dateFilterField;
 
@@ -74,12 +89,13 @@ public class ExpenseTrackerView extends JFrame {
     setTitle("Expense Tracker"); // Set title
     setSize(600, 400); // Make GUI larger
 
-    String[] columnNames = { "serial", "Amount", "Category", "Date" };
-    this.model = new DefaultTableModel(columnNames, 0);
+    this.model = new TransactionTableModel();
 
     // Create table
     transactionsTable = new JTable(model);
     transactionsTable.setDefaultEditor(Object.class, null);
+    highlighter = new HighlightRenderer();
+    transactionsTable.setDefaultRenderer(Object.class, highlighter);
 
     addTransactionBtn = new JButton("Add Transaction");
 
@@ -104,6 +120,9 @@ public class ExpenseTrackerView extends JFrame {
     deleteTransactionBtn = new JButton("Delete Transaction");
     deleteTransactionBtn.setEnabled(false);
 
+    importTransactionsBtn = new JButton("Import Transactions");
+    addCategoryBtn = new JButton("Add Category");
+
     // Layout components
     JPanel inputPanel = new JPanel();
     inputPanel.add(amountLabel);
@@ -116,6 +135,8 @@ public class ExpenseTrackerView extends JFrame {
     JPanel buttonPanel = new JPanel();
     buttonPanel.add(amountFilterBtn);
     buttonPanel.add(categoryFilterBtn);
+    buttonPanel.add(importTransactionsBtn);
+    buttonPanel.add(addCategoryBtn);
 
     // Add panels to frame
     add(inputPanel, BorderLayout.NORTH);
@@ -133,20 +154,31 @@ public class ExpenseTrackerView extends JFrame {
    * 
    * @return table model
    */
-  public DefaultTableModel getTableModel() {
+  public TransactionTableModel getTableModel() {
     return model;
   }
 
   /**
-   * This method calls the removeRow of the model to delete the selected
-   * transaction
+   * This method adds the transactions appended to the snapshot since the last
+   * update to the table
+   * 
+   * @param transactions - snapshot of the transactions including the new ones
+   * @param totalCost    - total amount of the snapshot, shown in the total row
+   */
+  public void addTableRow(TransactionSnapshot transactions, double totalCost) {
+    model.transactionAdded(transactions, totalCost);
+  }
+
+  /**
+   * This method calls the transactionRemoved of the model to delete the
+   * selected transaction
    * 
-   * @param selectedRow - Row index. The row to be removed from the table
-   *                    This method removes the selected row from the transactions
-   *                    table
+   * @param transactions - snapshot of the transactions without the removed one
+   * @param selectedRow  - Row index. The row to be removed from the table
+   * @param totalCost    - total amount of the snapshot, shown in the total row
    */
-  public void removeTableRow(int selectedRow) {
-    model.removeRow(selectedRow);
+  public void removeTableRow(TransactionSnapshot transactions, int selectedRow, double totalCost) {
+    model.transactionRemoved(transactions, selectedRow, totalCost);
   }
 
   /**
@@ -247,33 +279,15 @@ public class ExpenseTrackerView extends JFrame {
   /**
    * This method refreshes the table in the view to reflect the latest changes
    * 
-   * @param transactions - list of transactions
-   *                     This method refreshes the transactions Jtable to reflect
-   *                     the latest changes in the data model
+   * @param transactions - snapshot of the transactions
+   *                     This method points the transactions Jtable at the
+   *                     latest snapshot of the data model. Rows are read from
+   *                     the snapshot when they are painted.
    *                     It updates the row count, total amount.
+   * @param totalCost    - total amount of the snapshot, shown in the total row
    */
-  public void refreshTable(List<Transaction> transactions) {
-    // Clear existing rows
-    model.setRowCount(0);
-    // Get row count
-    int rowNum = model.getRowCount();
-    double totalCost = 0;
-    // Calculate total cost
-    for (Transaction t : transactions) {
-      totalCost += t.getAmount();
-    }
-
-    // Add rows from transactions list
-    for (Transaction t : transactions) {
-      model.addRow(new Object[] { rowNum += 1, t.getAmount(), t.getCategory(), t.getTimestamp() });
-    }
-    // Add total row
-    Object[] totalRow = { "Total", null, null, totalCost };
-    model.addRow(totalRow);
-
-    // Fire table update
-    transactionsTable.updateUI();
-
+  public void refreshTable(TransactionSnapshot transactions, double totalCost) {
+    model.setTransactions(transactions, totalCost);
   }
 
   /**
@@ -294,29 +308,53 @@ public class ExpenseTrackerView extends JFrame {
     return deleteTransactionBtn;
   }
 
+  /**
+   * This method returns a reference to the import transactions button
+   *
+   * @return the reference to the import transactions button
+   */
+  public JButton getImportTransactionsBtn() {
+    return importTransactionsBtn;
+  }
+
+  /**
+   * This method returns a reference to the add category button
+   *
+   * @return the reference to the add category button
+   */
+  public JButton getAddCategoryBtn() {
+    return addCategoryBtn;
+  }
+
+  /**
+   * This method displays the dialog box to accept a new category
+   *
+   * @return the entered category, null if the dialog was cancelled
+   */
+  public String getNewCategoryInput() {
+    return JOptionPane.showInputDialog(this, "Enter New Category:");
+  }
+
   /**
    * This method highlights the transactions which passes the filter check
    * 
    * @param rowIndexes the row indexes of the transactions list
    */
-  public void highlightRows(List<Integer> rowIndexes) {
-    // The row indices are being used as hashcodes for the transactions.
+  public void highlightRows(RowBitmap rowIndexes) {
     // The row index directly maps to the the transaction index in the list.
-    transactionsTable.setDefaultRenderer(Object.class, new DefaultTableCellRenderer() {
-      @Override
-      public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
-          boolean hasFocus, int row, int column) {
-        Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
-        if (rowIndexes.contains(row)) {
-          c.setBackground(new Color(173, 255, 168)); // Light green
-        } else {
-          c.setBackground(table.getBackground());
-        }
-        return c;
-      }
-    });
-
-    transactionsTable.repaint();
+    highlightRows(HighlightLayer.FILTER, rowIndexes);
+  }
+
+  /**
+   * This method replaces the rows of a highlight layer. Only the visible rows
+   * whose highlight changed are repainted.
+   *
+   * @param layer      the highlight layer
+   * @param rowIndexes the row indexes of the transactions list, null to clear
+   *                   the layer
+   */
+  public void highlightRows(HighlightLayer layer, RowBitmap rowIndexes) {
+    highlighter.setLayer(transactionsTable, layer, rowIndexes);
   }
 
 }
@@ -0,0 +1,49 @@
+package view;
+
+import java.awt.Color;
+
+/**
+ * HighlightLayer is a set of rows of the transactions table which are shown
+ * in a color, e.g. the rows which pass a filter. A row can be in several
+ * layers; it is shown in the color of the first of them in declaration order.
+ */
+public enum HighlightLayer {
+
+  /**
+   * Rows picked by the user or a query, other than the table selection
+   */
+  SELECTION(new Color(173, 216, 230)),
+
+  /**
+   * Rows which break a budget
+   */
+  BUDGET(new Color(255, 199, 199)),
+
+  /**
+   * Rows which pass the applied filter
+   */
+  FILTER(new Color(173, 255, 168));
+
+  /**
+   * Background of the rows of the layer, shared by every paint
+   */
+  private final Color color;
+
+  /**
+   * Initialize a layer
+   *
+   * @param color - background of the rows of the layer
+   */
+  HighlightLayer(Color color) {
+    this.color = color;
+  }
+
+  /**
+   * This method returns the background of the rows of the layer
+   *
+   * @return the color
+   */
+  public Color getColor() {
+    return color;
+  }
+}
@@ -0,0 +1,114 @@
+package view;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Point;
+import java.awt.Rectangle;
+
+import javax.swing.JTable;
+import javax.swing.table.DefaultTableCellRenderer;
+
+import model.Index.RowBitmap;
+
+/**
+ * HighlightRenderer paints the cells of the transactions table in the color
+ * of the highlight layers of their row. It is installed once and the layers
+ * are swapped, so applying a filter does not create a renderer.
+ *
+ * Painting a cell looks up its row in one bitmap per layer, which is O(1)
+ * and does not allocate, so repainting while scrolling costs the same for
+ * any number of highlighted rows. Changing a layer repaints only the visible
+ * rows whose highlight changed.
+ */
+public class HighlightRenderer extends DefaultTableCellRenderer {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The layers, in the order their colors take precedence
+   */
+  private static final HighlightLayer[] LAYERS = HighlightLayer.values();
+
+  /**
+   * Rows of every layer by ordinal, null if the layer is empty. The bitmaps
+   * are not modified.
+   */
+  private final RowBitmap[] layers = new RowBitmap[LAYERS.length];
+
+  @Override
+  public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+      boolean hasFocus, int row, int column) {
+    Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+    if (!isSelected) {
+      Color color = getColor(row);
+      c.setBackground(color == null ? table.getBackground() : color);
+    }
+    return c;
+  }
+
+  /**
+   * This method returns the highlight color of a row
+   *
+   * @param row - row index
+   * @return color of the first layer the row is in, null if it is in none
+   */
+  public Color getColor(int row) {
+    for (int i = 0; i < layers.length; i++) {
+      if (layers[i] != null && layers[i].get(row)) {
+        return LAYERS[i].getColor();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * This method returns the rows of a layer
+   *
+   * @param layer - the layer
+   * @return the rows, null if the layer is empty
+   */
+  public RowBitmap getLayer(HighlightLayer layer) {
+    return layers[layer.ordinal()];
+  }
+
+  /**
+   * This method replaces the rows of a layer and repaints the visible rows
+   * whose color changed
+   *
+   * @param table - the table the renderer paints
+   * @param layer - the layer
+   * @param rows  - the rows of the layer, null to empty it. The bitmap must not
+   *              be modified afterwards.
+   */
+  public void setLayer(JTable table, HighlightLayer layer, RowBitmap rows) {
+    Rectangle visible = table.getVisibleRect();
+    int first = table.rowAtPoint(visible.getLocation());
+    if (first == -1) {
+      // Nothing visible, the rows are painted with the layer when they show
+      layers[layer.ordinal()] = rows;
+      return;
+    }
+    int last = table.rowAtPoint(new Point(visible.x, visible.y + visible.height - 1));
+    if (last == -1) {
+      last = table.getRowCount() - 1;
+    }
+    Color[] before = new Color[last - first + 1];
+    for (int row = first; row <= last; row++) {
+      before[row - first] = getColor(row);
+    }
+    layers[layer.ordinal()] = rows;
+    // Repaint the runs of consecutive changed rows
+    int runStart = -1;
+    for (int row = first; row <= last + 1; row++) {
+      boolean changed = row <= last && before[row - first] != getColor(row);
+      if (changed && runStart == -1) {
+        runStart = row;
+      } else if (!changed && runStart != -1) {
+        Rectangle top = table.getCellRect(runStart, 0, true);
+        Rectangle bottom = table.getCellRect(row - 1, 0, true);
+        table.repaint(0, top.y, table.getWidth(), bottom.y + bottom.height - top.y);
+        runStart = -1;
+      }
+    }
+  }
+}
@@ -0,0 +1,230 @@
+package view;
+
+import java.util.Arrays;
+
+import javax.swing.table.AbstractTableModel;
+
+import model.Storage.TransactionSnapshot;
+
+/**
+ * TransactionTableModel backs the transactions JTable directly with a
+ * snapshot of the model store. Cells are read from the snapshot when the
+ * table paints them, and single row changes fire single row events, so adding
+ * or deleting a transaction does not rebuild the table.
+ *
+ * The last row of the table is the total row. Its amount is handed in with
+ * every snapshot, from the running aggregates of the model, so the table never
+ * adds up its rows.
+ *
+ * The table is virtual: the cells of the rows being painted are read from the
+ * snapshot into a window of WINDOW_ROWS rows, starting PREFETCH_ROWS above the
+ * first row asked for, and only reread when painting leaves the window. The
+ * table holds the same number of cells for a 10M row ledger as for a 100 row
+ * one, and scrolling by a few rows or repainting a highlight reads nothing
+ * from the store.
+ */
+public class TransactionTableModel extends AbstractTableModel {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Column names of the table
+   */
+  private static final String[] COLUMN_NAMES = { "serial", "Amount", "Category", "Date" };
+
+  /**
+   * Number of rows whose cells are kept, enough for the visible rows of a
+   * large screen plus the prefetch margins
+   */
+  static final int WINDOW_ROWS = 256;
+
+  /**
+   * Number of rows above the requested row read into the window, so
+   * scrolling up does not reread right away
+   */
+  static final int PREFETCH_ROWS = 64;
+
+  /**
+   * The rows of the table. Null until the table is first refreshed, the
+   * table has no total row until then.
+   */
+  private TransactionSnapshot transactions;
+
+  /**
+   * Sum of the amounts of all rows
+   */
+  private double totalCost;
+
+  /**
+   * Cells of the window, row by row
+   */
+  private final Object[] window = new Object[WINDOW_ROWS * COLUMN_NAMES.length];
+
+  /**
+   * Row index of the first row of the window
+   */
+  private int windowStart;
+
+  /**
+   * Number of rows in the window, 0 if it is empty
+   */
+  private int windowRows;
+
+  @Override
+  public int getRowCount() {
+    return transactions == null ? 0 : transactions.size() + 1;
+  }
+
+  @Override
+  public int getColumnCount() {
+    return COLUMN_NAMES.length;
+  }
+
+  @Override
+  public String getColumnName(int column) {
+    return COLUMN_NAMES[column];
+  }
+
+  @Override
+  public Object getValueAt(int row, int column) {
+    if (row == transactions.size()) {
+      // Total row
+      return column == 0 ? "Total" : column == 3 ? totalCost : null;
+    }
+    if (row < windowStart || row >= windowStart + windowRows) {
+      fillWindow(row);
+    }
+    return window[(row - windowStart) * COLUMN_NAMES.length + column];
+  }
+
+  /**
+   * This method reads the cells of the rows around a row into the window
+   *
+   * @param row - the row being painted
+   */
+  private void fillWindow(int row) {
+    int start = Math.max(0, row - PREFETCH_ROWS);
+    int rows = Math.min(WINDOW_ROWS, transactions.size() - start);
+    for (int i = 0; i < rows; i++) {
+      int cell = i * COLUMN_NAMES.length;
+      window[cell] = start + i + 1;
+      window[cell + 1] = transactions.getAmount(start + i);
+      window[cell + 2] = transactions.getCategory(start + i);
+      window[cell + 3] = transactions.getTimestamp(start + i);
+    }
+    windowStart = start;
+    windowRows = rows;
+  }
+
+  /**
+   * This method empties the window, e.g. when the rows in it changed
+   */
+  private void clearWindow() {
+    Arrays.fill(window, 0, windowRows * COLUMN_NAMES.length, null);
+    windowRows = 0;
+  }
+
+  /**
+   * This method returns the id of the transaction shown in a row of the
+   * model, e.g. to delete it whatever row the sorted view shows it in
+   *
+   * @param row - row index of the model, not of the view
+   * @return transaction id
+   * @throws IndexOutOfBoundsException if the row is the total row or does not
+   *                                   exist
+   */
+  public long getId(int row) {
+    return transactions.getId(row);
+  }
+
+  /**
+   * This method returns the snapshot the table shows
+   *
+   * @return the snapshot, null until the table is first refreshed
+   */
+  public TransactionSnapshot getTransactions() {
+    return transactions;
+  }
+
+  /**
+   * This method returns the total amount shown in the total row
+   *
+   * @return total amount
+   */
+  public double getTotalCost() {
+    return totalCost;
+  }
+
+  /**
+   * This method replaces all rows of the table
+   *
+   * @param transactions - snapshot of the transactions
+   * @param totalCost    - sum of the amounts of the snapshot
+   */
+  public void setTransactions(TransactionSnapshot transactions, double totalCost) {
+    this.transactions = transactions;
+    this.totalCost = totalCost;
+    clearWindow();
+    fireTableDataChanged();
+  }
+
+  /**
+   * This method shows the transactions appended to the end of the snapshot
+   * since the last update, e.g. one added transaction or an imported batch.
+   * If the snapshot also holds other changes, e.g. updates coalesced with a
+   * removal, all rows are replaced.
+   *
+   * @param transactions - snapshot of the transactions including the new ones
+   * @param totalCost    - sum of the amounts of the snapshot
+   */
+  public void transactionAdded(TransactionSnapshot transactions, double totalCost) {
+    int added = this.transactions == null ? 0 : transactions.size() - this.transactions.size();
+    if (added <= 0 || changes(transactions) != added) {
+      setTransactions(transactions, totalCost);
+      return;
+    }
+    int first = this.transactions.size();
+    int last = transactions.size() - 1;
+    this.transactions = transactions;
+    this.totalCost = totalCost;
+    fireTableRowsInserted(first, last);
+    // Total row
+    fireTableRowsUpdated(last + 1, last + 1);
+  }
+
+  /**
+   * This method removes a row of the table. If the snapshot holds other
+   * changes than the removal of that row, all rows are replaced.
+   *
+   * @param transactions - snapshot of the transactions without the removed one
+   * @param row          - row index of the removed transaction
+   * @param totalCost    - sum of the amounts of the snapshot
+   */
+  public void transactionRemoved(TransactionSnapshot transactions, int row, double totalCost) {
+    if (this.transactions == null || changes(transactions) != 1
+        || transactions.size() != this.transactions.size() - 1) {
+      setTransactions(transactions, totalCost);
+      return;
+    }
+    this.transactions = transactions;
+    this.totalCost = totalCost;
+    // The rows after the removed one moved up
+    clearWindow();
+    fireTableRowsDeleted(row, row);
+    // Serial numbers of the following rows and the total row changed. The
+    // table only repaints the rows which are visible.
+    fireTableRowsUpdated(row, transactions.size());
+  }
+
+  /**
+   * This method returns the number of changes between the shown snapshot and
+   * a newer one. Every added transaction and every removal count as one.
+   *
+   * @param transactions - the newer snapshot
+   * @return number of changes, 0 or less if the snapshot is not newer
+   */
+  private long changes(TransactionSnapshot transactions) {
+    return transactions.getVersion() - this.transactions.getVersion();
+  }
+
+}
@@ -0,0 +1,134 @@
+// package test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import controller.InputValidation;
+import model.ExpenseTrackerModel;
+import model.Transaction;
+import model.Aggregate.Aggregate;
+import model.Aggregate.Aggregates;
+import model.Storage.TransactionSnapshot;
+
+public class AggregateTest {
+
+    private static final String[] CATEGORIES = { "food", "travel", "bills", "entertainment", "other" };
+
+    private ExpenseTrackerModel model;
+
+    @Before
+    public void setup() {
+        model = new ExpenseTrackerModel();
+    }
+
+    @Test
+    public void testEmptyModel() {
+        Aggregates aggregates = model.getAggregates();
+        assertSame(Aggregate.EMPTY, aggregates.getTotal());
+        assertEquals(0, aggregates.getTotal().getCount());
+        assertEquals(0, aggregates.getTotal().getSum(), 0);
+        assertTrue(Double.isNaN(aggregates.getTotal().getMin()));
+        assertSame(Aggregate.EMPTY, aggregates.getCategory(InputValidation.getCategoryCode("food")));
+    }
+
+    @Test
+    public void testAddsAndRemovesMatchScan() {
+        Random random = new Random(42);
+        List<Transaction> added = new ArrayList<>();
+        // Some rows exist before the aggregates are built
+        for (int i = 0; i < 100; i++) {
+            added.add(add(random, i));
+        }
+        model.getAggregates();
+        for (int i = 100; i < 2000; i++) {
+            added.add(add(random, i));
+            if (i % 3 == 0) {
+                model.removeTransaction(added.remove(random.nextInt(added.size())));
+            }
+        }
+        Aggregates aggregates = model.getAggregates();
+        TransactionSnapshot snapshot = model.getSnapshot();
+        assertEquals(snapshot.getVersion(), aggregates.getVersion());
+        assertScan(snapshot, -1, aggregates.getTotal());
+        for (String category : CATEGORIES) {
+            int code = InputValidation.getCategoryCode(category);
+            assertScan(snapshot, code, aggregates.getCategory(code));
+        }
+    }
+
+    @Test
+    public void testRemovingMinAndMax() {
+        model.addTransaction(new Transaction(5.0, "food", 0L));
+        model.addTransaction(new Transaction(1.0, "food", 1L));
+        model.addTransaction(new Transaction(9.0, "food", 2L));
+        model.addTransaction(new Transaction(1.0, "food", 3L));
+        model.removeTransaction(new Transaction(9.0, "food", 2L));
+        model.removeTransaction(new Transaction(1.0, "food", 1L));
+        Aggregate food = model.getAggregates().getCategory(InputValidation.getCategoryCode("food"));
+        assertEquals(2, food.getCount());
+        assertEquals(6.0, food.getSum(), 0);
+        assertEquals(1.0, food.getMin(), 0);
+        assertEquals(5.0, food.getMax(), 0);
+    }
+
+    @Test
+    public void testExtremesAfterRemovingEveryCopy() {
+        model.addTransaction(new Transaction(0.5, "bills", 0L));
+        model.addTransaction(new Transaction(0.5, "bills", 1L));
+        model.addTransaction(new Transaction(250.0, "bills", 2L));
+        model.addTransaction(new Transaction(999.99, "bills", 3L));
+        model.removeTransaction(new Transaction(0.5, "bills", 0L));
+        model.removeTransaction(new Transaction(999.99, "bills", 3L));
+        Aggregate bills = model.getAggregates().getCategory(InputValidation.getCategoryCode("bills"));
+        assertEquals(0.5, bills.getMin(), 0);
+        assertEquals(250.0, bills.getMax(), 0);
+
+        model.removeTransaction(new Transaction(0.5, "bills", 1L));
+        bills = model.getAggregates().getCategory(InputValidation.getCategoryCode("bills"));
+        assertEquals(250.0, bills.getMin(), 0);
+        assertEquals(250.0, bills.getMax(), 0);
+
+        model.removeTransaction(new Transaction(250.0, "bills", 2L));
+        model.addTransaction(new Transaction(3.0, "bills", 4L));
+        bills = model.getAggregates().getCategory(InputValidation.getCategoryCode("bills"));
+        assertEquals(1, bills.getCount());
+        assertEquals(3.0, bills.getMin(), 0);
+        assertEquals(3.0, bills.getMax(), 0);
+    }
+
+    private Transaction add(Random random, int i) {
+        Transaction t = new Transaction(0.01 + random.nextInt(100000) / 100.0,
+                CATEGORIES[random.nextInt(CATEGORIES.length)], (long) i);
+        model.addTransaction(t);
+        return t;
+    }
+
+    // Aggregate of a category, or of all rows for -1, by scanning the snapshot
+    private static void assertScan(TransactionSnapshot snapshot, int code, Aggregate aggregate) {
+        long count = 0;
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int row = 0; row < snapshot.size(); row++) {
+            if (code == -1 || snapshot.getCategoryCode(row) == code) {
+                double amount = snapshot.getAmount(row);
+                count++;
+                sum += amount;
+                min = Math.min(min, amount);
+                max = Math.max(max, amount);
+            }
+        }
+        assertEquals(count, aggregate.getCount());
+        assertEquals(sum, aggregate.getSum(), 1e-6);
+        assertEquals(min, aggregate.getMin(), 0);
+        assertEquals(max, aggregate.getMax(), 0);
+    }
+
+}
@@ -0,0 +1,182 @@
+// package test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import model.CategoryRegistry;
+import model.ExpenseTrackerModel;
+import model.Transaction;
+import model.Filter.CategoryFilter;
+import model.Persistence.FsyncPolicy;
+import model.Persistence.TransactionJournal;
+import model.Storage.ColumnarTransactionStore;
+import model.Storage.MappedTransactionStore;
+
+public class CategoryRegistryTest {
+
+    @Test
+    public void testBuiltInCategories() {
+        CategoryRegistry categories = new CategoryRegistry();
+        assertEquals(5, categories.size());
+        assertEquals(0, categories.getCode("food"));
+        assertEquals(3, categories.getCode("Entertainment"));
+        assertEquals("other", categories.getName(4));
+        assertEquals(-1, categories.getCode("rent"));
+        assertEquals(-1, categories.getCode("fo od"));
+        assertEquals(-1, categories.getCode(null));
+        assertFalse(CategoryRegistry.isValidName(""));
+        assertFalse(CategoryRegistry.isValidName("caf3"));
+    }
+
+    @Test
+    public void testRegisterCustomCategories() throws IOException {
+        CategoryRegistry categories = new CategoryRegistry();
+        assertEquals(5, categories.register("Rent"));
+        assertEquals(5, categories.register("RENT"));
+        assertEquals(1, categories.register("travel"));
+        assertEquals(5, categories.getCode("rent"));
+        // One canonical instance of every name
+        assertSame("rent", categories.getName(5));
+
+        for (int i = categories.size(); i < CategoryRegistry.MAX_CATEGORIES; i++) {
+            assertEquals(i, categories.register("custom" + (char) ('a' + i / 26) + (char) ('a' + i % 26)));
+        }
+        for (int code = 0; code < CategoryRegistry.MAX_CATEGORIES; code++) {
+            assertEquals(code, categories.getCode(categories.getName(code).toUpperCase()));
+        }
+        try {
+            categories.register("onemore");
+            fail("registered more than the maximum");
+        } catch (IllegalArgumentException e) {
+            assertEquals(CategoryRegistry.MAX_CATEGORIES, categories.size());
+        }
+    }
+
+    @Test
+    public void testCategoriesSurviveReload() throws IOException {
+        Path directory = Files.createTempDirectory("categories");
+        Path file = directory.resolve("categories.txt");
+        CategoryRegistry categories = new CategoryRegistry();
+        categories.load(file);
+        categories.register("rent");
+        categories.register("pets");
+
+        CategoryRegistry reloaded = new CategoryRegistry();
+        reloaded.load(file);
+        assertEquals(5, reloaded.getCode("rent"));
+        assertEquals(6, reloaded.getCode("pets"));
+        assertEquals(7, reloaded.register("gym"));
+
+        // Codes are stored, so a registry with other codes cannot load the file
+        CategoryRegistry other = new CategoryRegistry();
+        other.register("pets");
+        try {
+            other.load(file);
+            fail("loaded categories with other codes");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        Files.delete(file);
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testCustomCategoryIsFilteredByCode() throws IOException {
+        CategoryRegistry categories = new CategoryRegistry();
+        int code = categories.register("gifts");
+        ExpenseTrackerModel model = new ExpenseTrackerModel(new ColumnarTransactionStore(categories));
+        model.addTransaction(Transaction.ofCents(1000, "Gifts", 0L, categories));
+        model.addTransaction(new Transaction(20, "food"));
+        model.addTransaction(Transaction.ofCents(3000, "GIFTS", 1L, categories));
+
+        assertEquals(code, model.getTransactions().get(0).getCategoryCode());
+        assertEquals("gifts", model.getTransactions().get(2).getCategory());
+        assertEquals(2, model.select(new CategoryFilter("gifts", categories)).size());
+        assertEquals(2, new CategoryFilter("gIfTs", categories).filter(model.getTransactions()).size());
+        assertEquals(4000, model.getAggregates().getCategory(code).getSumCents());
+        assertTrue(model.getTransactions().get(0).equals(Transaction.ofCode(1000, code, 0L, categories)));
+
+        // Other registries and the built-in one know nothing of it
+        assertEquals(-1, new CategoryRegistry().getCode("gifts"));
+        assertEquals(-1, CategoryRegistry.BUILT_IN.getCode("gifts"));
+        try {
+            new CategoryFilter("gifts");
+            fail("filtered by a category of another registry");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            CategoryRegistry.BUILT_IN.register("gifts");
+            fail("registered a built-in category");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testTransactionOfAnotherRegistryIsAddedByName() throws IOException {
+        CategoryRegistry mine = new CategoryRegistry();
+        mine.register("rent");
+        mine.register("gifts");
+        CategoryRegistry theirs = new CategoryRegistry();
+        theirs.register("gifts");
+        ExpenseTrackerModel model = new ExpenseTrackerModel(new ColumnarTransactionStore(mine));
+        model.addTransaction(Transaction.ofCents(500, "gifts", 0L, theirs));
+        assertEquals(6, model.getSnapshot().getCategoryCode(0));
+        assertEquals("gifts", model.getSnapshot().getCategory(0));
+
+        model.removeTransaction(Transaction.ofCents(500, "gifts", 0L, theirs));
+        assertEquals(0, model.getSnapshot().size());
+        theirs.register("pets");
+        try {
+            model.addTransaction(Transaction.ofCents(500, "pets", 0L, theirs));
+            fail("added a category the model does not know");
+        } catch (IllegalArgumentException e) {
+            assertEquals(0, model.getSnapshot().size());
+        }
+    }
+
+    @Test
+    public void testCategoriesAreRecoveredWithTheirStore() throws IOException {
+        Path directory = Files.createTempDirectory("categories");
+        Path ledger = directory.resolve("transactions.ledger");
+        Path journalDirectory = directory.resolve("journal");
+
+        MappedTransactionStore store = new MappedTransactionStore(ledger);
+        store.getCategories().register("rent");
+        store.add(Transaction.ofCents(1200, "rent", 0L, store.getCategories()));
+        store.close();
+        ExpenseTrackerModel journaled = new ExpenseTrackerModel(new ColumnarTransactionStore(),
+                new TransactionJournal(journalDirectory, FsyncPolicy.ALWAYS));
+        journaled.getCategories().register("pets");
+        journaled.addTransaction(Transaction.ofCents(700, "pets", 0L, journaled.getCategories()));
+        journaled.close();
+
+        // Reopened with new registries, which have to be loaded from disk
+        MappedTransactionStore reopened = new MappedTransactionStore(ledger);
+        assertEquals("rent", reopened.get(0).getCategory());
+        assertEquals("rent", reopened.snapshot().getCategory(0));
+        reopened.close();
+        ExpenseTrackerModel recovered = new ExpenseTrackerModel(new ColumnarTransactionStore(),
+                new TransactionJournal(journalDirectory, FsyncPolicy.ALWAYS));
+        assertEquals("pets", recovered.getTransactions().get(0).getCategory());
+        assertEquals(-1, recovered.getCategories().getCode("rent"));
+        recovered.close();
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
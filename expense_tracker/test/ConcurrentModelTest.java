@@ -0,0 +1,191 @@
+// package test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import model.ExpenseTrackerModel;
+import model.Selection;
+import model.Transaction;
+import model.Filter.CategoryFilter;
+import model.Filter.TransactionFilter;
+import model.Storage.TransactionSnapshot;
+
+public class ConcurrentModelTest {
+
+    private static final int WRITERS = 4;
+
+    private static final int ROWS_PER_WRITER = 5000;
+
+    private ExpenseTrackerModel model;
+
+    private ExecutorService threads;
+
+    @Before
+    public void setup() {
+        model = new ExpenseTrackerModel();
+        threads = Executors.newFixedThreadPool(WRITERS + 2);
+    }
+
+    // Every writer adds rows with its own amounts; time tells its rows apart
+    private Transaction row(int writer, int i) {
+        return new Transaction(writer + 1, writer % 2 == 0 ? "food" : "travel", i);
+    }
+
+    @Test
+    public void testConcurrentAddsAndSnapshots() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            writers.add(threads.submit((Callable<Void>) () -> {
+                start.await();
+                for (int i = 0; i < ROWS_PER_WRITER; i++) {
+                    Transaction t = row(writer, i);
+                    model.addTransaction(t);
+                    // Linearizable: a returned add is visible to the next read
+                    TransactionSnapshot snapshot = model.getSnapshot();
+                    assertEquals(t, snapshot.get(lastIndexOf(snapshot, writer)));
+                }
+                return null;
+            }));
+        }
+        // A reader checks that snapshots only grow and never change
+        Future<?> reader = threads.submit((Callable<Void>) () -> {
+            start.await();
+            TransactionSnapshot previous = model.getSnapshot();
+            while (writing.get()) {
+                TransactionSnapshot snapshot = model.getSnapshot();
+                assertTrue(snapshot.size() >= previous.size());
+                assertTrue(snapshot.getVersion() >= previous.getVersion());
+                for (int row = 0; row < previous.size(); row += 97) {
+                    assertEquals(previous.get(row), snapshot.get(row));
+                }
+                // Rows of every writer appear in the order it added them
+                int[] next = new int[WRITERS];
+                for (int row = 0; row < snapshot.size(); row++) {
+                    int writer = (int) snapshot.getAmount(row) - 1;
+                    assertEquals(next[writer]++, snapshot.getTime(row));
+                }
+                previous = snapshot;
+            }
+            return null;
+        });
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        writing.set(false);
+        reader.get();
+
+        assertEquals(WRITERS * ROWS_PER_WRITER, model.getTransactions().size());
+        assertEquals(WRITERS / 2 * ROWS_PER_WRITER, model.select(new CategoryFilter("food")).size());
+    }
+
+    @Test
+    public void testConcurrentAddsAndRemoves() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            writers.add(threads.submit((Callable<Void>) () -> {
+                start.await();
+                for (int i = 0; i < ROWS_PER_WRITER; i++) {
+                    model.addTransaction(row(writer, i));
+                    if (i % 2 == 1) {
+                        model.removeTransaction(row(writer, i - 1));
+                    }
+                }
+                return null;
+            }));
+        }
+        // Queries run between the changes and always see consistent indexes
+        Future<?> reader = threads.submit((Callable<Void>) () -> {
+            start.await();
+            for (int i = 0; i < 200; i++) {
+                // The rows refer to the snapshot returned with them
+                Selection selection = model.select(new CategoryFilter("travel"));
+                for (int row : selection.getRows()) {
+                    assertEquals("travel", selection.getTransactions().get(row).getCategory());
+                }
+            }
+            return null;
+        });
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        reader.get();
+
+        // Only the odd rows of every writer are left, each exactly once
+        TransactionSnapshot snapshot = model.getSnapshot();
+        assertEquals(WRITERS * ROWS_PER_WRITER / 2, snapshot.size());
+        Set<Transaction> left = new HashSet<>(snapshot);
+        assertEquals(snapshot.size(), left.size());
+        for (int w = 0; w < WRITERS; w++) {
+            for (int i = 1; i < ROWS_PER_WRITER; i += 2) {
+                assertTrue(left.contains(row(w, i)));
+            }
+        }
+        assertEquals(WRITERS / 2 * ROWS_PER_WRITER / 2, model.select(new CategoryFilter("food")).size());
+    }
+
+    // Index of the last row of a writer in the snapshot
+    private static int lastIndexOf(TransactionSnapshot snapshot, int writer) {
+        for (int row = snapshot.size() - 1; row >= 0; row--) {
+            if (snapshot.getAmount(row) == writer + 1) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    @Test(timeout = 10000)
+    public void testChangeFromInsideAChangeRunsInline() {
+        model.addTransaction(new Transaction(10.0, "food", 0L));
+        model.addTransaction(new Transaction(20.0, "travel", 1L));
+        // The filter runs inside the removal and adds a transaction itself
+        int[] publishedDuringRemoval = new int[1];
+        TransactionFilter addingFilter = new TransactionFilter() {
+            @Override
+            public List<Transaction> filter(List<Transaction> transactions) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public boolean matches(TransactionSnapshot transactions, int row) {
+                if (row == 0) {
+                    model.addTransaction(new Transaction(30.0, "bills", 2L));
+                    publishedDuringRemoval[0] = model.getSnapshot().size();
+                }
+                return transactions.getCents(row) == 1000;
+            }
+        };
+        assertEquals(1, model.removeWhere(addingFilter).length);
+        // Published with the removal, not on its own in the middle of it
+        assertEquals(2, publishedDuringRemoval[0]);
+        assertEquals(2, model.getSnapshot().size());
+        assertEquals(3000, model.getSnapshot().getCents(1));
+        assertEquals(5000, model.getAggregates().getTotal().getSumCents());
+    }
+
+    @After
+    public void tearDown() {
+        threads.shutdownNow();
+    }
+
+}
@@ -0,0 +1,188 @@
+// package test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import controller.ExpenseEngine;
+import controller.ExpenseListener;
+import model.Transaction;
+import model.Aggregate.Aggregates;
+import model.Filter.AmountFilter;
+import model.Filter.AmountRangeFilter;
+import model.Filter.AndFilter;
+import model.Filter.CategoryFilter;
+import model.Filter.DateRangeFilter;
+import model.Filter.NotFilter;
+import model.Filter.OrFilter;
+import model.Index.RowBitmap;
+import model.Storage.TransactionSnapshot;
+
+public class ExpenseEngineTest {
+
+    private ExpenseEngine engine;
+
+    private List<String> events;
+
+    @Before
+    public void setup() {
+        engine = new ExpenseEngine();
+        events = new ArrayList<>();
+        engine.addListener(new ExpenseListener() {
+            @Override
+            public void transactionsAdded(TransactionSnapshot transactions, Aggregates aggregates) {
+                events.add("added " + transactions.size() + " " + aggregates.getTotal().getSumCents());
+            }
+
+            @Override
+            public void transactionRemoved(TransactionSnapshot transactions, int row, Aggregates aggregates) {
+                events.add("removed " + row + " " + aggregates.getTotal().getSumCents());
+            }
+
+            @Override
+            public void transactionsRemoved(TransactionSnapshot transactions, int[] rows, Aggregates aggregates) {
+                events.add("removed " + Arrays.toString(rows) + " " + aggregates.getTotal().getSumCents());
+            }
+
+            @Override
+            public void filterApplied(RowBitmap rows) {
+                events.add("filtered " + rows.cardinality());
+            }
+        });
+    }
+
+    @Test
+    public void testAddFilterAndDeleteNotifyListeners() {
+        assertNotNull(engine.addTransaction(50.00, "food"));
+        assertNotNull(engine.addTransaction(20.25, "travel"));
+        assertNotNull(engine.addTransaction(5.00, "food"));
+
+        List<Transaction> food = engine.applyFilter(new CategoryFilter("food"));
+        assertEquals(2, food.size());
+        assertEquals(50.00, food.get(0).getAmount(), 0);
+
+        Transaction deleted = engine.deleteRow(1);
+        assertEquals("travel", deleted.getCategory());
+        assertEquals(2, engine.getSnapshot().size());
+        assertEquals(5500, engine.getAggregates().getTotal().getSumCents());
+
+        List<String> expected = new ArrayList<>();
+        expected.add("added 1 5000");
+        expected.add("added 2 7025");
+        expected.add("added 3 7525");
+        expected.add("filtered 2");
+        expected.add("removed 1 5500");
+        assertEquals(expected, events);
+    }
+
+    @Test
+    public void testInvalidInputChangesNothing() {
+        assertNull(engine.addTransaction(-1, "food"));
+        assertNull(engine.addTransaction(10, "rent"));
+        assertEquals(0, engine.getSnapshot().size());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void testBatchChangesNotifyOnce() {
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < 50000; i++) {
+            batch.add(Transaction.ofCents(100, i % 10 == 0 ? "food" : "other", 1700000000000L + i));
+        }
+        engine.addAll(batch);
+        TransactionSnapshot transactions = engine.getSnapshot();
+
+        // Mis-imported rows removed in one pass
+        assertEquals(45000, engine.removeWhere(new CategoryFilter("other")));
+        assertEquals(5000, engine.getSnapshot().size());
+        assertEquals(0, engine.select(new CategoryFilter("other")).length);
+
+        long[] ids = { transactions.getId(10), transactions.getId(0), transactions.getId(10) };
+        assertEquals(2, engine.removeAll(ids));
+        assertEquals(4998, engine.getSnapshot().size());
+        assertEquals(transactions.getId(20), engine.getSnapshot().getId(0));
+        assertEquals(3, events.size());
+        assertEquals("added 50000 5000000", events.get(0));
+        assertTrue(events.get(1).endsWith(" 500000"));
+        assertEquals("removed [0, 1] 499800", events.get(2));
+    }
+
+    @Test
+    public void testRemoveAllIsAllOrNothing() {
+        engine.addTransaction(10, "food");
+        engine.addTransaction(20, "food");
+        long[] ids = { engine.getSnapshot().getId(0), 12345L };
+        try {
+            engine.removeAll(ids);
+            fail("removed an unknown id");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+        assertEquals(2, engine.getSnapshot().size());
+        assertEquals(3000, engine.getAggregates().getTotal().getSumCents());
+        assertEquals(2, events.size());
+    }
+
+    @Test
+    public void testCombinedFilter() {
+        engine.addTransaction(30.0, "food");
+        engine.addTransaction(30.0, "bills");
+        engine.addTransaction(80.0, "food");
+        engine.addTransaction(20.0, "food");
+
+        // food AND 20..50 AND last 30 days
+        List<Transaction> filtered = engine.applyFilter(new AndFilter(new CategoryFilter("food"),
+                new AmountRangeFilter(20.0, 50.0), DateRangeFilter.lastDays(30)));
+        assertEquals(2, filtered.size());
+        assertEquals(3000, filtered.get(0).getCents());
+        assertEquals(2000, filtered.get(1).getCents());
+
+        // NOT food OR 80
+        filtered = engine.applyFilter(new OrFilter(new NotFilter(new CategoryFilter("food")), new AmountFilter(80.0)));
+        assertEquals(2, filtered.size());
+        assertEquals("bills", filtered.get(0).getCategory());
+        assertEquals(8000, filtered.get(1).getCents());
+    }
+
+    @Test
+    public void testTransactionsSnapshot() {
+        engine.addTransaction(100.0, "food");
+        long version = engine.getModel().getVersion();
+
+        // Same version, same snapshot
+        List<Transaction> snapshot = engine.getModel().getTransactions();
+        assertTrue(snapshot == engine.getModel().getTransactions());
+
+        // The snapshot does not see later changes
+        engine.addTransaction(150.0, "other");
+        engine.deleteRow(0);
+        assertNotEquals(version, engine.getModel().getVersion());
+        assertEquals(1, snapshot.size());
+        assertEquals("food", snapshot.get(0).getCategory());
+        assertEquals(1, engine.getModel().getTransactions().size());
+        assertEquals("other", engine.getModel().getTransactions().get(0).getCategory());
+
+        // The snapshot is read-only
+        try {
+            snapshot.remove(0);
+            fail("removed from a snapshot");
+        } catch (UnsupportedOperationException e) {
+            assertEquals(1, snapshot.size());
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testDeleteFromEmptyModel() {
+        engine.deleteRow(0);
+    }
+}
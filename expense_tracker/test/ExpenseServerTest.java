@@ -0,0 +1,129 @@
+// package test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import controller.ExpenseEngine;
+import server.ExpenseServer;
+
+public class ExpenseServerTest {
+
+    private ExpenseEngine engine;
+
+    private ExpenseServer server;
+
+    private String body;
+
+    @Before
+    public void setup() throws IOException {
+        engine = new ExpenseEngine();
+        server = new ExpenseServer(engine, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+    }
+
+    @After
+    public void cleanup() {
+        server.stop();
+    }
+
+    @Test
+    public void testAddFilterAndDelete() throws IOException {
+        assertEquals(201, request("POST", "/transactions", "{\"amount\": 12.50, \"category\": \"food\"}"));
+        assertEquals(201, request("POST", "/transactions", "{\"amount\": \"7\", \"category\": \"travel\"}"));
+        assertEquals(201, request("POST", "/transactions", "{\"amount\": 30, \"category\": \"food\"}"));
+        assertEquals(3, engine.getSnapshot().size());
+
+        assertEquals(200, request("GET", "/transactions?category=food&max=20", null));
+        assertTrue(body, body.contains("\"count\":1"));
+        assertTrue(body, body.contains("\"row\":0,\"amount\":12.50,\"category\":\"food\""));
+
+        assertEquals(200, request("GET", "/aggregates", null));
+        assertTrue(body, body.contains("\"total\":{\"count\":3,\"sum\":49.50,\"min\":7.00,\"max\":30.00}"));
+        assertTrue(body, body.contains("\"bills\":{\"count\":0,\"sum\":0.00,\"min\":null,\"max\":null}"));
+
+        assertEquals(200, request("DELETE", "/transactions/1", null));
+        assertTrue(body, body.contains("\"category\":\"travel\""));
+        assertEquals(200, request("GET", "/spending?category=food", null));
+        assertTrue(body, body.contains("\"count\":2,\"sum\":42.50"));
+
+        // The last transaction keeps its id but moved up a row
+        assertEquals(200, request("GET", "/transactions", null));
+        assertTrue(body, body.contains("\"id\":2,\"row\":1,\"amount\":30.00"));
+        assertEquals(404, request("DELETE", "/transactions/1", null));
+
+        assertEquals(400, request("DELETE", "/transactions", null));
+        assertEquals(200, request("DELETE", "/transactions?category=food", null));
+        assertTrue(body, body.contains("\"removed\":2"));
+        assertEquals(0, engine.getSnapshot().size());
+    }
+
+    @Test
+    public void testStreamsAllRows() throws IOException {
+        for (int i = 1; i <= 5000; i++) {
+            engine.addTransaction(i % 100 + 1, "bills");
+        }
+        assertEquals(200, request("GET", "/transactions", null));
+        assertTrue(body.startsWith("{\"version\":"));
+        assertTrue(body.contains("\"count\":5000"));
+        assertTrue(body.contains("\"row\":4999,"));
+        assertTrue(body.endsWith("]}"));
+    }
+
+    @Test
+    public void testRegistersCategories() throws IOException {
+        assertEquals(200, request("GET", "/categories", null));
+        assertTrue(body, body.contains("{\"code\":0,\"name\":\"food\"}"));
+        assertEquals(201, request("POST", "/categories", "{\"category\": \"Hobbies\"}"));
+        assertTrue(body, body.contains("\"name\":\"hobbies\""));
+        assertEquals(400, request("POST", "/categories", "{\"category\": \"no spaces\"}"));
+        assertEquals(201, request("POST", "/transactions", "{\"amount\": 4, \"category\": \"hobbies\"}"));
+        assertEquals(200, request("GET", "/transactions?category=HOBBIES", null));
+        assertTrue(body, body.contains("\"count\":1"));
+    }
+
+    @Test
+    public void testRejectsInvalidRequests() throws IOException {
+        assertEquals(400, request("POST", "/transactions", "{\"amount\": -5, \"category\": \"food\"}"));
+        assertEquals(400, request("POST", "/transactions", "not json"));
+        assertEquals(400, request("GET", "/transactions?category=rent", null));
+        assertEquals(400, request("GET", "/rollup", null));
+        assertEquals(404, request("DELETE", "/transactions/0", null));
+        assertEquals(405, request("PUT", "/transactions", null));
+        assertEquals(0, engine.getSnapshot().size());
+    }
+
+    private int request(String method, String path, String requestBody) throws IOException {
+        URL url = new URL("http", server.getAddress().getHostString(), server.getAddress().getPort(), path);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        if (requestBody != null) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(requestBody.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (in != null) {
+            try (InputStream stream = in) {
+                stream.transferTo(bytes);
+            }
+        }
+        body = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        return status;
+    }
+}
@@ -0,0 +1,66 @@
+// package test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.awt.Component;
+
+import javax.swing.JTable;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import model.ExpenseTrackerModel;
+import model.Transaction;
+import model.Index.RowBitmap;
+import view.HighlightLayer;
+import view.HighlightRenderer;
+import view.TransactionTableModel;
+
+public class HighlightRendererTest {
+
+    private JTable table;
+
+    private HighlightRenderer renderer;
+
+    @Before
+    public void setup() {
+        ExpenseTrackerModel model = new ExpenseTrackerModel();
+        for (int i = 0; i < 10; i++) {
+            model.addTransaction(Transaction.ofCents(100 + i, "food", 1700000000000L + i));
+        }
+        TransactionTableModel tableModel = new TransactionTableModel();
+        tableModel.setTransactions(model.getSnapshot(), 0);
+        table = new JTable(tableModel);
+        renderer = new HighlightRenderer();
+        table.setDefaultRenderer(Object.class, renderer);
+    }
+
+    @Test
+    public void testLayersTakePrecedenceInOrder() {
+        renderer.setLayer(table, HighlightLayer.FILTER, RowBitmap.of(new int[] { 1, 2, 3 }));
+        renderer.setLayer(table, HighlightLayer.BUDGET, RowBitmap.of(new int[] { 3, 4 }));
+
+        assertSame(table.getBackground(), background(0));
+        assertSame(HighlightLayer.FILTER.getColor(), background(1));
+        assertSame(HighlightLayer.BUDGET.getColor(), background(3));
+        assertSame(HighlightLayer.BUDGET.getColor(), background(4));
+
+        renderer.setLayer(table, HighlightLayer.BUDGET, null);
+        assertSame(HighlightLayer.FILTER.getColor(), background(3));
+        assertSame(table.getBackground(), background(4));
+        assertNull(renderer.getColor(5));
+    }
+
+    @Test
+    public void testSelectedRowsKeepTheSelectionColor() {
+        renderer.setLayer(table, HighlightLayer.FILTER, RowBitmap.of(new int[] { 2 }));
+        Component c = renderer.getTableCellRendererComponent(table, "x", true, false, 2, 0);
+        assertEquals(table.getSelectionBackground(), c.getBackground());
+    }
+
+    private Object background(int row) {
+        return renderer.getTableCellRendererComponent(table, table.getValueAt(row, 0), false, false, row, 0)
+                .getBackground();
+    }
+}
@@ -0,0 +1,138 @@
+// package test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import model.ExpenseTrackerModel;
+import model.Transaction;
+import model.Filter.CategoryFilter;
+import model.Storage.MappedTransactionStore;
+import model.Storage.TransactionSnapshot;
+
+public class MappedTransactionStoreTest {
+
+    private Path directory;
+
+    private Path ledger;
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("ledger");
+        ledger = directory.resolve("transactions.ledger");
+    }
+
+    @Test
+    public void testReopenLedger() throws IOException {
+        ExpenseTrackerModel model = new ExpenseTrackerModel(new MappedTransactionStore(ledger));
+        model.addTransaction(new Transaction(100.0, "food"));
+        model.addTransaction(new Transaction(150.0, "other"));
+        Transaction removed = new Transaction(20.0, "bills");
+        model.addTransaction(removed);
+        model.addTransaction(new Transaction(30.0, "food"));
+        model.removeTransaction(removed);
+        List<Transaction> expected = new ArrayList<>(model.getTransactions());
+        model.close();
+
+        ExpenseTrackerModel reopened = new ExpenseTrackerModel(new MappedTransactionStore(ledger));
+        assertEquals(expected, reopened.getTransactions());
+        assertEquals(2, reopened.select(new CategoryFilter("food")).size());
+        reopened.close();
+    }
+
+    @Test
+    public void testSnapshotSurvivesRemove() throws IOException {
+        MappedTransactionStore store = new MappedTransactionStore(ledger);
+        for (int i = 1; i <= 10; i++) {
+            store.add(new Transaction(i, "travel"));
+        }
+        TransactionSnapshot before = store.snapshot();
+        assertEquals(3, store.remove(before.get(3)));
+        assertEquals(0, store.remove(before.get(0)));
+
+        assertEquals(10, before.size());
+        assertEquals(4.0, before.getAmount(3), 0.01);
+        assertEquals(8, store.size());
+        assertEquals(2.0, store.getAmount(0), 0.01);
+        assertEquals(5.0, store.getAmount(2), 0.01);
+        assertEquals(10.0, store.getAmount(7), 0.01);
+        store.close();
+    }
+
+    @Test
+    public void testBatchRemoveSurvivesReopen() throws IOException {
+        MappedTransactionStore store = new MappedTransactionStore(ledger);
+        for (int i = 1; i <= 10; i++) {
+            store.add(new Transaction(i, "travel"));
+        }
+        store.removeAt(4);
+        store.removeRows(new int[] { 0, 4, 8 });
+        assertEquals(6, store.size());
+        store.close();
+
+        MappedTransactionStore reopened = new MappedTransactionStore(ledger);
+        assertEquals(6, reopened.size());
+        assertEquals(2.0, reopened.getAmount(0), 0.01);
+        assertEquals(7.0, reopened.getAmount(3), 0.01);
+        assertEquals(8L, reopened.getId(5));
+        reopened.close();
+    }
+
+    @Test
+    public void testReadWhileGrowing() throws IOException, InterruptedException {
+        ExpenseTrackerModel model = new ExpenseTrackerModel(new MappedTransactionStore(ledger));
+        // Enough records for a second and third segment
+        int rows = 1100000;
+        // Rows read and rows read wrong
+        long[] read = new long[2];
+        AtomicBoolean done = new AtomicBoolean();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                TransactionSnapshot snapshot = model.getSnapshot();
+                for (int row = snapshot.size() - 1; row >= 0 && row >= snapshot.size() - 64; row--) {
+                    read[0]++;
+                    read[1] += snapshot.getCents(row) == row % 1000 + 1 ? 0 : 1;
+                }
+            }
+        });
+        reader.start();
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            batch.add(Transaction.ofCents(i % 1000 + 1, "food", i));
+            if (batch.size() == 10000) {
+                model.addAll(batch);
+                batch.clear();
+            }
+        }
+        model.addAll(batch);
+        done.set(true);
+        reader.join();
+
+        assertTrue(read[0] > 0);
+        assertEquals(0, read[1]);
+        assertEquals(rows, model.getSnapshot().size());
+        assertEquals((rows - 1) % 1000 + 1, model.getSnapshot().getCents(rows - 1));
+        model.close();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+}
@@ -0,0 +1,71 @@
+// package test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import metrics.Counter;
+import metrics.Metrics;
+import metrics.Timer;
+import model.ExpenseTrackerModel;
+import model.Transaction;
+
+public class MetricsTest {
+
+    @Test
+    public void testPercentiles() {
+        Timer timer = Metrics.timer("test.percentiles");
+        for (long latency = 1; latency <= 100_000; latency++) {
+            timer.record(latency);
+        }
+        assertEquals(100_000, timer.getCount());
+        assertEquals(50_000.5, timer.getMean(), 0.001);
+        assertEquals(100_000, timer.getMax());
+        // Buckets are at most 1/16 wide
+        assertEquals(50_000, timer.getPercentile(50), 50_000 / 16);
+        assertEquals(99_000, timer.getPercentile(99), 99_000 / 16);
+        assertTrue(timer.getPercentile(99) >= 99_000);
+        assertEquals(100_000, timer.getPercentile(100));
+    }
+
+    @Test
+    public void testConcurrentCounting() throws Exception {
+        Counter counter = Metrics.counter("test.concurrent");
+        Timer timer = Metrics.timer("test.concurrent");
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                results.add(threads.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        counter.increment();
+                        timer.record(i);
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            threads.shutdown();
+        }
+        assertEquals(40_000, counter.getCount());
+        assertEquals(40_000, timer.getCount());
+    }
+
+    @Test
+    public void testModelOperationsAreTimed() {
+        long before = Metrics.timer("model.addTransaction").getCount();
+        ExpenseTrackerModel model = new ExpenseTrackerModel();
+        model.addTransaction(new Transaction(10, "food"));
+        assertEquals(before + 1, Metrics.timer("model.addTransaction").getCount());
+        assertTrue(Metrics.report().contains("model.addTransaction"));
+    }
+
+}
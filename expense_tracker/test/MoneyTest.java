@@ -0,0 +1,89 @@
+// package test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import controller.InputValidation;
+import model.ExpenseTrackerModel;
+import model.Money;
+import model.Transaction;
+import model.Filter.AmountFilter;
+import model.Filter.AmountRangeFilter;
+
+public class MoneyTest {
+
+    @Test
+    public void testParseAndFormat() {
+        assertEquals(1250, Money.parseCents("12.5"));
+        assertEquals(1205, Money.parseCents("12.05"));
+        assertEquals(1200, Money.parseCents("12"));
+        assertEquals(50, Money.parseCents(".5"));
+        assertEquals(-99, Money.parseCents("-0.99"));
+        assertEquals("12.05", Money.format(1205));
+        assertEquals("-0.99", Money.format(-99));
+        assertEquals(30, Money.toCents(0.1 + 0.2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseRejectsThreeDecimals() {
+        Money.parseCents("1.005");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseRejectsNonNumbers() {
+        Money.parseCents("12.5a");
+    }
+
+    @Test
+    public void testValidCents() {
+        assertFalse(InputValidation.isValidCents(0));
+        assertFalse(InputValidation.isValidCents(-1));
+        assertTrue(InputValidation.isValidCents(1));
+        assertTrue(InputValidation.isValidCents(100000));
+        assertFalse(InputValidation.isValidCents(100001));
+        assertFalse(InputValidation.isValidAmount(Double.NaN));
+        assertFalse(InputValidation.isValidAmount(Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    public void testValidAmountBounds() {
+        assertTrue(InputValidation.isValidAmount(0.01));
+        assertTrue(InputValidation.isValidAmount(1000));
+        assertTrue(InputValidation.isValidAmount(0.1 + 0.2));
+        assertFalse(InputValidation.isValidAmount(0));
+        assertFalse(InputValidation.isValidAmount(-0.01));
+        // Rounding to cents does not move an amount into or out of the range
+        assertFalse(InputValidation.isValidAmount(0.004));
+        assertFalse(InputValidation.isValidAmount(1000.004));
+        assertFalse(InputValidation.isValidAmount(1000.01));
+        assertFalse(InputValidation.isValidAmount(12.345));
+        try {
+            new Transaction(1000.004, "food");
+            fail("created a transaction over the maximum amount");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testExactFilterAndSum() {
+        ExpenseTrackerModel model = new ExpenseTrackerModel();
+        // 0.1 + 0.2 is not 0.3 as a double, but it is 30 cents
+        model.addTransaction(new Transaction(0.1 + 0.2, "food", 0L));
+        model.addTransaction(new Transaction(0.3, "food", 1L));
+        model.addTransaction(Transaction.ofCents(31, "food", 2L));
+        assertArrayEquals(new int[] { 0, 1 }, model.select(new AmountFilter(0.3)).getRows());
+        assertEquals(2, new AmountFilter(0.3).filter(model.getTransactions()).size());
+        assertArrayEquals(new int[] { 2 }, model.select(new AmountRangeFilter(0.305, 0.31)).getRows());
+        for (int i = 0; i < 10; i++) {
+            model.addTransaction(new Transaction(0.1, "bills", 10L + i));
+        }
+        assertEquals(191, model.getAggregates().getTotal().getSumCents());
+        assertEquals(Transaction.ofCents(30, "food", 0L), model.getTransactions().get(0));
+    }
+
+}
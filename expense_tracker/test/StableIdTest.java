@@ -0,0 +1,252 @@
+// package test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import model.ExpenseTrackerModel;
+import model.Transaction;
+import model.Filter.AmountFilter;
+import model.Filter.AmountRangeFilter;
+import model.Filter.CategoryFilter;
+import model.Storage.ColumnarTransactionStore;
+import model.Storage.Compaction;
+import model.Storage.ListTransactionStore;
+import model.Storage.MappedTransactionStore;
+import model.Storage.TransactionSnapshot;
+import model.Storage.TransactionStore;
+
+public class StableIdTest {
+
+    private static final String[] CATEGORIES = { "food", "travel", "bills", "entertainment", "other" };
+
+    @Test
+    public void testIdsSurviveRemoves() throws IOException {
+        MappedTransactionStore mapped = new MappedTransactionStore(
+                Files.createTempDirectory("ledger").resolve("transactions.ledger"));
+        try {
+            for (TransactionStore store : new TransactionStore[] { new ListTransactionStore(),
+                    new ColumnarTransactionStore(), mapped }) {
+                for (int i = 0; i < 100; i++) {
+                    store.add(Transaction.ofCents(100 + i, CATEGORIES[i % CATEGORIES.length], 1700000000000L + i));
+                }
+                TransactionSnapshot before = store.snapshot();
+                store.removeAt(store.indexOf(10L));
+                store.removeAt(store.indexOf(50L));
+                store.removeAt(0);
+
+                assertEquals(97, store.size());
+                assertEquals(-1, store.indexOf(10L));
+                assertEquals(-1, store.indexOf(0L));
+                // Every row after a removed one moved up, its id did not
+                assertEquals(1L, store.getId(0));
+                assertEquals(47, store.indexOf(50L - 1));
+                assertEquals(148, store.getCents(store.indexOf(48L)));
+                TransactionSnapshot after = store.snapshot();
+                for (int row = 0; row < after.size(); row++) {
+                    assertEquals(row, after.indexOf(after.getId(row)));
+                    assertEquals(100 + after.getId(row), after.getCents(row));
+                }
+                // The snapshot taken before still has every row
+                assertEquals(100, before.size());
+                assertEquals(10L, before.getId(10));
+                assertEquals(110, before.getCents(10));
+            }
+        } finally {
+            mapped.close();
+        }
+    }
+
+    @Test
+    public void testCompactionKeepsRowsAndIds() {
+        ColumnarTransactionStore store = new ColumnarTransactionStore();
+        for (int i = 0; i < 40000; i++) {
+            store.add(Transaction.ofCents(1 + i, CATEGORIES[i % CATEGORIES.length], 1700000000000L + i));
+        }
+        for (long id = 0; id < 40000; id += 3) {
+            store.removeAt(store.indexOf(id));
+        }
+        assertTrue(store.needsCompaction());
+        TransactionSnapshot before = store.snapshot();
+        long version = store.getVersion();
+
+        assertTrue(store.compact());
+        assertFalse(store.needsCompaction());
+        assertEquals(version, store.getVersion());
+        assertEquals(before.size(), store.getSlotCount());
+        TransactionSnapshot after = store.snapshot();
+        assertEquals(before, after);
+        for (int row = 0; row < after.size(); row += 97) {
+            assertEquals(before.getId(row), after.getId(row));
+            assertEquals(row, store.indexOf(before.getId(row)));
+        }
+        assertEquals(before.getCents(before.size() - 1), 1 + before.getId(before.size() - 1));
+    }
+
+    @Test
+    public void testCompactionReplaysChangesSinceItsSnapshot() {
+        for (TransactionStore store : new TransactionStore[] { new ListTransactionStore(),
+                new ColumnarTransactionStore() }) {
+            for (int i = 0; i < 40000; i++) {
+                store.add(Transaction.ofCents(1 + i, CATEGORIES[i % CATEGORIES.length], 1700000000000L + i));
+            }
+            for (long id = 0; id < 40000; id += 3) {
+                store.removeAt(store.indexOf(id));
+            }
+            TransactionSnapshot snapshot = store.snapshot();
+            Compaction compaction = store.prepareCompaction(snapshot);
+            assertEquals(snapshot, compaction.getSnapshot());
+
+            // Changes made while the compaction is prepared
+            store.removeAt(0);
+            store.removeAt(100);
+            for (int i = 40000; i < 60000; i++) {
+                store.add(Transaction.ofCents(1 + i, CATEGORIES[i % CATEGORIES.length], 1700000000000L + i));
+            }
+            store.removeAt(store.size() - 1);
+            TransactionSnapshot before = store.snapshot();
+
+            assertTrue(store.compact(compaction));
+            assertArrayEquals(new int[] { 0, 101 }, compaction.getRemoved());
+            assertEquals(snapshot.size() + 20000, store.getSlotCount());
+            assertEquals(before, store.snapshot());
+            for (int row = 0; row < before.size(); row += 97) {
+                assertEquals(before.getId(row), store.getId(row));
+                assertEquals(row, store.indexOf(before.getId(row)));
+            }
+            assertEquals(59998L, store.getId(store.size() - 1));
+            // The store was compacted since the snapshot
+            assertFalse(store.compact(compaction));
+        }
+    }
+
+    @Test
+    public void testIndexesFollowCompaction() throws InterruptedException {
+        ColumnarTransactionStore store = new ColumnarTransactionStore();
+        ExpenseTrackerModel model = new ExpenseTrackerModel(store);
+        for (int i = 0; i < 20000; i++) {
+            model.addTransaction(Transaction.ofCents(1 + i % 50, CATEGORIES[i % CATEGORIES.length], 1700000000000L + i));
+        }
+        model.select(new CategoryFilter("food"));
+        for (long id = 0; id < 20000; id += 4) {
+            assertTrue(model.removeTransaction(id) >= 0);
+        }
+        // Changes racing the compaction
+        for (int i = 20000; i < 21000; i++) {
+            model.addTransaction(Transaction.ofCents(1 + i % 50, CATEGORIES[i % CATEGORIES.length], 1700000000000L + i));
+            assertTrue(model.removeTransaction((i - 20000) * 4L + 1) >= 0);
+        }
+        long deadline = System.currentTimeMillis() + 10000;
+        while (model.select(new AmountFilter(0.01)).size() >= 0 && store.getSlotCount() == 21000
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(store.getSlotCount() < 21000);
+        model.removeTransaction(20999L);
+
+        TransactionSnapshot transactions = model.getSnapshot();
+        assertArrayEquals(scan(transactions, "food", 0, Long.MAX_VALUE), model.select(new CategoryFilter("food")).getRows());
+        assertArrayEquals(scan(transactions, null, 2, 2), model.select(new AmountFilter(0.02)).getRows());
+        assertArrayEquals(scan(transactions, null, 20, 30), model.select(new AmountRangeFilter(0.20, 0.30)).getRows());
+    }
+
+    @Test
+    public void testQueriesSkipRemovedTransactions() {
+        ExpenseTrackerModel model = new ExpenseTrackerModel();
+        for (int i = 0; i < 5000; i++) {
+            model.addTransaction(Transaction.ofCents(1 + i % 500, CATEGORIES[i % CATEGORIES.length], 1700000000000L + i));
+        }
+        // Build the indexes before removing, so they see the tombstones
+        model.select(new CategoryFilter("food"));
+        for (long id = 0; id < 5000; id += 2) {
+            assertTrue(model.removeTransaction(id) >= 0);
+        }
+        assertEquals(-1, model.removeTransaction(0L));
+
+        TransactionSnapshot transactions = model.getSnapshot();
+        assertArrayEquals(scan(transactions, "travel", 0, Long.MAX_VALUE), model.select(new CategoryFilter("travel")).getRows());
+        assertArrayEquals(scan(transactions, null, 100, 120), model.select(new AmountRangeFilter(1.00, 1.20)).getRows());
+    }
+
+    @Test
+    public void testIndexesSkipRemovedSlotsBeforeCompaction() {
+        ExpenseTrackerModel model = new ExpenseTrackerModel();
+        for (int i = 0; i < 20000; i++) {
+            model.addTransaction(Transaction.ofCents(1 + i % 50, CATEGORIES[i % CATEGORIES.length], 1700000000000L + i));
+        }
+        model.select(new CategoryFilter("food"));
+        // Too few removes to compact, so the indexes see every one of them
+        for (long id = 0; id < 20000; id += 25) {
+            assertTrue(model.removeTransaction(id) >= 0);
+        }
+
+        TransactionSnapshot transactions = model.getSnapshot();
+        assertEquals(20000 - 800, transactions.size());
+        assertArrayEquals(scan(transactions, "food", 0, Long.MAX_VALUE), model.select(new CategoryFilter("food")).getRows());
+        assertArrayEquals(scan(transactions, null, 1, 1), model.select(new AmountFilter(0.01)).getRows());
+        assertArrayEquals(scan(transactions, null, 26, 26), model.select(new AmountFilter(0.26)).getRows());
+        assertArrayEquals(scan(transactions, null, 20, 30), model.select(new AmountRangeFilter(0.20, 0.30)).getRows());
+    }
+
+    @Test
+    public void testRandomRemovesKeepRowsAndSnapshots() {
+        ColumnarTransactionStore store = new ColumnarTransactionStore();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            store.add(Transaction.ofCents(1 + i % 1000, CATEGORIES[i % CATEGORIES.length], 1700000000000L + i));
+            ids.add((long) i);
+        }
+        Random random = new Random(7);
+        TransactionSnapshot snapshot = store.snapshot();
+        List<Long> snapshotIds = new ArrayList<>(ids);
+        for (int round = 0; round < 300; round++) {
+            if (round % 3 == 0) {
+                int[] rows = random.ints(5, 0, ids.size()).distinct().sorted().toArray();
+                store.removeRows(rows);
+                for (int i = rows.length - 1; i >= 0; i--) {
+                    ids.remove(rows[i]);
+                }
+            } else {
+                int row = random.nextInt(ids.size());
+                store.removeAt(row);
+                ids.remove(row);
+            }
+            if (round % 50 == 0) {
+                snapshot = store.snapshot();
+                snapshotIds = new ArrayList<>(ids);
+            }
+        }
+        assertEquals(ids.size(), store.size());
+        for (int row = 0; row < ids.size(); row += 7) {
+            assertEquals((long) ids.get(row), store.getId(row));
+            assertEquals(row, store.indexOf(ids.get(row)));
+        }
+        assertEquals(ids.get(ids.size() - 1).longValue(), store.getId(ids.size() - 1));
+        // The snapshot taken before the last removes still has its rows
+        assertEquals(snapshotIds.size(), snapshot.size());
+        for (int row = 0; row < snapshotIds.size(); row += 7) {
+            assertEquals((long) snapshotIds.get(row), snapshot.getId(row));
+        }
+    }
+
+    private static int[] scan(TransactionSnapshot transactions, String category, long min, long max) {
+        int[] rows = new int[transactions.size()];
+        int count = 0;
+        for (int row = 0; row < transactions.size(); row++) {
+            long cents = transactions.getCents(row);
+            if ((category == null || category.equals(transactions.getCategory(row))) && cents >= min && cents <= max) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+}
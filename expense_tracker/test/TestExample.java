@@ -1,13 +1,11 @@
 
 // package test;
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Date;
 import java.util.List;
 
 import javax.swing.JTable;
@@ -16,7 +14,6 @@ import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.Color;
 import java.awt.Component;
 import java.beans.Transient;
-import java.text.ParseException;
 
 import org.junit.Before;
 import org.junit.After;
@@ -55,19 +52,9 @@ public class TestExample {
     public void checkTransaction(double amount, String category, Transaction transaction) {
         assertEquals(amount, transaction.getAmount(), 0.01);
         assertEquals(category, transaction.getCategory());
-        String transactionDateString = transaction.getTimestamp();
-        Date transactionDate = null;
-        try {
-            transactionDate = Transaction.dateFormatter.parse(transactionDateString);
-        } catch (ParseException pe) {
-            pe.printStackTrace();
-            transactionDate = null;
-        }
-        Date nowDate = new Date();
-        assertNotNull(transactionDate);
-        assertNotNull(nowDate);
-        // They may differ by 60 ms
-        assertTrue(nowDate.getTime() - transactionDate.getTime() < 60000);
+        long transactionTime = Transaction.parseTimestamp(transaction.getTimestamp());
+        // They may differ by 60 s
+        assertTrue(System.currentTimeMillis() - transactionTime < 60000);
     }
 
     @Test
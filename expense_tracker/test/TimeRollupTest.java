@@ -0,0 +1,101 @@
+// package test;
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import controller.InputValidation;
+import model.ExpenseTrackerModel;
+import model.Transaction;
+import model.Aggregate.Bucket;
+import model.Aggregate.Granularity;
+import model.Storage.TransactionSnapshot;
+
+public class TimeRollupTest {
+
+    private static final String[] CATEGORIES = { "food", "travel", "bills", "entertainment", "other" };
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private ExpenseTrackerModel model;
+
+    @Before
+    public void setup() {
+        model = new ExpenseTrackerModel();
+    }
+
+    private static long start(int year, int month, int day) {
+        return LocalDate.of(year, month, day).atStartOfDay(ZONE).toInstant().toEpochMilli();
+    }
+
+    @Test
+    public void testQuarterSpending() {
+        model.addTransaction(new Transaction(100, "travel", start(2024, 6, 30) + 1));
+        model.addTransaction(new Transaction(200, "travel", start(2024, 7, 1)));
+        model.addTransaction(new Transaction(300, "travel", start(2024, 9, 30) + 60_000));
+        model.addTransaction(new Transaction(400, "food", start(2024, 8, 15)));
+        model.addTransaction(new Transaction(500, "travel", start(2024, 10, 1)));
+
+        Bucket q3 = model.getSpending(InputValidation.getCategoryCode("travel"), start(2024, 7, 1), start(2024, 10, 1));
+        assertEquals(2, q3.getCount());
+        assertEquals(50000, q3.getSumCents());
+        assertEquals(3, model.getSpending(-1, start(2024, 7, 1), start(2024, 10, 1)).getCount());
+
+        List<Bucket> months = model.getRollup(Granularity.MONTH, -1, start(2024, 1, 1), start(2025, 1, 1));
+        assertEquals(5, months.size());
+        assertEquals(start(2024, 7, 1), months.get(1).getStart());
+        assertEquals(start(2024, 8, 1), months.get(1).getEnd());
+        assertEquals(200, months.get(1).getSum(), 0);
+    }
+
+    @Test
+    public void testRandomChangesMatchScan() {
+        Random random = new Random(7);
+        long base = start(2023, 1, 1);
+        List<Transaction> added = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            // Times arrive out of order, over about two years
+            long time = base + (long) (random.nextDouble() * 730 * 86_400_000L);
+            Transaction t = Transaction.ofCents(1 + random.nextInt(100000), CATEGORIES[random.nextInt(5)], time);
+            model.addTransaction(t);
+            added.add(t);
+            if (i % 4 == 0) {
+                model.removeTransaction(added.remove(random.nextInt(added.size())));
+            }
+            if (i % 500 == 0) {
+                // Queries between the changes rebuild and then update the trees
+                model.getSpending(-1, base, base + 86_400_000L);
+            }
+        }
+        TransactionSnapshot snapshot = model.getSnapshot();
+        for (int query = 0; query < 200; query++) {
+            long from = base + (long) (random.nextDouble() * 730 * 86_400_000L) / 60_000 * 60_000;
+            long to = from + (long) (random.nextDouble() * 200 * 86_400_000L) / 60_000 * 60_000;
+            int code = random.nextInt(6) - 1;
+            long count = 0;
+            long sum = 0;
+            for (int row = 0; row < snapshot.size(); row++) {
+                long time = snapshot.getTime(row);
+                if (time >= from && time < to && (code == -1 || snapshot.getCategoryCode(row) == code)) {
+                    count++;
+                    sum += snapshot.getCents(row);
+                }
+            }
+            Bucket spending = model.getSpending(code, from, to);
+            assertEquals(count, spending.getCount());
+            assertEquals(sum, spending.getSumCents());
+        }
+        long days = 0;
+        for (Bucket day : model.getRollup(Granularity.DAY, -1, base, base + 731 * 86_400_000L)) {
+            days += day.getCount();
+        }
+        assertEquals(snapshot.size(), days);
+    }
+
+}
@@ -0,0 +1,88 @@
+// package test;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import controller.ImportResult;
+import controller.TransactionImporter;
+import model.ExpenseTrackerModel;
+import model.Transaction;
+
+public class TransactionImporterTest {
+
+    private Path file;
+
+    private ExpenseTrackerModel model;
+
+    @Before
+    public void setup() {
+        model = new ExpenseTrackerModel();
+    }
+
+    @Test
+    public void testImportCsv() throws IOException {
+        file = Files.createTempFile("import", ".csv");
+        List<String> lines = new ArrayList<>();
+        lines.add("amount,category,timestamp");
+        for (int i = 1; i <= 100; i++) {
+            lines.add(i + ",food,01-02-2024 10:30");
+        }
+        lines.add("abc,food");
+        lines.add("50,groceries");
+        lines.add("2000,travel");
+        lines.add("40,bills,yesterday");
+        lines.add("");
+        lines.add("\"60\",\"Travel\"");
+        Files.write(file, lines);
+
+        // Small batches so rows are published over many batches
+        List<Integer> batches = new ArrayList<>();
+        ImportResult result = new TransactionImporter(model, 4, 7).importFile(file, t -> batches.add(t.size()));
+
+        assertEquals(101, result.getImported());
+        assertEquals(4, result.getRejectedCount());
+        assertEquals(102, result.getRejections().get(0).getLine());
+        assertEquals(105, result.getRejections().get(3).getLine());
+        assertEquals(101, model.getTransactions().size());
+        assertEquals(101, (int) batches.get(batches.size() - 1));
+        // File order is kept
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i + 1, model.getTransactions().get(i).getAmount(), 0.01);
+        }
+        assertEquals(new Transaction(1, "food", "01-02-2024 10:30"), model.getTransactions().get(0));
+        assertEquals("travel", model.getTransactions().get(100).getCategory());
+    }
+
+    @Test
+    public void testImportJsonLines() throws IOException {
+        file = Files.createTempFile("import", ".jsonl");
+        Files.write(file, Arrays.asList(
+                "{\"amount\": 12.5, \"category\": \"food\", \"timestamp\": \"01-02-2024 10:30\"}",
+                "{\"category\":\"other\",\"amount\":99}",
+                "{\"amount\": 12.5, \"category\": \"food\"",
+                "{\"amount\": -1, \"category\": \"food\"}"));
+
+        ImportResult result = new TransactionImporter(model).importFile(file, t -> {
+        });
+
+        assertEquals(2, result.getImported());
+        assertEquals(2, result.getRejectedCount());
+        assertEquals(12.5, model.getTransactions().get(0).getAmount(), 0.01);
+        assertEquals("other", model.getTransactions().get(1).getCategory());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+}
@@ -0,0 +1,183 @@
+// package test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import model.ExpenseTrackerModel;
+import model.Transaction;
+import model.Persistence.FsyncPolicy;
+import model.Persistence.TransactionJournal;
+import model.Storage.ColumnarTransactionStore;
+
+public class TransactionJournalTest {
+
+    private Path directory;
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("journal");
+    }
+
+    private ExpenseTrackerModel open(long compactionThreshold) throws IOException {
+        TransactionJournal journal = new TransactionJournal(directory, FsyncPolicy.ALWAYS, 16, 10,
+                compactionThreshold);
+        return new ExpenseTrackerModel(new ColumnarTransactionStore(), journal);
+    }
+
+    @Test
+    public void testRecoverJournal() throws IOException {
+        ExpenseTrackerModel model = open(1000);
+        model.addTransaction(new Transaction(100.0, "food"));
+        model.addTransaction(new Transaction(150.0, "other"));
+        Transaction removed = new Transaction(20.0, "bills");
+        model.addTransaction(removed);
+        model.removeTransaction(removed);
+        List<Transaction> expected = new ArrayList<>(model.getTransactions());
+        model.close();
+
+        ExpenseTrackerModel recovered = open(1000);
+        assertEquals(expected, recovered.getTransactions());
+        recovered.close();
+    }
+
+    @Test
+    public void testRecoverSnapshotAndJournal() throws IOException, InterruptedException {
+        ExpenseTrackerModel model = open(10);
+        for (int i = 1; i <= 95; i++) {
+            model.addTransaction(new Transaction(i, i % 2 == 0 ? "food" : "travel"));
+        }
+        model.removeTransaction(model.getTransactions().get(0));
+        List<Transaction> expected = new ArrayList<>(model.getTransactions());
+        model.close();
+
+        // Compaction replaced the older journal segments with a snapshot
+        assertTrue(Files.exists(directory.resolve("snapshot.bin")));
+        ExpenseTrackerModel recovered = open(10);
+        assertEquals(expected, recovered.getTransactions());
+        recovered.close();
+    }
+
+    @Test
+    public void testTornRecordIsCutOff() throws IOException {
+        ExpenseTrackerModel model = open(1000);
+        model.addTransaction(new Transaction(100.0, "food"));
+        model.addTransaction(new Transaction(150.0, "other"));
+        model.close();
+
+        // Simulate a crash in the middle of writing the last record
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(f -> f.toString().endsWith(".log") && f.toFile().length() > 0)
+                    .findFirst().get();
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(file.length() - 5);
+        }
+
+        ExpenseTrackerModel recovered = open(1000);
+        assertEquals(1, recovered.getTransactions().size());
+        assertEquals(100.0, recovered.getTransactions().get(0).getAmount(), 0.01);
+        recovered.close();
+    }
+
+    @Test
+    public void testCorruptSegmentBeforeTheLastFailsRecovery() throws IOException {
+        ExpenseTrackerModel model = open(1000);
+        model.addTransaction(new Transaction(100.0, "food"));
+        model.addTransaction(new Transaction(150.0, "other"));
+        model.close();
+        // Every recovery opens a new segment
+        model = open(1000);
+        model.addTransaction(new Transaction(20.0, "bills"));
+        model.close();
+
+        // Damage the first record of the first segment
+        Path first = directory.resolve("journal-0.log");
+        try (RandomAccessFile file = new RandomAccessFile(first.toFile(), "rw")) {
+            file.seek(10);
+            int b = file.read();
+            file.seek(10);
+            file.write(b ^ 0xff);
+        }
+        long length = first.toFile().length();
+
+        try {
+            open(1000);
+            fail("Recovered past a corrupt segment");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("journal-0.log"));
+        }
+        // Nothing was cut off or deleted
+        assertEquals(length, first.toFile().length());
+        assertTrue(directory.resolve("journal-1.log").toFile().length() > 0);
+    }
+
+    @Test
+    public void testRemovesReplayById() throws IOException {
+        ExpenseTrackerModel model = open(4);
+        // Equal rows, as a batch or an import produces them
+        for (int i = 0; i < 6; i++) {
+            model.addTransaction(new Transaction(10.0, "food", 1700000000000L));
+        }
+        long removed = model.getSnapshot().getId(2);
+        model.removeTransaction(removed);
+        long last = model.getSnapshot().getId(4);
+        model.removeTransaction(last);
+        long[] ids = ids(model);
+        model.close();
+
+        ExpenseTrackerModel recovered = open(4);
+        assertArrayEquals(ids, ids(recovered));
+        assertEquals(-1, recovered.removeTransaction(removed));
+        // The id of the last, removed transaction is not handed out again
+        recovered.addTransaction(new Transaction(10.0, "food", 1700000000000L));
+        assertTrue(recovered.getSnapshot().getId(4) > last);
+        recovered.close();
+    }
+
+    @Test
+    public void testAlwaysCommitsBeforeReturning() throws IOException {
+        // Neither a full batch nor the commit interval writes the record
+        TransactionJournal journal = new TransactionJournal(directory, FsyncPolicy.ALWAYS, 1024, 60000, 1000);
+        ExpenseTrackerModel model = new ExpenseTrackerModel(new ColumnarTransactionStore(), journal);
+        model.addTransaction(new Transaction(100.0, "food"));
+        long written;
+        try (Stream<Path> files = Files.list(directory)) {
+            written = files.filter(f -> f.toString().endsWith(".log")).mapToLong(f -> f.toFile().length()).sum();
+        }
+        assertTrue(written > 0);
+        model.close();
+    }
+
+    private static long[] ids(ExpenseTrackerModel model) {
+        long[] ids = new long[model.getSnapshot().size()];
+        for (int row = 0; row < ids.length; row++) {
+            ids[row] = model.getSnapshot().getId(row);
+        }
+        return ids;
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+}
@@ -0,0 +1,108 @@
+// package test;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.event.TableModelEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import model.ExpenseTrackerModel;
+import model.Transaction;
+import model.Storage.TransactionSnapshot;
+import view.TransactionTableModel;
+
+public class TransactionTableModelTest {
+
+    private static final String[] CATEGORIES = { "food", "travel", "bills", "entertainment", "other" };
+
+    private ExpenseTrackerModel model;
+
+    private TransactionTableModel table;
+
+    @Before
+    public void setup() {
+        model = new ExpenseTrackerModel();
+        for (int i = 0; i < 10000; i++) {
+            model.addTransaction(Transaction.ofCents(100 + i, CATEGORIES[i % CATEGORIES.length], 1700000000000L + i));
+        }
+        table = new TransactionTableModel();
+        table.setTransactions(model.getSnapshot(), 0);
+    }
+
+    @Test
+    public void testScrollingReadsTheSnapshot() {
+        // Down a page at a time, then back up, then a jump to the end
+        for (int row = 0; row < 2000; row += 37) {
+            assertRow(model.getSnapshot(), row);
+        }
+        for (int row = 2000; row >= 0; row -= 23) {
+            assertRow(model.getSnapshot(), row);
+        }
+        assertRow(model.getSnapshot(), 9999);
+        assertEquals("Total", table.getValueAt(10000, 0));
+    }
+
+    @Test
+    public void testChangesInvalidateTheWindow() {
+        assertRow(model.getSnapshot(), 10);
+        model.addTransaction(Transaction.ofCents(5, "food", 1800000000000L));
+        table.transactionAdded(model.getSnapshot(), 0);
+        assertRow(model.getSnapshot(), 10000);
+        assertRow(model.getSnapshot(), 10);
+
+        model.removeTransaction(model.getTransactions().get(5));
+        table.transactionRemoved(model.getSnapshot(), 5, 0);
+        for (int row = 0; row < 20; row++) {
+            assertRow(model.getSnapshot(), row);
+        }
+        assertEquals(10001, table.getRowCount());
+    }
+
+    @Test
+    public void testCoalescedChangesReplaceAllRows() {
+        List<TableModelEvent> events = new ArrayList<>();
+        table.addTableModelListener(events::add);
+        assertRow(model.getSnapshot(), 10);
+
+        // An added transaction shown together with an earlier removal
+        model.removeTransaction(model.getTransactions().get(3));
+        model.addTransaction(Transaction.ofCents(5, "food", 1800000000000L));
+        model.addTransaction(Transaction.ofCents(6, "food", 1800000000001L));
+        table.transactionAdded(model.getSnapshot(), 0);
+        assertEquals(1, events.size());
+        assertEquals(Integer.MAX_VALUE, events.get(0).getLastRow());
+        assertEquals(10002, table.getRowCount());
+        for (int row = 0; row < 20; row++) {
+            assertRow(model.getSnapshot(), row);
+        }
+        assertRow(model.getSnapshot(), 10000);
+
+        // A removed row shown together with an added transaction
+        events.clear();
+        model.removeTransaction(model.getTransactions().get(0));
+        model.addTransaction(Transaction.ofCents(7, "food", 1800000000002L));
+        table.transactionRemoved(model.getSnapshot(), 0, 0);
+        assertEquals(1, events.size());
+        assertEquals(Integer.MAX_VALUE, events.get(0).getLastRow());
+        assertEquals(10002, table.getRowCount());
+        assertRow(model.getSnapshot(), 0);
+        assertRow(model.getSnapshot(), 10000);
+
+        // A pure append only inserts the new rows
+        events.clear();
+        model.addTransaction(Transaction.ofCents(8, "food", 1800000000003L));
+        table.transactionAdded(model.getSnapshot(), 0);
+        assertEquals(TableModelEvent.INSERT, events.get(0).getType());
+        assertEquals(10001, events.get(0).getFirstRow());
+    }
+
+    private void assertRow(TransactionSnapshot transactions, int row) {
+        assertEquals(row + 1, table.getValueAt(row, 0));
+        assertEquals(transactions.getAmount(row), (Double) table.getValueAt(row, 1), 0);
+        assertEquals(transactions.getCategory(row), table.getValueAt(row, 2));
+        assertEquals(transactions.getTimestamp(row), table.getValueAt(row, 3));
+    }
+}
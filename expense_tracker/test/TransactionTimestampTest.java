@@ -0,0 +1,80 @@
+// package test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Test;
+
+import model.Transaction;
+import model.Filter.DateRangeFilter;
+
+public class TransactionTimestampTest {
+
+    @Test
+    public void testClockAndFormat() {
+        long time = Transaction.parseTimestamp("01-02-2024 10:30");
+        Transaction.setClock(Clock.fixed(Instant.ofEpochMilli(time + 1234), ZoneId.systemDefault()));
+
+        Transaction transaction = new Transaction(10.0, "food");
+        assertEquals(time + 1234, transaction.getTime());
+        assertEquals("01-02-2024 10:30", transaction.getTimestamp());
+        assertEquals(time, new Transaction(10.0, "food", "01-02-2024 10:30").getTime());
+    }
+
+    @Test
+    public void testLastDaysFollowsClock() {
+        long time = Transaction.parseTimestamp("15-02-2024 12:00");
+        Transaction.setClock(Clock.fixed(Instant.ofEpochMilli(time), ZoneId.systemDefault()));
+
+        DateRangeFilter lastWeek = DateRangeFilter.lastDays(7);
+        assertTrue(lastWeek.matches(new Transaction(10.0, "food")));
+        assertTrue(lastWeek.matches(new Transaction(10.0, "food", "08-02-2024 12:00")));
+        assertFalse(lastWeek.matches(new Transaction(10.0, "food", "08-02-2024 11:59")));
+        assertFalse(lastWeek.matches(new Transaction(10.0, "food", "15-02-2024 12:01")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTimestamp() {
+        new Transaction(10.0, "food", "31-02-2024 10:30");
+    }
+
+    @Test
+    public void testConcurrentFormatting() throws Exception {
+        long start = Transaction.parseTimestamp("01-01-2024 00:00");
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                int offset = thread;
+                results.add(workers.submit(() -> {
+                    for (int minute = offset; minute < 5000; minute += 4) {
+                        long time = start + minute * 60_000L;
+                        Transaction transaction = new Transaction(1.0, "bills", time);
+                        assertEquals(time, Transaction.parseTimestamp(transaction.getTimestamp()));
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        Transaction.setClock(Clock.systemDefaultZone());
+    }
+
+}